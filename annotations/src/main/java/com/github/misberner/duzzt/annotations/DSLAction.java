@@ -58,4 +58,20 @@ public @interface DSLAction {
 	
 	public boolean autoVarArgs() default true;
 	
+	/**
+	 * The name of a bulk method of the implementation class, which performs this action
+	 * for a whole collection or array of values at once. The bulk method must have the
+	 * same parameters as the action, except for the last parameter, which must be an
+	 * {@link Iterable} (or a subtype thereof, e.g., a {@link java.util.Collection}) or an array.
+	 * Its elements must be of the (erased) type of the last parameter of the action, or of the
+	 * corresponding wrapper type if the latter is primitive.
+	 * <p>
+	 * Whenever the action may be repeated arbitrarily often, the generated EDSL then
+	 * provides an overload with the parameters of the bulk method, which calls the bulk
+	 * method once. If the last parameter of the bulk method is not an array, but
+	 * a {@link java.util.List} may be passed in its place, an overload taking an array is
+	 * generated as well. Defaults to the empty string, i.e., no bulk method.
+	 */
+	public String bulk() default "";
+	
 }
@@ -0,0 +1,43 @@
+/*
+ *
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the method of an implementation class that resets the implementation object
+ * to its initial condition, such that it can be reused for another call chain. This
+ * method is called by the {@code reset()} method of the generated EDSL class if
+ * {@link GenerateEmbeddedDSL#reusable()} is set. The annotated method must be non-private
+ * and must not have any parameters. It is not available as an EDSL action.
+ * <p>
+ * The {@link DSLReset} annotation is used illegally if:
+ * <ul>
+ * <li>the enclosing type is not annotated with a {@link GenerateEmbeddedDSL} annotation,</li>
+ * <li>the annotated method is private or has parameters, or</li>
+ * <li>it is used on more than one method of the same type.</li>
+ * </ul>
+ * Furthermore, using this annotation has no effect (and results in a warning) if
+ * {@link GenerateEmbeddedDSL#reusable()} is not set.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface DSLReset {
+}
@@ -216,4 +216,84 @@ public @interface GenerateEmbeddedDSL {
 	 * The default behavior is to add the respective annotation.
 	 */
 	public boolean skipGeneratedAnnotation() default false;
+	
+	/**
+	 * The maximum number of states any automaton constructed while compiling the DSL syntax
+	 * may have. If this limit is exceeded, compilation is aborted with an error, instead of
+	 * exhausting time and memory on a syntax that (often unintentionally) leads to an
+	 * exponential blowup. A value of {@code 0} disables the limit.
+	 * <p>
+	 * The default setting is {@code -1}, meaning that the limit specified via the
+	 * {@code duzzt.maxStates} processor option (or its default value) applies.
+	 */
+	public int maxStates() default -1;
+	
+	/**
+	 * The style in which the states of the DSL are represented in the generated source code.
+	 * See {@link StateClassStyle} for the available styles.
+	 * <p>
+	 * The default setting is {@link StateClassStyle#INNER_CLASSES}.
+	 */
+	public StateClassStyle stateStyle() default StateClassStyle.INNER_CLASSES;
+	
+	/**
+	 * The way in which state objects are initialized if the {@link #stateStyle()} is
+	 * {@link StateClassStyle#INNER_CLASSES}. See {@link StateInit} for the available options.
+	 * <p>
+	 * The default setting is {@link StateInit#LAZY}.
+	 */
+	public StateInit stateInit() default StateInit.LAZY;
+	
+	/**
+	 * Whether the generated EDSL objects are reusable. If set, the generated class provides
+	 * a {@code reset()} method, which resets the implementation object by calling the method
+	 * annotated with {@link DSLReset} (if any), and returns the EDSL object in its initial
+	 * state. State objects created by previous call chains are reused.
+	 * <p>
+	 * Furthermore, if the generated class has a constructor without parameters, a static
+	 * {@code threadLocalInstance()} method is generated, which returns a reset instance
+	 * that is created once per thread. Call chains on such an instance must not be
+	 * interleaved with other call chains on the same thread.
+	 * <p>
+	 * The default setting is {@code false}.
+	 */
+	public boolean reusable() default false;
+	
+	/**
+	 * Whether the generated EDSL records call chains instead of executing them immediately.
+	 * If set, non-terminating actions only append an operation code and their arguments to
+	 * a tape, which is replayed against the implementation object in a single loop when a
+	 * terminating action is invoked, or when the generated {@code replay()} method is called.
+	 * This allows building a call chain on one thread and executing it on another. Note that
+	 * (mutable) arguments are recorded by reference.
+	 * <p>
+	 * Furthermore, the generated {@code prepare()} method turns the recorded call chain into
+	 * a {@code Plan}, after checking that it is valid with respect to the syntax. The plan
+	 * provides a single {@link java.lang.invoke.MethodHandle}, which takes the implementation
+	 * object followed by the arguments of all recorded actions, and invokes the implementation
+	 * methods directly. This allows executing call chains of the same shape with different
+	 * arguments, without any state objects or tape being involved. For the JIT to inline the
+	 * whole chain, store the handle in a {@code static final} field and call it via
+	 * {@code invokeExact}.
+	 * <p>
+	 * Recording is only supported with the {@link StateClassStyle#INNER_CLASSES} state style,
+	 * and requires that the non-terminating actions do not declare any checked exceptions.
+	 * <p>
+	 * The default setting is {@code false}.
+	 */
+	public boolean recording() default false;
+	
+	/**
+	 * Whether to generate the automaton of the DSL as static transition tables, for validating
+	 * call sequences that do not originate from Java code at runtime. If set, the generated
+	 * class contains a static nested class {@code Syntax}, which assigns an ID to every action
+	 * and provides a {@code Syntax.Cursor} for checking sequences of action IDs one step at a
+	 * time. Every step takes constant time, and does not allocate any objects. The same holds
+	 * for querying the actions that are legal next via {@code legalNextWord(int)}, which returns
+	 * the bit set of their IDs in words of 64 bits; {@code legalNext()} returns a copy of the
+	 * whole bit set as a {@link java.util.BitSet}.
+	 * <p>
+	 * The default setting is {@code false}.
+	 */
+	public boolean transitionTable() default false;
 }
@@ -0,0 +1,45 @@
+/*
+ *
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.annotations;
+
+/**
+ * The style in which the states of the generated embedded DSL are represented in the
+ * generated source code.
+ * @see GenerateEmbeddedDSL#stateStyle()
+ */
+public enum StateClassStyle {
+	/**
+	 * Each state is represented by an inner class of the generated DSL class. The DSL
+	 * object holds one lazily instantiated object for each state that is visited.
+	 */
+	INNER_CLASSES,
+	/**
+	 * Each state is represented by an interface nested in the generated DSL class, and a
+	 * single (private) class implements all of these interfaces. Every non-terminating
+	 * transition of a call chain returns the same object, which is allocated by the first
+	 * call of the chain. This requires that no action is terminating in one state and
+	 * non-terminating in another one.
+	 */
+	INTERFACES,
+	/**
+	 * Each state is represented by a static nested, final class holding a reference to the
+	 * DSL implementation. Every step of a call chain creates a fresh state object, which is
+	 * not stored anywhere. As the transitions are small enough to be inlined, the JIT compiler
+	 * can then eliminate these allocations altogether via escape analysis.
+	 */
+	STATIC_NESTED
+}
@@ -0,0 +1,43 @@
+/*
+ *
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.annotations;
+
+/**
+ * The way in which the state objects of a generated embedded DSL are initialized. This
+ * only applies to the {@link StateClassStyle#INNER_CLASSES} style, as the other styles do
+ * not store any state objects.
+ * @see GenerateEmbeddedDSL#stateInit()
+ */
+public enum StateInit {
+	/**
+	 * State objects are created on first access, without any synchronization. A DSL object
+	 * must therefore not be shared between threads.
+	 */
+	LAZY,
+	/**
+	 * State objects are created on first access, and published via <tt>volatile</tt> fields.
+	 * A DSL object can be shared between threads without further synchronization; concurrent
+	 * first accesses may create duplicate (but equivalent) state objects.
+	 */
+	LAZY_SAFE,
+	/**
+	 * All state objects are created when the DSL object is created, and stored in
+	 * <tt>final</tt> fields. This makes DSL objects safe to share between threads and avoids
+	 * any checks on access, at the price of a more expensive instantiation.
+	 */
+	EAGER
+}
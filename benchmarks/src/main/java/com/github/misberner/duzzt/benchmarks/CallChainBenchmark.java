@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.misberner.duzzt.examples.dateadder.DateAdder;
+import com.github.misberner.duzzt.examples.dateadder.DateAdderImpl;
+import com.github.misberner.duzzt.runtime.DSLCursor;
+import com.github.misberner.duzzt.runtime.DSLRuntime;
+
+/**
+ * Measures the cost of call chains through generated DSL classes, compared to calling
+ * the implementation directly and to a hand-written fluent builder. Every invocation
+ * runs a complete chain, starting with the instantiation of the DSL object.
+ * <p>
+ * The benchmarks cover the {@link DateAdder} example as well as the deeper synthetic
+ * {@link ChainImpl Chain} DSL, the latter also in the {@link InterfaceChainImpl InterfaceChain}
+ * variant using interface states, in the {@link StaticChainImpl StaticChain} variant using
+ * static nested states, in the {@link ReusableChainImpl ReusableChain} variant, which
+ * reuses a thread-local instance instead of creating a new one, and in the
+ * {@link RecordingChainImpl RecordingChain} variant, which records the chain and replays it
+ * when it is terminated. {@link #preparedChainDsl()} executes a chain of the same shape
+ * through the method handle of a plan prepared from a recorded chain, and
+ * {@link #runtimeChainDsl()} through a {@link DSLCursor} of the {@link DSLRuntime} for the
+ * {@link RuntimeChainImpl RuntimeChain} variant, without any generated code. The {@code VarArgs}
+ * benchmarks pass more items than the generated fixed-arity overloads accept, such that
+ * the varargs overload is called, while {@link #chainDslBulk()} passes them as an array
+ * to the bulk overload. Run them with the GC profiler to see the allocation per chain
+ * next to the throughput:
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar CallChainBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallChainBenchmark {
+
+	private static final MethodHandle CHAIN_PLAN = prepareChainPlan();
+
+	private static final DSLRuntime<RuntimeChainImpl> CHAIN_RUNTIME = DSLRuntime.forClass(RuntimeChainImpl.class);
+	private static final int[] CHAIN_RUNTIME_STEPS = runtimeChainSteps();
+	private static final int CHAIN_RUNTIME_ITEM = CHAIN_RUNTIME.getActionId("item(int)");
+	private static final int CHAIN_RUNTIME_BUILD = CHAIN_RUNTIME.getActionId("build()");
+
+	// Non-final fields prevent constant folding
+	private int x = 42;
+	private Date date = new Date(0L);
+	private int[] items = { 42, 42, 42, 42, 42 };
+
+	@Benchmark
+	public Date dateAdderDsl() {
+		return new DateAdder().add(x).days().and(x).hours().and(x).minutes().to(date);
+	}
+
+	@Benchmark
+	public Date dateAdderImpl() {
+		DateAdderImpl impl = new DateAdderImpl();
+		impl.add(x);
+		impl.days();
+		impl.and(x);
+		impl.hours();
+		impl.and(x);
+		impl.minutes();
+		return impl.to(date);
+	}
+
+	@Benchmark
+	public long chainDsl() {
+		return new Chain()
+				.s0(x)
+				.s1(x)
+				.s2(x)
+				.s3(x)
+				.s4(x)
+				.s5(x)
+				.s6(x)
+				.s7(x)
+				.s8(x)
+				.s9(x)
+				.s10(x)
+				.s11(x)
+				.s12(x)
+				.s13(x)
+				.s14(x)
+				.s15(x)
+				.item(x).item(x).item(x).item(x)
+				.build();
+	}
+
+	@Benchmark
+	public long chainDslVarArgs() {
+		return new Chain()
+				.s0(x)
+				.s1(x)
+				.s2(x)
+				.s3(x)
+				.s4(x)
+				.s5(x)
+				.s6(x)
+				.s7(x)
+				.s8(x)
+				.s9(x)
+				.s10(x)
+				.s11(x)
+				.s12(x)
+				.s13(x)
+				.s14(x)
+				.s15(x)
+				.item(x, x, x, x, x)
+				.build();
+	}
+
+	@Benchmark
+	public long chainDslBulk() {
+		return new Chain()
+				.s0(x)
+				.s1(x)
+				.s2(x)
+				.s3(x)
+				.s4(x)
+				.s5(x)
+				.s6(x)
+				.s7(x)
+				.s8(x)
+				.s9(x)
+				.s10(x)
+				.s11(x)
+				.s12(x)
+				.s13(x)
+				.s14(x)
+				.s15(x)
+				.item(items)
+				.build();
+	}
+
+	@Benchmark
+	public long chainDslFixedArity() {
+		return new Chain()
+				.s0(x)
+				.s1(x)
+				.s2(x)
+				.s3(x)
+				.s4(x)
+				.s5(x)
+				.s6(x)
+				.s7(x)
+				.s8(x)
+				.s9(x)
+				.s10(x)
+				.s11(x)
+				.s12(x)
+				.s13(x)
+				.s14(x)
+				.s15(x)
+				.item(x, x, x, x)
+				.build();
+	}
+
+	@Benchmark
+	public long interfaceChainDsl() {
+		return new InterfaceChain()
+				.s0(x)
+				.s1(x)
+				.s2(x)
+				.s3(x)
+				.s4(x)
+				.s5(x)
+				.s6(x)
+				.s7(x)
+				.s8(x)
+				.s9(x)
+				.s10(x)
+				.s11(x)
+				.s12(x)
+				.s13(x)
+				.s14(x)
+				.s15(x)
+				.item(x).item(x).item(x).item(x)
+				.build();
+	}
+
+	@Benchmark
+	public long interfaceChainDslVarArgs() {
+		return new InterfaceChain()
+				.s0(x)
+				.s1(x)
+				.s2(x)
+				.s3(x)
+				.s4(x)
+				.s5(x)
+				.s6(x)
+				.s7(x)
+				.s8(x)
+				.s9(x)
+				.s10(x)
+				.s11(x)
+				.s12(x)
+				.s13(x)
+				.s14(x)
+				.s15(x)
+				.item(x, x, x, x, x)
+				.build();
+	}
+
+	@Benchmark
+	public long staticChainDsl() {
+		return new StaticChain()
+				.s0(x)
+				.s1(x)
+				.s2(x)
+				.s3(x)
+				.s4(x)
+				.s5(x)
+				.s6(x)
+				.s7(x)
+				.s8(x)
+				.s9(x)
+				.s10(x)
+				.s11(x)
+				.s12(x)
+				.s13(x)
+				.s14(x)
+				.s15(x)
+				.item(x).item(x).item(x).item(x)
+				.build();
+	}
+
+	@Benchmark
+	public long recordingChainDsl() {
+		return new RecordingChain()
+				.s0(x)
+				.s1(x)
+				.s2(x)
+				.s3(x)
+				.s4(x)
+				.s5(x)
+				.s6(x)
+				.s7(x)
+				.s8(x)
+				.s9(x)
+				.s10(x)
+				.s11(x)
+				.s12(x)
+				.s13(x)
+				.s14(x)
+				.s15(x)
+				.item(x).item(x).item(x).item(x)
+				.build();
+	}
+
+	@Benchmark
+	public long preparedChainDsl() throws Throwable {
+		RecordingChainImpl impl = new RecordingChainImpl();
+		CHAIN_PLAN.invokeExact(impl, x, x, x, x, x, x, x, x, x, x, x, x, x, x, x, x, x, x, x, x);
+		return impl.build();
+	}
+
+	@Benchmark
+	public long runtimeChainDsl() {
+		DSLCursor<RuntimeChainImpl> cursor = CHAIN_RUNTIME.cursor(new RuntimeChainImpl());
+		for(int step : CHAIN_RUNTIME_STEPS) {
+			cursor.call1(step, x);
+		}
+		for(int i = 0; i < 4; i++) {
+			cursor.call1(CHAIN_RUNTIME_ITEM, x);
+		}
+		return (Long) cursor.call0(CHAIN_RUNTIME_BUILD);
+	}
+
+	@Benchmark
+	public long reusableChainDsl() {
+		return ReusableChain.threadLocalInstance()
+				.s0(x)
+				.s1(x)
+				.s2(x)
+				.s3(x)
+				.s4(x)
+				.s5(x)
+				.s6(x)
+				.s7(x)
+				.s8(x)
+				.s9(x)
+				.s10(x)
+				.s11(x)
+				.s12(x)
+				.s13(x)
+				.s14(x)
+				.s15(x)
+				.item(x).item(x).item(x).item(x)
+				.build();
+	}
+
+	@Benchmark
+	public long staticChainDslVarArgs() {
+		return new StaticChain()
+				.s0(x)
+				.s1(x)
+				.s2(x)
+				.s3(x)
+				.s4(x)
+				.s5(x)
+				.s6(x)
+				.s7(x)
+				.s8(x)
+				.s9(x)
+				.s10(x)
+				.s11(x)
+				.s12(x)
+				.s13(x)
+				.s14(x)
+				.s15(x)
+				.item(x, x, x, x, x)
+				.build();
+	}
+
+	@Benchmark
+	public long chainBuilder() {
+		return new ChainBuilder()
+				.s0(x)
+				.s1(x)
+				.s2(x)
+				.s3(x)
+				.s4(x)
+				.s5(x)
+				.s6(x)
+				.s7(x)
+				.s8(x)
+				.s9(x)
+				.s10(x)
+				.s11(x)
+				.s12(x)
+				.s13(x)
+				.s14(x)
+				.s15(x)
+				.item(x).item(x).item(x).item(x)
+				.build();
+	}
+
+	@Benchmark
+	public long chainBuilderVarArgs() {
+		return new ChainBuilder()
+				.s0(x)
+				.s1(x)
+				.s2(x)
+				.s3(x)
+				.s4(x)
+				.s5(x)
+				.s6(x)
+				.s7(x)
+				.s8(x)
+				.s9(x)
+				.s10(x)
+				.s11(x)
+				.s12(x)
+				.s13(x)
+				.s14(x)
+				.s15(x)
+				.item(x, x, x, x, x)
+				.build();
+	}
+
+	@Benchmark
+	public long chainImpl() {
+		ChainImpl impl = new ChainImpl();
+		impl.s0(x);
+		impl.s1(x);
+		impl.s2(x);
+		impl.s3(x);
+		impl.s4(x);
+		impl.s5(x);
+		impl.s6(x);
+		impl.s7(x);
+		impl.s8(x);
+		impl.s9(x);
+		impl.s10(x);
+		impl.s11(x);
+		impl.s12(x);
+		impl.s13(x);
+		impl.s14(x);
+		impl.s15(x);
+		impl.item(x);
+		impl.item(x);
+		impl.item(x);
+		impl.item(x);
+		return impl.build();
+	}
+
+	private static MethodHandle prepareChainPlan() {
+		RecordingChain chain = new RecordingChain();
+		chain.s0(0)
+				.s1(0)
+				.s2(0)
+				.s3(0)
+				.s4(0)
+				.s5(0)
+				.s6(0)
+				.s7(0)
+				.s8(0)
+				.s9(0)
+				.s10(0)
+				.s11(0)
+				.s12(0)
+				.s13(0)
+				.s14(0)
+				.s15(0)
+				.item(0).item(0).item(0).item(0);
+		return chain.prepare().getHandle();
+	}
+
+	private static int[] runtimeChainSteps() {
+		int[] steps = new int[16];
+		for(int i = 0; i < steps.length; i++) {
+			steps[i] = CHAIN_RUNTIME.getActionId("s" + i + "(int)");
+		}
+		return steps;
+	}
+}
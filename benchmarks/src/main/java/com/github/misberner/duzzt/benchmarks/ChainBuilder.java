@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.benchmarks;
+
+/**
+ * Hand-written fluent builder for {@link ChainImpl}, serving as the baseline in the
+ * {@link CallChainBenchmark}. Unlike the generated {@code Chain} DSL, all methods return
+ * the builder itself, and the order of calls is not enforced by the type system.
+ */
+public final class ChainBuilder {
+
+	private final ChainImpl impl = new ChainImpl();
+
+	public ChainBuilder s0(int x) {
+		impl.s0(x);
+		return this;
+	}
+
+	public ChainBuilder s1(int x) {
+		impl.s1(x);
+		return this;
+	}
+
+	public ChainBuilder s2(int x) {
+		impl.s2(x);
+		return this;
+	}
+
+	public ChainBuilder s3(int x) {
+		impl.s3(x);
+		return this;
+	}
+
+	public ChainBuilder s4(int x) {
+		impl.s4(x);
+		return this;
+	}
+
+	public ChainBuilder s5(int x) {
+		impl.s5(x);
+		return this;
+	}
+
+	public ChainBuilder s6(int x) {
+		impl.s6(x);
+		return this;
+	}
+
+	public ChainBuilder s7(int x) {
+		impl.s7(x);
+		return this;
+	}
+
+	public ChainBuilder s8(int x) {
+		impl.s8(x);
+		return this;
+	}
+
+	public ChainBuilder s9(int x) {
+		impl.s9(x);
+		return this;
+	}
+
+	public ChainBuilder s10(int x) {
+		impl.s10(x);
+		return this;
+	}
+
+	public ChainBuilder s11(int x) {
+		impl.s11(x);
+		return this;
+	}
+
+	public ChainBuilder s12(int x) {
+		impl.s12(x);
+		return this;
+	}
+
+	public ChainBuilder s13(int x) {
+		impl.s13(x);
+		return this;
+	}
+
+	public ChainBuilder s14(int x) {
+		impl.s14(x);
+		return this;
+	}
+
+	public ChainBuilder s15(int x) {
+		impl.s15(x);
+		return this;
+	}
+
+	public ChainBuilder item(int x) {
+		impl.item(x);
+		return this;
+	}
+
+	public ChainBuilder item(int x, int... xs) {
+		impl.item(x);
+		for(int y : xs) {
+			impl.item(y);
+		}
+		return this;
+	}
+
+	public long build() {
+		return impl.build();
+	}
+}
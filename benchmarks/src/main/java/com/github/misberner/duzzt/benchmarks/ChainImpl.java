@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.benchmarks;
+
+import com.github.misberner.duzzt.annotations.DSLAction;
+import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
+
+/**
+ * DSL implementation for the {@link CallChainBenchmark}. The syntax is a fixed sequence of
+ * 16 distinct steps, followed by a loop of {@code item} actions (for which a varargs
+ * overload is generated, as well as a bulk overload calling {@link #items(int[])}), and
+ * the terminating {@code build} action. The actions only
+ * do a trivial amount of work, such that the overhead of the generated code dominates.
+ * The transition table of the DSL is used by the {@link TransitionTableBenchmark}.
+ */
+@GenerateEmbeddedDSL(name = "Chain",
+		syntax = ChainImpl.SYNTAX,
+		transitionTable = true)
+public class ChainImpl {
+
+	static final String SYNTAX = "s0 s1 s2 s3 s4 s5 s6 s7 s8 s9 s10 s11 s12 s13 s14 s15 item* build";
+
+	private long value;
+
+	private void mix(int x) {
+		this.value = 31 * this.value + x;
+	}
+
+	public void s0(int x) {
+		mix(x);
+	}
+
+	public void s1(int x) {
+		mix(x);
+	}
+
+	public void s2(int x) {
+		mix(x);
+	}
+
+	public void s3(int x) {
+		mix(x);
+	}
+
+	public void s4(int x) {
+		mix(x);
+	}
+
+	public void s5(int x) {
+		mix(x);
+	}
+
+	public void s6(int x) {
+		mix(x);
+	}
+
+	public void s7(int x) {
+		mix(x);
+	}
+
+	public void s8(int x) {
+		mix(x);
+	}
+
+	public void s9(int x) {
+		mix(x);
+	}
+
+	public void s10(int x) {
+		mix(x);
+	}
+
+	public void s11(int x) {
+		mix(x);
+	}
+
+	public void s12(int x) {
+		mix(x);
+	}
+
+	public void s13(int x) {
+		mix(x);
+	}
+
+	public void s14(int x) {
+		mix(x);
+	}
+
+	public void s15(int x) {
+		mix(x);
+	}
+
+	@DSLAction(bulk = "items")
+	public void item(int x) {
+		mix(x);
+	}
+
+	@DSLAction(enable = false)
+	public void items(int[] xs) {
+		for(int x : xs) {
+			mix(x);
+		}
+	}
+
+	@DSLAction(enable = false)
+	void clear() {
+		this.value = 0L;
+	}
+
+	public long build() {
+		return value;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.misberner.duzzt.CompilerEngine;
+import com.github.misberner.duzzt.automaton.DuzztAutomaton;
+import com.github.misberner.duzzt.model.DSLSpecification;
+
+/**
+ * Measures the time for compiling the syntax of a {@link SyntheticGrammar} into a
+ * {@link DuzztAutomaton}, for each {@link CompilerEngine}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerBenchmark {
+
+	@Param({"BRICS", "DIRECT"})
+	public CompilerEngine engine;
+
+	@Param({"50", "500"})
+	public int numNames;
+
+	@Param({"1", "10"})
+	public int overloads;
+
+	@Param({"0", "4"})
+	public int nestingDepth;
+
+	@Param({"1"})
+	public int numGlobals;
+
+	@Param({"1"})
+	public int numTerminators;
+
+	private DSLSpecification spec;
+
+	@Setup
+	public void setup() {
+		SyntheticGrammar grammar = new SyntheticGrammar(numNames, overloads, nestingDepth, numGlobals, numTerminators);
+		spec = SpecificationLoader.load(grammar).getSpecification();
+	}
+
+	@Benchmark
+	public DuzztAutomaton compile() {
+		return engine.createCompiler(spec.getImplementation())
+				.compile(spec.getDSLSyntax(), spec.getSubExpressions());
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.misberner.duzzt.re.parser.DuzztRegExpParser;
+
+/**
+ * Measures the time for parsing the syntax and subexpression definitions of a
+ * {@link SyntheticGrammar}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+	@Param({"50", "500"})
+	public int numNames;
+
+	@Param({"0", "4"})
+	public int nestingDepth;
+
+	private String syntax;
+	private List<String> subExpressions;
+
+	@Setup
+	public void setup() {
+		SyntheticGrammar grammar = new SyntheticGrammar(numNames, 1, nestingDepth, 1, 1);
+		syntax = grammar.generateSyntax();
+		subExpressions = new ArrayList<>(grammar.generateSubExpressions().values());
+	}
+
+	@Benchmark
+	public void parse(Blackhole bh) {
+		bh.consume(DuzztRegExpParser.parse(syntax));
+		for(String subExpr : subExpressions) {
+			bh.consume(DuzztRegExpParser.parse(subExpr));
+		}
+	}
+}
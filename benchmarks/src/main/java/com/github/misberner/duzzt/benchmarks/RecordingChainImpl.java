@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.benchmarks;
+
+import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
+
+/**
+ * Variant of the {@link ChainImpl Chain} DSL in {@link GenerateEmbeddedDSL#recording() recording}
+ * mode, i.e., the chain is executed only when {@code build} is invoked.
+ */
+@GenerateEmbeddedDSL(name = "RecordingChain",
+		syntax = ChainImpl.SYNTAX,
+		recording = true)
+public final class RecordingChainImpl extends ChainImpl {
+}
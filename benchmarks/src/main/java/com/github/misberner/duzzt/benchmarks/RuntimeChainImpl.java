@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.benchmarks;
+
+import com.github.misberner.duzzt.runtime.DSLRuntime;
+import com.github.misberner.duzzt.runtime.RuntimeDSL;
+
+/**
+ * Variant of the {@link ChainImpl Chain} DSL that is driven by a {@link DSLRuntime}
+ * instead of generated code.
+ */
+@RuntimeDSL(syntax = ChainImpl.SYNTAX)
+public final class RuntimeChainImpl extends ChainImpl {
+}
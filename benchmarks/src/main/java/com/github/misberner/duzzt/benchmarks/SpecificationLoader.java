@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.benchmarks;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Types;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
+import com.github.misberner.duzzt.model.DSLSettings;
+import com.github.misberner.duzzt.model.DSLSpecification;
+
+/**
+ * Utility for obtaining a {@link DSLSpecification} from Java source code, by running the
+ * system Java compiler in-process with an annotation processor that captures the
+ * specification instead of generating code.
+ * <p>
+ * The {@link Types} instance of the compilation is retained, as it is required by some
+ * of the operations under benchmark (e.g., sorting actions).
+ */
+public final class SpecificationLoader {
+
+	@SupportedAnnotationTypes("com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL")
+	@SupportedSourceVersion(SourceVersion.RELEASE_7)
+	private static final class CapturingProcessor extends AbstractProcessor {
+		private DSLSpecification spec;
+		private Types types;
+
+		@Override
+		public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+			for(Element elem : roundEnv.getElementsAnnotatedWith(GenerateEmbeddedDSL.class)) {
+				GenerateEmbeddedDSL annotation = elem.getAnnotation(GenerateEmbeddedDSL.class);
+				types = processingEnv.getTypeUtils();
+				spec = DSLSpecification.create((TypeElement)elem, new DSLSettings(annotation),
+						processingEnv.getElementUtils(), types);
+			}
+			return true;
+		}
+	}
+
+	private static final class StringSource extends SimpleJavaFileObject {
+		private final String source;
+
+		public StringSource(String className, String source) {
+			super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension),
+					Kind.SOURCE);
+			this.source = source;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return source;
+		}
+	}
+
+	private final DSLSpecification spec;
+	private final Types types;
+
+	private SpecificationLoader(DSLSpecification spec, Types types) {
+		this.spec = spec;
+		this.types = types;
+	}
+
+	/**
+	 * Compiles the given source code and captures the specification of the (single)
+	 * class annotated with {@link GenerateEmbeddedDSL}.
+	 *
+	 * @param className the fully qualified name of the class defined in the source code
+	 * @param source the source code
+	 * @return the loader holding the captured specification
+	 * @throws IllegalStateException if no Java compiler is available, or if the source
+	 * code could not be processed
+	 */
+	public static SpecificationLoader load(String className, String source) throws IllegalStateException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if(compiler == null) {
+			throw new IllegalStateException("No system Java compiler available, benchmarks must run on a JDK");
+		}
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		List<String> options = Arrays.asList(
+				"-proc:only",
+				"-classpath", System.getProperty("java.class.path"));
+		CapturingProcessor processor = new CapturingProcessor();
+		JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null,
+				Collections.singletonList(new StringSource(className, source)));
+		task.setProcessors(Collections.singletonList(processor));
+		task.call();
+		if(processor.spec == null) {
+			throw new IllegalStateException("Could not capture DSL specification: " + diagnostics.getDiagnostics());
+		}
+		return new SpecificationLoader(processor.spec, processor.types);
+	}
+
+	/**
+	 * Convenience method for loading the specification of a synthetic grammar.
+	 *
+	 * @param grammar the synthetic grammar
+	 * @return the loader holding the captured specification
+	 */
+	public static SpecificationLoader load(SyntheticGrammar grammar) {
+		return load(grammar.getQualifiedClassName(), grammar.generateSource());
+	}
+
+	public DSLSpecification getSpecification() {
+		return spec;
+	}
+
+	public Types getTypes() {
+		return types;
+	}
+}
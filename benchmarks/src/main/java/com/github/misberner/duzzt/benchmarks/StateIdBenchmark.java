@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.lang.model.util.Types;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.misberner.duzzt.CompilerEngine;
+import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.automaton.DuzztAutomaton;
+import com.github.misberner.duzzt.model.DSLSpecification;
+
+/**
+ * Measures the time for reassigning the state IDs of a compiled {@link DuzztAutomaton},
+ * both with and without sorting the actions first.
+ * <p>
+ * Reassigning the state IDs is idempotent, hence the same automaton can be used for
+ * all invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateIdBenchmark {
+
+	@Param({"50", "500"})
+	public int numNames;
+
+	@Param({"1", "10"})
+	public int overloads;
+
+	@Param({"0", "4"})
+	public int nestingDepth;
+
+	private Types types;
+	private List<DuzztAction> sortedActions;
+	private DuzztAutomaton automaton;
+
+	@Setup
+	public void setup() {
+		SpecificationLoader loader = SpecificationLoader.load(
+				new SyntheticGrammar(numNames, overloads, nestingDepth, 1, 1));
+		DSLSpecification spec = loader.getSpecification();
+		types = loader.getTypes();
+		sortedActions = new ArrayList<>(spec.getImplementation().getAllActions());
+		Collections.sort(sortedActions, new DuzztAction.ActionComparator(types));
+		automaton = CompilerEngine.DIRECT.createCompiler(spec.getImplementation())
+				.compile(spec.getDSLSyntax(), spec.getSubExpressions());
+	}
+
+	@Benchmark
+	public DuzztAutomaton reassignStateIds() {
+		automaton.reassignStateIds(sortedActions);
+		return automaton;
+	}
+
+	@Benchmark
+	public DuzztAutomaton sortAndReassignStateIds() {
+		automaton.reassignStateIds(types);
+		return automaton;
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.benchmarks;
+
+import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
+import com.github.misberner.duzzt.annotations.StateClassStyle;
+
+/**
+ * Variant of the {@link ChainImpl Chain} DSL that uses the
+ * {@link StateClassStyle#STATIC_NESTED static nested states} style.
+ */
+@GenerateEmbeddedDSL(name = "StaticChain",
+		syntax = ChainImpl.SYNTAX,
+		stateStyle = StateClassStyle.STATIC_NESTED)
+public final class StaticChainImpl extends ChainImpl {
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Generator for the source code of synthetic DSL implementation classes.
+ * <p>
+ * The generated class defines {@code numNames} action names {@code act0},
+ * {@code act1}, ..., each with {@code overloads} overloads, plus an action
+ * {@code with}, {@code numGlobals} global actions {@code comment0}, {@code comment1}, ...,
+ * and {@code numTerminators} terminator actions {@code done0}, {@code done1}, ....
+ * <p>
+ * The syntax groups the action names into blocks of {@link #GROUP_SIZE} alternatives,
+ * which are concatenated using alternating modifiers. Every group is preceded by the
+ * subexpression {@code sep}, which makes use of the start and inner scope operators
+ * similar to the {@code add} subexpression of the date adder example. If the nesting
+ * depth is positive, the groups are followed by repetitions of the subexpression
+ * {@code level0}, which in turn references {@code level1} and so on, up to the given
+ * depth. Each {@code levelN} subexpression defines its own scope and is delimited by the
+ * additional actions {@code open} and {@code close}. The syntax is concluded
+ * by any of the terminators.
+ */
+public final class SyntheticGrammar {
+
+	/**
+	 * The number of action names that form one group of alternatives.
+	 */
+	public static final int GROUP_SIZE = 10;
+
+	/**
+	 * The package of the generated class.
+	 */
+	public static final String PACKAGE_NAME = "duzzt.synthetic";
+
+	/**
+	 * The simple name of the generated class.
+	 */
+	public static final String CLASS_NAME = "SyntheticDSLImpl";
+
+	private static final char[] MODIFIERS = { '*', '?', '+' };
+
+	private final int numNames;
+	private final int overloads;
+	private final int nestingDepth;
+	private final int numGlobals;
+	private final int numTerminators;
+
+	/**
+	 * Constructor. The generated class has no nested subexpressions, one global
+	 * and one terminator action.
+	 *
+	 * @param numNames the number of (non-special) action names
+	 * @param overloads the number of overloads per action name
+	 */
+	public SyntheticGrammar(int numNames, int overloads) {
+		this(numNames, overloads, 0, 1, 1);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param numNames the number of (non-special) action names
+	 * @param overloads the number of overloads per action name
+	 * @param nestingDepth the nesting depth of subexpressions defining their own scope
+	 * @param numGlobals the number of global actions
+	 * @param numTerminators the number of terminator actions
+	 */
+	public SyntheticGrammar(int numNames, int overloads, int nestingDepth, int numGlobals, int numTerminators) {
+		if(numNames < 1 || overloads < 1) {
+			throw new IllegalArgumentException("Number of names and overloads must be positive");
+		}
+		if(nestingDepth < 0 || numGlobals < 0) {
+			throw new IllegalArgumentException("Nesting depth and number of globals must not be negative");
+		}
+		if(numTerminators < 1) {
+			throw new IllegalArgumentException("Number of terminators must be positive");
+		}
+		this.numNames = numNames;
+		this.overloads = overloads;
+		this.nestingDepth = nestingDepth;
+		this.numGlobals = numGlobals;
+		this.numTerminators = numTerminators;
+	}
+
+	/**
+	 * Retrieves the total number of actions defined by the generated class.
+	 *
+	 * @return the total number of actions
+	 */
+	public int getNumActions() {
+		int numSpecial = (nestingDepth > 0) ? 3 : 1;
+		return numNames * overloads + numSpecial + numGlobals + numTerminators;
+	}
+
+	/**
+	 * Retrieves the fully qualified name of the generated class.
+	 *
+	 * @return the fully qualified class name
+	 */
+	public String getQualifiedClassName() {
+		return PACKAGE_NAME + "." + CLASS_NAME;
+	}
+
+	/**
+	 * Generates the DSL syntax.
+	 *
+	 * @return the syntax expression
+	 */
+	public String generateSyntax() {
+		StringBuilder sb = new StringBuilder();
+		int numGroups = (numNames + GROUP_SIZE - 1) / GROUP_SIZE;
+		for(int g = 0; g < numGroups; g++) {
+			sb.append("(<sep> (");
+			int end = Math.min(numNames, (g + 1) * GROUP_SIZE);
+			for(int i = g * GROUP_SIZE; i < end; i++) {
+				if(i > g * GROUP_SIZE) {
+					sb.append('|');
+				}
+				sb.append("act").append(i);
+			}
+			sb.append("))").append(MODIFIERS[g % MODIFIERS.length]).append(' ');
+		}
+		if(nestingDepth > 0) {
+			sb.append("<level0>* ");
+		}
+		sb.append('(');
+		for(int i = 0; i < numTerminators; i++) {
+			if(i > 0) {
+				sb.append('|');
+			}
+			sb.append("done").append(i);
+		}
+		sb.append(')');
+		return sb.toString();
+	}
+
+	/**
+	 * Generates the names and definitions of all subexpressions, in the order in which
+	 * they appear in the generated annotation.
+	 *
+	 * @return a map from subexpression names to their definitions
+	 */
+	public Map<String,String> generateSubExpressions() {
+		Map<String,String> result = new LinkedHashMap<>();
+		result.put("sep", "(^|/ with)");
+		for(int i = 0; i < nestingDepth; i++) {
+			String inner = (i + 1 < nestingDepth) ? "<level" + (i + 1) + "> | " : "";
+			result.put("level" + i, "open (" + inner + "^ with)* close");
+		}
+		return result;
+	}
+
+	/**
+	 * Generates the source code of the implementation class.
+	 *
+	 * @return the source code
+	 */
+	public String generateSource() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("package ").append(PACKAGE_NAME).append(";\n\n");
+		sb.append("import com.github.misberner.duzzt.annotations.*;\n\n");
+		sb.append("@GenerateEmbeddedDSL(name = \"SyntheticDSL\",\n");
+		sb.append("\tsyntax = \"").append(generateSyntax()).append("\",\n");
+		sb.append("\twhere = {");
+		boolean first = true;
+		for(Map.Entry<String,String> e : generateSubExpressions().entrySet()) {
+			if(!first) {
+				sb.append(',');
+			}
+			first = false;
+			String name = e.getKey();
+			sb.append("\n\t\t@SubExpr(name = \"").append(name)
+					.append("\", definedAs = \"").append(e.getValue()).append('"');
+			if(!name.equals("sep")) {
+				sb.append(", ownScope = true");
+			}
+			sb.append(')');
+		}
+		sb.append(" })\n");
+		sb.append("public class ").append(CLASS_NAME).append(" {\n");
+		for(int i = 0; i < numNames; i++) {
+			for(int j = 0; j < overloads; j++) {
+				sb.append("\tpublic void act").append(i).append('(');
+				for(int k = 0; k < j; k++) {
+					if(k > 0) {
+						sb.append(", ");
+					}
+					sb.append("int p").append(k);
+				}
+				sb.append(") {}\n");
+			}
+		}
+		sb.append("\tpublic void with() {}\n");
+		if(nestingDepth > 0) {
+			sb.append("\tpublic void open() {}\n");
+			sb.append("\tpublic void close() {}\n");
+		}
+		for(int i = 0; i < numGlobals; i++) {
+			sb.append("\t@DSLAction(global = true) public void comment").append(i).append("(String text) {}\n");
+		}
+		for(int i = 0; i < numTerminators; i++) {
+			sb.append("\t@DSLAction(terminator = true) public Object done").append(i).append("() { return null; }\n");
+		}
+		sb.append("}\n");
+		return sb.toString();
+	}
+}
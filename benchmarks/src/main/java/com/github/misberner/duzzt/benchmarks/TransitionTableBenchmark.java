@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the validation of action sequences at runtime via the generated transition
+ * table of the {@link ChainImpl Chain} DSL. The sequence is the one used by the
+ * {@link CallChainBenchmark}, given as action IDs which are looked up beforehand.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransitionTableBenchmark {
+
+	private final Chain.Syntax.Cursor cursor = Chain.Syntax.cursor();
+	private int[] actionIds;
+
+	@Setup
+	public void setup() {
+		actionIds = new int[21];
+		for(int i = 0; i < 16; i++) {
+			actionIds[i] = Chain.Syntax.getActionId("s" + i + "(int)");
+		}
+		for(int i = 16; i < 20; i++) {
+			actionIds[i] = Chain.Syntax.getActionId("item(int)");
+		}
+		actionIds[20] = Chain.Syntax.getActionId("build()");
+	}
+
+	@Benchmark
+	public boolean validateCursor() {
+		cursor.reset();
+		for(int id : actionIds) {
+			if(!cursor.step(id)) {
+				return false;
+			}
+		}
+		return cursor.isTerminal();
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The actions of a DSL, as required by a {@link DuzztCompiler}. Besides the
+ * implementation model used by the annotation processor, this allows compiling DSLs
+ * whose actions are determined otherwise, e.g., via reflection at runtime.
+ */
+public interface ActionModel {
+
+	/**
+	 * Retrieves the actions grouped by their names.
+	 * @return the lists of actions with the same name, keyed by that name
+	 */
+	public Set<? extends Map.Entry<String,List<DuzztAction>>> getActionLists();
+
+	/**
+	 * Retrieves all actions.
+	 * @return the list of all actions
+	 */
+	public List<DuzztAction> getAllActions();
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt;
+
+import com.github.misberner.duzzt.bricscompiler.BricsCompiler;
+import com.github.misberner.duzzt.directcompiler.DirectCompiler;
+
+/**
+ * The available {@link DuzztCompiler} implementations.
+ */
+public enum CompilerEngine {
+	/**
+	 * Compiler based on the Brics Automata Library, see {@link BricsCompiler}.
+	 */
+	BRICS {
+		@Override
+		public DuzztCompiler createCompiler(ActionModel impl, int maxStates, PhaseTimer timer) {
+			return new BricsCompiler(impl, maxStates, timer);
+		}
+		@Override
+		public boolean supports(ActionModel impl) {
+			return impl.getAllActions().size() <= BricsCompiler.MAX_ACTIONS;
+		}
+	},
+	/**
+	 * Compiler operating directly on the regular expression AST, see {@link DirectCompiler}.
+	 */
+	DIRECT {
+		@Override
+		public DuzztCompiler createCompiler(ActionModel impl, int maxStates, PhaseTimer timer) {
+			return new DirectCompiler(impl, maxStates, timer);
+		}
+	};
+
+	/**
+	 * Creates a compiler for the given action model, without a limit on the
+	 * number of states.
+	 *
+	 * @param impl the action model
+	 * @return the compiler
+	 */
+	public DuzztCompiler createCompiler(ActionModel impl) {
+		return createCompiler(impl, 0, PhaseTimer.DISABLED);
+	}
+
+	/**
+	 * Creates a compiler for the given action model.
+	 * <p>
+	 * All engines enforce the state limit during the subset construction, i.e., compilation
+	 * is aborted as soon as an automaton under construction exceeds the limit.
+	 *
+	 * @param impl the action model
+	 * @param maxStates the maximum number of states of the automata constructed during
+	 * compilation, or {@code 0} for no limit
+	 * @param timer the timer for recording the compilation phases
+	 * @return the compiler
+	 */
+	public abstract DuzztCompiler createCompiler(ActionModel impl, int maxStates, PhaseTimer timer);
+
+	/**
+	 * Checks whether compilers created by this engine are able to handle the given
+	 * action model.
+	 *
+	 * @param impl the action model
+	 * @return {@code true} if this engine supports the action model, {@code false}
+	 * otherwise
+	 */
+	public boolean supports(ActionModel impl) {
+		return true;
+	}
+
+	/**
+	 * Retrieves the engine with the given (case-insensitive) name.
+	 *
+	 * @param name the name of the engine
+	 * @return the engine with the given name
+	 * @throws IllegalArgumentException if there is no engine with the given name
+	 */
+	public static CompilerEngine forName(String name) throws IllegalArgumentException {
+		for(CompilerEngine engine : values()) {
+			if(engine.name().equalsIgnoreCase(name.trim())) {
+				return engine;
+			}
+		}
+		throw new IllegalArgumentException("Unknown compiler engine '" + name + "'");
+	}
+}
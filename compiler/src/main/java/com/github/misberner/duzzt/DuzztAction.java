@@ -16,10 +16,10 @@
  */
 package com.github.misberner.duzzt;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeParameterElement;
@@ -27,11 +27,9 @@ import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Types;
 
-import com.github.misberner.apcommons.util.annotations.AnnotationUtils;
 import com.github.misberner.apcommons.util.methods.MethodUtils;
 import com.github.misberner.apcommons.util.methods.ParameterInfo;
 import com.github.misberner.duzzt.annotations.DSLAction;
-import com.github.misberner.duzzt.model.DSLSettings;
 
 public class DuzztAction {
 
@@ -96,42 +94,6 @@ public class DuzztAction {
 		}
 	}
 	
-	public static DuzztAction fromMethod(ExecutableElement methodElement, DSLSettings settings) {
-		String name = methodElement.getSimpleName().toString();
-		
-		boolean global = false;
-		boolean enable = settings.isEnableAllMethods();
-		boolean autoVarArgs = settings.isDefaultAutoVarArgs(methodElement);
-		boolean terminator = settings.isDefaultTerminator(methodElement);
-		
-		DSLAction actionAnn = methodElement.getAnnotation(DSLAction.class);
-		if(actionAnn != null) {
-			Set<String> valuesSet
-				= AnnotationUtils.getAnnotationValues(methodElement, DSLAction.class).keySet();
-			
-			enable = actionAnn.enable();
-			if(!enable) {
-				return null;
-			}
-			
-			global = actionAnn.global();
-			
-			if(valuesSet.contains("terminator")) {
-				terminator = actionAnn.terminator();
-			}
-			
-			if(valuesSet.contains("autoVarArgs")) {
-				autoVarArgs = actionAnn.autoVarArgs(); 
-			}
-		}
-		else if(!enable) {
-			return null;
-		}
-		
-		return new DuzztAction(methodElement, name, global, terminator, autoVarArgs);
-	}
-	
-	
 	private final ExecutableElement methodElement;
 	private final List<ParameterInfo> parameters;
 	private final String name;
@@ -139,16 +101,43 @@ public class DuzztAction {
 	private final boolean global;
 	private final boolean terminator;
 	private final boolean autoVarArgs;
+	private final String bulkMethodName;
+	
 	
+	/**
+	 * Constructor for actions that are not backed by a method element, e.g., because they
+	 * are determined via reflection at runtime. Such actions can be compiled, but
+	 * {@link #getMethod()} returns {@code null}, and they have neither parameters nor any
+	 * other signature information.
+	 * 
+	 * @param name the name of the action
+	 * @param global whether the action is global
+	 * @param terminator whether the action is a terminator
+	 */
+	public DuzztAction(String name, boolean global, boolean terminator) {
+		this.methodElement = null;
+		this.parameters = Collections.emptyList();
+		this.name = name;
+		this.global = global;
+		this.terminator = terminator;
+		this.autoVarArgs = false;
+		this.bulkMethodName = null;
+	}
 	
 	public DuzztAction(ExecutableElement methodElement, String name, boolean global,
 			boolean terminator, boolean autoVarArgs) {
+		this(methodElement, name, global, terminator, autoVarArgs, null);
+	}
+	
+	public DuzztAction(ExecutableElement methodElement, String name, boolean global,
+			boolean terminator, boolean autoVarArgs, String bulkMethodName) {
 		this.methodElement = methodElement;
 		this.parameters = MethodUtils.getParameterInfos(methodElement);
 		this.name = name;
 		this.global = global;
 		this.terminator = terminator;
 		this.autoVarArgs = !methodElement.isVarArgs() && !methodElement.getParameters().isEmpty() && autoVarArgs;
+		this.bulkMethodName = bulkMethodName;
 	}
 
 	public String getName() {
@@ -167,6 +156,14 @@ public class DuzztAction {
 		return autoVarArgs;
 	}
 	
+	/**
+	 * Retrieves the name of the bulk method bound to this action via {@link DSLAction#bulk()}.
+	 * @return the name of the bulk method, or {@code null} if there is none
+	 */
+	public String getBulkMethodName() {
+		return bulkMethodName;
+	}
+	
 	public boolean isVoid() {
 		return (methodElement.getReturnType().getKind() == TypeKind.VOID);
 	}
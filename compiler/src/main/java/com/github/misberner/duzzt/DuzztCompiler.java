@@ -31,6 +31,25 @@ import com.github.misberner.duzzt.re.DuzztRegExp;
  *
  */
 public interface DuzztCompiler {
+	
+	/**
+	 * The default maximum number of states of the automata constructed during compilation,
+	 * used by both the annotation processor and the runtime engine.
+	 */
+	int DEFAULT_MAX_STATES = 10000;
+	
+	/**
+	 * Name of the {@link PhaseTimer phase} for compiling the named subexpressions referenced
+	 * by the main expression.
+	 */
+	String PHASE_SUBEXPRESSIONS = "subexpressions";
+	
+	/**
+	 * Name of the {@link PhaseTimer phase} for constructing, determinizing and minimizing the
+	 * automaton of the main expression, once all subexpressions have been compiled.
+	 */
+	String PHASE_DETERMINIZATION = "determinization";
+	
 	DuzztAutomaton compile(DuzztRegExp re, Map<String,SubExpression> subExpressions);
 
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Accumulates the time spent in named phases of the processing of a DSL. Phases may be
+ * entered multiple times, in which case the times are summed up.
+ * <p>
+ * Timing is opt-in: a {@link #DISABLED disabled} timer does not query the system clock,
+ * and records nothing. Instances are not thread-safe.
+ */
+public final class PhaseTimer {
+	
+	/**
+	 * A timer that does not record anything.
+	 */
+	public static final PhaseTimer DISABLED = new PhaseTimer(false);
+	
+	private final boolean enabled;
+	private final Map<String,Long> phaseNanos = new LinkedHashMap<>();
+	
+	/**
+	 * Constructor. Creates an enabled timer.
+	 */
+	public PhaseTimer() {
+		this(true);
+	}
+	
+	private PhaseTimer(boolean enabled) {
+		this.enabled = enabled;
+	}
+	
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Starts timing a phase.
+	 * 
+	 * @return the start timestamp, to be passed to {@link #stop(String, long)}
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0L;
+	}
+	
+	/**
+	 * Stops timing a phase, adding the elapsed time to the total time of the phase.
+	 * 
+	 * @param phase the name of the phase
+	 * @param start the start timestamp, as returned by {@link #start()}
+	 */
+	public void stop(String phase, long start) {
+		if(!enabled) {
+			return;
+		}
+		long elapsed = System.nanoTime() - start;
+		Long total = phaseNanos.get(phase);
+		phaseNanos.put(phase, (total == null) ? elapsed : total + elapsed);
+	}
+	
+	/**
+	 * Retrieves the total times of all phases, in the order in which they were first
+	 * recorded.
+	 * 
+	 * @return a map from phase names to times in nanoseconds
+	 */
+	public Map<String,Long> getPhaseNanos() {
+		return Collections.unmodifiableMap(phaseNanos);
+	}
+
+}
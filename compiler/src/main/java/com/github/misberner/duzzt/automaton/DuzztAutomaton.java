@@ -54,15 +54,37 @@ public class DuzztAutomaton {
 
 
 	public void reassignStateIds(Types types) {
+		List<DuzztAction> sortedActions = new ArrayList<>(getAllActions());
+		Collections.sort(sortedActions, new DuzztAction.ActionComparator(types));
+		reassignStateIds(sortedActions);
+	}
+
+	/**
+	 * Reassigns the state IDs, using a precomputed action order. In contrast to
+	 * {@link #reassignStateIds(Types)}, this method does not access any compiler
+	 * utilities, and can hence be invoked from threads other than the compiler thread.
+	 *
+	 * @param sortedActions all actions of this automaton, sorted by
+	 * {@link DuzztAction.ActionComparator}
+	 */
+	public void reassignStateIds(List<DuzztAction> sortedActions) {
 		for(DuzztState s : states) {
 			s.setId(-1);
 		}
 
-		List<DuzztAction> sortedActions = new ArrayList<>(getAllActions());
-		Comparator<DuzztAction> actionCmp = new DuzztAction.ActionComparator(types);
-		Collections.sort(sortedActions, actionCmp);
+		final Map<DuzztAction,Integer> actionIndices = new IdentityHashMap<>();
+		for(DuzztAction a : sortedActions) {
+			actionIndices.put(a, actionIndices.size());
+		}
+		Comparator<DuzztAction> actionCmp = new Comparator<DuzztAction>() {
+			@Override
+			public int compare(DuzztAction a1, DuzztAction a2) {
+				return actionIndices.get(a1).compareTo(actionIndices.get(a2));
+			}
+		};
 
 		Queue<DuzztState> queue = new ArrayDeque<>();
+		List<DuzztState> bfsOrder = new ArrayList<>(states.size());
 
 		int id = 0;
 		queue.add(init);
@@ -70,6 +92,9 @@ public class DuzztAutomaton {
 
 		while(!queue.isEmpty()) {
 			DuzztState curr = queue.poll();
+			bfsOrder.add(curr);
+			// Make the order of generated methods independent of hash codes
+			curr.sortTransitions(actionCmp);
 
 			for(DuzztAction a : sortedActions) {
 				DuzztState succ = curr.getSuccessor(a);
@@ -79,6 +104,15 @@ public class DuzztAutomaton {
 				}
 			}
 		}
+
+		// Same for the order of generated state classes
+		for(DuzztState s : states) {
+			if(s.getId() == -1) {
+				bfsOrder.add(s);
+			}
+		}
+		states.clear();
+		states.addAll(bfsOrder);
 	}
 	
 	/**
@@ -97,6 +131,44 @@ public class DuzztAutomaton {
 		return states;
 	}
 
+	/**
+	 * Retrieves a list of all states except for the initial state.
+	 * @return the list of all non-initial states
+	 */
+	public List<DuzztState> getNonInitialStates() {
+		List<DuzztState> result = new ArrayList<>(states.size() - 1);
+		for(DuzztState s : states) {
+			if(s != init) {
+				result.add(s);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Retrieves one representative transition for every action that is enabled in
+	 * at least one non-initial state, in the order of their first occurrence. If
+	 * some transition of an action is {@link DuzztTransition#isRepeatable() repeatable},
+	 * such a transition is chosen as its representative.
+	 * 
+	 * @return the list of representative transitions
+	 */
+	public List<DuzztTransition> getRepresentativeTransitions() {
+		Map<DuzztAction,DuzztTransition> result = new LinkedHashMap<>();
+		for(DuzztState s : states) {
+			if(s == init) {
+				continue;
+			}
+			for(DuzztTransition t : s.getTransitions()) {
+				DuzztTransition repr = result.get(t.getAction());
+				if(repr == null || (!repr.isRepeatable() && t.isRepeatable())) {
+					result.put(t.getAction(), t);
+				}
+			}
+		}
+		return new ArrayList<>(result.values());
+	}
+
 	public Set<DuzztAction> getAllActions() {
 		Set<DuzztAction> result = new HashSet<>();
 		for(DuzztState s : states) {
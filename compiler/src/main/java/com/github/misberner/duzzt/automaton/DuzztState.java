@@ -16,8 +16,12 @@
  */
 package com.github.misberner.duzzt.automaton;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -33,7 +37,7 @@ import com.github.misberner.duzzt.DuzztAction;
 public class DuzztState {
 	
 	private int id;
-	private final Map<DuzztAction,DuzztTransition> transitions = new HashMap<>();
+	private final Map<DuzztAction,DuzztTransition> transitions = new LinkedHashMap<>();
 	private boolean initial = false;
 	
 	/**
@@ -74,6 +78,20 @@ public class DuzztState {
 		transitions.put(action, new DuzztTransition(action, succ));
 	}
 	
+	/**
+	 * Sorts the transitions of this state by their actions, which determines the order
+	 * of {@link #getActions()} and {@link #getTransitions()}.
+	 * @param actionComparator the comparator for actions
+	 */
+	void sortTransitions(Comparator<? super DuzztAction> actionComparator) {
+		List<DuzztAction> actions = new ArrayList<>(transitions.keySet());
+		Collections.sort(actions, actionComparator);
+		for(DuzztAction a : actions) {
+			// re-insert to move to the end
+			transitions.put(a, transitions.remove(a));
+		}
+	}
+	
 	/**
 	 * Retrieves the transition triggered by a given action. If no transition
 	 * is triggered by this action, <tt>null</tt> is returned.
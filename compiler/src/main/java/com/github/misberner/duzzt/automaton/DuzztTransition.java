@@ -73,7 +73,19 @@ public class DuzztTransition {
 	 * <tt>false</tt> otherwise.
 	 */
 	public boolean isVarArgsApplicable() {
-		if(successor == null || !action.isAutoVarArgs()) {
+		return action.isAutoVarArgs() && isRepeatable();
+	}
+	
+	/**
+	 * Checks whether the action of this transition can be repeated arbitrarily often after
+	 * taking this transition, i.e., whether this transition is not a terminating transition
+	 * and the action is defined and reflexive in the successor state.
+	 * 
+	 * @return <tt>true</tt> if the action can be repeated after this transition, <tt>false</tt>
+	 * otherwise
+	 */
+	public boolean isRepeatable() {
+		if(successor == null) {
 			return false;
 		}
 		return (successor == successor.getSuccessor(action));
@@ -0,0 +1,607 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.bricscompiler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.misberner.duzzt.ActionModel;
+import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.DuzztCompiler;
+import com.github.misberner.duzzt.PhaseTimer;
+import com.github.misberner.duzzt.automaton.DuzztAutomaton;
+import com.github.misberner.duzzt.automaton.DuzztState;
+import com.github.misberner.duzzt.exceptions.RecursiveSubExpressionException;
+import com.github.misberner.duzzt.exceptions.StateLimitExceededException;
+import com.github.misberner.duzzt.exceptions.UndefinedIdentifierException;
+import com.github.misberner.duzzt.exceptions.UndefinedSubExpressionException;
+import com.github.misberner.duzzt.model.SubExpression;
+import com.github.misberner.duzzt.re.DuzztREAlt;
+import com.github.misberner.duzzt.re.DuzztREConcat;
+import com.github.misberner.duzzt.re.DuzztREEnd;
+import com.github.misberner.duzzt.re.DuzztREIdentifier;
+import com.github.misberner.duzzt.re.DuzztREInner;
+import com.github.misberner.duzzt.re.DuzztREModifier;
+import com.github.misberner.duzzt.re.DuzztRENonEmpty;
+import com.github.misberner.duzzt.re.DuzztREStart;
+import com.github.misberner.duzzt.re.DuzztRESubexpr;
+import com.github.misberner.duzzt.re.DuzztREUtil;
+import com.github.misberner.duzzt.re.DuzztREVisitor;
+import com.github.misberner.duzzt.re.DuzztRegExp;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.BasicAutomata;
+import dk.brics.automaton.BasicOperations;
+import dk.brics.automaton.State;
+import dk.brics.automaton.StatePair;
+import dk.brics.automaton.Transition;
+
+/**
+ * Regular expression compiler utilizing the
+ * <a href="http://www.brics.dk/automata/">Brics Automata Library</a>.
+ * <p>
+ * As the Brics Automata Library operates on a {@code char} alphabet, this compiler can
+ * handle at most {@link #MAX_ACTIONS} actions. For larger DSLs, the
+ * {@link com.github.misberner.duzzt.directcompiler.DirectCompiler} has to be used.
+ * <p>
+ * The library offers no way to interrupt a determinization. Regular expressions are therefore
+ * converted to nondeterministic automata without the library's intermediate minimization
+ * steps, and all automata are determinized by a subset construction of this class, which
+ * aborts as soon as the limit on the number of states is exceeded.
+ *  
+ * @author Malte Isberner <malte.isberner@gmail.com>
+ *
+ */
+public class BricsCompiler implements DuzztCompiler {
+	
+	/**
+	 * The maximum number of actions supported by this compiler. Each action is assigned
+	 * a {@code char} code, and three more codes are reserved for the start, end and inner
+	 * characters.
+	 */
+	public static final int MAX_ACTIONS = Character.MAX_VALUE + 1 - 3;
+	
+	private static final Comparator<Transition> BY_MIN = new Comparator<Transition>() {
+		@Override
+		public int compare(Transition t1, Transition t2) {
+			return t1.getMin() - t2.getMin();
+		}
+	};
+	
+	private static final Comparator<Transition> BY_MAX = new Comparator<Transition>() {
+		@Override
+		public int compare(Transition t1, Transition t2) {
+			return t1.getMax() - t2.getMax();
+		}
+	};
+	
+	/**
+	 * Translates regular expressions into (nondeterministic) automata. Unlike the
+	 * {@link dk.brics.automaton.RegExp} class of the library, this does not minimize (and
+	 * hence determinize) the automata of all subexpressions, see {@link #determinize(Automaton)}.
+	 */
+	private class RETranslator implements DuzztREVisitor<Automaton, Map<String,Automaton>> {
+		@Override
+		public Automaton visit(DuzztREAlt re, Map<String,Automaton> subexprAutomata) {
+			List<Automaton> children = new ArrayList<>();
+			for(DuzztRegExp child : re.getChildren()) {
+				children.add(child.accept(this, subexprAutomata));
+			}
+			return BasicOperations.union(children);
+		}
+		@Override
+		public Automaton visit(DuzztREConcat re, Map<String,Automaton> subexprAutomata) {
+			List<Automaton> children = new ArrayList<>();
+			for(DuzztRegExp child : re.getChildren()) {
+				children.add(child.accept(this, subexprAutomata));
+			}
+			return BasicOperations.concatenate(children);
+		}
+		@Override
+		public Automaton visit(DuzztREIdentifier re, Map<String,Automaton> subexprAutomata) {
+			CharRange range = id2range.get(re.getName());
+			if(range == null) {
+				throw new UndefinedIdentifierException(re.getName());
+			}
+			return BasicAutomata.makeCharRange(range.getLow(), range.getHigh());
+		}
+		@Override
+		public Automaton visit(DuzztREModifier re, Map<String,Automaton> subexprAutomata) {
+			Automaton result = re.getSub().accept(this, subexprAutomata);
+			char modChar = re.getModChar();
+			if(modChar == '*' || modChar == '+') {
+				result = result.repeat(1);
+			}
+			if(modChar == '?' || modChar == '*') {
+				result = result.optional();
+			}
+			return result;
+		}
+		@Override
+		public Automaton visit(DuzztRESubexpr re, Map<String,Automaton> subexprAutomata) {
+			return subexprAutomata.get(re.getSubexprName());
+		}
+		@Override
+		public Automaton visit(DuzztRENonEmpty re, Map<String,Automaton> subexprAutomata) {
+			Automaton nonEmpty = BasicAutomata.makeAnyChar().repeat(1);
+			return re.getSub().accept(this, subexprAutomata).intersection(nonEmpty);
+		}
+		@Override
+		public Automaton visit(DuzztREStart re, Map<String,Automaton> subexprAutomata) {
+			return BasicAutomata.makeChar(startChar);
+		}
+		@Override
+		public Automaton visit(DuzztREEnd re, Map<String,Automaton> subexprAutomata) {
+			return BasicAutomata.makeChar(endChar);
+		}
+		@Override
+		public Automaton visit(DuzztREInner re, Map<String,Automaton> subexprAutomata) {
+			return BasicAutomata.makeChar(innerChar);
+		}
+		
+	}
+	
+	private final ActionModel impl;
+	
+	private final Map<String,CharRange> id2range
+		= new HashMap<>();
+	private final DuzztAction[] actions;
+	
+	// sorted, disjoint and non-adjacent ranges of global and terminator action codes
+	private final List<CharRange> globalRanges = new ArrayList<>();
+	private final List<CharRange> terminatorRanges = new ArrayList<>();
+	
+	private final char overallLow, overallHigh;
+	private final char startChar, endChar, innerChar;
+	private final int maxStates;
+	private final PhaseTimer timer;
+	
+	public BricsCompiler(ActionModel impl) throws IllegalArgumentException {
+		this(impl, 0, PhaseTimer.DISABLED);
+	}
+	
+	public BricsCompiler(ActionModel impl, int maxStates, PhaseTimer timer) throws IllegalArgumentException {
+		this.impl = impl;
+		this.maxStates = maxStates;
+		this.timer = timer;
+		int numActions = impl.getAllActions().size();
+		if(numActions > MAX_ACTIONS) {
+			throw new IllegalArgumentException("DSL defines " + numActions + " actions, but "
+					+ getClass().getSimpleName() + " supports at most " + MAX_ACTIONS + " actions");
+		}
+		this.actions = new DuzztAction[numActions];
+		this.overallLow = Character.MIN_VALUE;
+		this.overallHigh = (char)(this.overallLow + numActions - 1);
+		this.startChar = (char)(overallHigh + 1);
+		this.endChar = (char)(overallHigh + 2);
+		this.innerChar = (char)(overallHigh + 3);
+		assignActionCodes();
+	}
+	
+	public DuzztAction getAction(char c) {
+		if(c < overallLow || c > overallHigh) {
+			return null;
+		}
+		int ofs = c - overallLow;
+		assert ofs < actions.length;
+		
+		return actions[ofs];
+	}
+	
+	
+	public DuzztAutomaton compile(DuzztRegExp re, Map<String,SubExpression> subExpressions) {
+		Map<String, Automaton> subexprAutomata = new HashMap<>();
+		
+		SubExpression rootSubExpr = new SubExpression(re);
+		
+		long start = timer.start();
+		compileSubExpressions(rootSubExpr, subExpressions, subexprAutomata);
+		timer.stop(PHASE_SUBEXPRESSIONS, start);
+		
+		start = timer.start();
+		Automaton bricsAutomaton = doCompile(rootSubExpr, subExpressions, subexprAutomata);
+		
+		bricsAutomaton = postProcess(bricsAutomaton);
+		
+		DuzztAutomaton result = toDuzztAutomaton(bricsAutomaton);
+		timer.stop(PHASE_DETERMINIZATION, start);
+		return result;
+	}
+	
+	private Automaton postProcess(Automaton bricsAutomaton) {
+		// Determinize & mininimize in order to remove sinks
+		determinize(bricsAutomaton);
+		bricsAutomaton.minimize();
+				
+		for(State s : bricsAutomaton.getStates()) {
+			// Set accepting (make prefix closed)
+			s.setAccept(true);
+			List<Transition> newTransitions = new ArrayList<>();
+			// Add global actions
+			addGlobalSelfLoops(s, newTransitions);
+			// Turn terminator actions into self loops
+			Iterator<Transition> transIt = s.getTransitions().iterator();
+			while(transIt.hasNext()) {
+				Transition t = transIt.next();
+				State succ = t.getDest();
+				if(succ == s) {
+					continue;
+				}
+				int low = t.getMin();
+				int high = Math.min(t.getMax(), overallHigh);
+				int idx = findTerminatorRange(low);
+				if(idx == terminatorRanges.size() || terminatorRanges.get(idx).getLow() > high) {
+					continue;
+				}
+				transIt.remove();
+				while(low <= high) {
+					CharRange term = (idx < terminatorRanges.size()) ? terminatorRanges.get(idx++) : null;
+					if(term == null || term.getLow() > high) {
+						break;
+					}
+					if(term.getLow() > low) {
+						newTransitions.add(new Transition((char)low, (char)(term.getLow() - 1), succ));
+						low = term.getLow();
+					}
+					int termHigh = Math.min(term.getHigh(), high);
+					newTransitions.add(new Transition((char)low, (char)termHigh, s));
+					low = termHigh + 1;
+				}
+				if(low <= t.getMax()) {
+					newTransitions.add(new Transition((char)low, t.getMax(), succ));
+				}
+			}
+			s.getTransitions().addAll(newTransitions);
+		}
+		
+		bricsAutomaton.minimize();
+		return bricsAutomaton;
+	}
+	
+	private DuzztAutomaton toDuzztAutomaton(Automaton bricsAutomaton) {
+		Map<State,DuzztState> stateMap = new HashMap<>();
+		
+		int id = 0;
+		for(State bricsState : bricsAutomaton.getStates()) {
+			if(!bricsState.getTransitions().isEmpty()) {
+				DuzztState duzztState = new DuzztState(id++);
+				stateMap.put(bricsState, duzztState);
+			}
+		}
+		
+		for(Map.Entry<State,DuzztState> e : stateMap.entrySet()) {
+			State bricsState = e.getKey();
+			DuzztState duzztState = e.getValue();
+			
+			for(Transition t : bricsState.getTransitions()) {
+				State bricsDest = t.getDest();
+				DuzztState duzztDest = stateMap.get(bricsDest);
+				
+				int low = Math.max(t.getMin(), overallLow);
+				int high = Math.min(t.getMax(), overallHigh);
+				int idx = findTerminatorRange(low);
+				while(low <= high) {
+					CharRange term = (idx < terminatorRanges.size()) ? terminatorRanges.get(idx++) : null;
+					if(term == null || term.getLow() > high) {
+						addTransitions(duzztState, low, high, duzztDest);
+						break;
+					}
+					if(term.getLow() > low) {
+						addTransitions(duzztState, low, term.getLow() - 1, duzztDest);
+						low = term.getLow();
+					}
+					int termHigh = Math.min(term.getHigh(), high);
+					addTransitions(duzztState, low, termHigh, null);
+					low = termHigh + 1;
+				}
+			}
+		}
+		
+		DuzztState duzztInit = stateMap.get(bricsAutomaton.getInitialState());
+		
+		return new DuzztAutomaton(stateMap.values(), duzztInit);
+	}
+	
+	private void addTransitions(DuzztState state, int low, int high, DuzztState succ) {
+		for(int c = low; c <= high; c++) {
+			state.addTransition(actions[c - overallLow], succ);
+		}
+	}
+	
+	/**
+	 * Adds self-loops for all global action codes for which the given state has no
+	 * transition.
+	 * 
+	 * @param s the state
+	 * @param newTransitions the list to add the self-loop transitions to
+	 */
+	private void addGlobalSelfLoops(State s, List<Transition> newTransitions) {
+		List<Transition> sorted = s.getSortedTransitions(false);
+		int tIdx = 0;
+		for(CharRange global : globalRanges) {
+			int low = global.getLow();
+			int high = global.getHigh();
+			while(low <= high) {
+				while(tIdx < sorted.size() && sorted.get(tIdx).getMax() < low) {
+					tIdx++;
+				}
+				if(tIdx == sorted.size() || sorted.get(tIdx).getMin() > high) {
+					newTransitions.add(new Transition((char)low, (char)high, s));
+					break;
+				}
+				Transition t = sorted.get(tIdx);
+				if(t.getMin() > low) {
+					newTransitions.add(new Transition((char)low, (char)(t.getMin() - 1), s));
+				}
+				low = t.getMax() + 1;
+			}
+		}
+	}
+	
+	/**
+	 * Finds the index of the first terminator range whose upper bound is at least
+	 * {@code c}.
+	 * 
+	 * @param c the character
+	 * @return the index of the respective range, or the number of terminator ranges if
+	 * there is no such range
+	 */
+	private int findTerminatorRange(int c) {
+		int low = 0;
+		int high = terminatorRanges.size();
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(terminatorRanges.get(mid).getHigh() < c) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	private void compileSubExpressions(SubExpression expr, Map<String,SubExpression> subExpressions,
+			Map<String,Automaton> subexprAutomata)
+			throws UndefinedSubExpressionException, RecursiveSubExpressionException {
+		Set<String> subExprRefs = DuzztREUtil.findReferencedSubexprs(expr.getExpression());
+		
+		for(String subExprRef : subExprRefs) {
+			SubExpression subExpr = subExpressions.get(subExprRef);
+			if(subExpr == null) {
+				throw new UndefinedSubExpressionException(subExprRef);
+			}
+			
+			if(!subexprAutomata.containsKey(subExprRef)) {
+				subexprAutomata.put(subExprRef, null);
+				Automaton a;
+				try {
+					a = doCompile(subExpr, subExpressions, subexprAutomata);
+				}
+				catch(StateLimitExceededException ex) {
+					throw ex.inSubExpression(subExprRef);
+				}
+				subexprAutomata.put(subExprRef, a);
+			}
+			else if(subexprAutomata.get(subExprRef) == null) {
+				throw new RecursiveSubExpressionException(subExprRef);
+			}
+		}
+	}
+	
+	private Automaton doCompile(SubExpression expr, Map<String,SubExpression> subExpressions, Map<String,Automaton> subexprAutomata)
+			throws UndefinedSubExpressionException, RecursiveSubExpressionException {
+		compileSubExpressions(expr, subExpressions, subexprAutomata);
+		
+		Automaton automaton = expr.getExpression().accept(new RETranslator(), subexprAutomata);
+		if(expr.isOwnScope()) {
+			// (S?(expr))? & (S[^S]*), where S is the start character
+			Automaton start = BasicAutomata.makeChar(startChar);
+			Automaton scope = start.concatenate(BasicAutomata.makeAnyChar().minus(start).repeat());
+			automaton = start.optional().concatenate(automaton).optional().intersection(scope);
+		}
+		determinize(automaton);
+		automaton.minimize();
+		
+		if(expr.isOwnScope()) {
+			automaton = closeScope(automaton);
+		}
+		return automaton;
+	}
+	
+	private Automaton closeScope(Automaton automaton) {
+		// Make sure automaton is deterministic
+		determinize(automaton);
+		
+		// Skip the starting character, as it is not part of the actual sequence
+		State oldInit = automaton.getInitialState();
+		State realInit = oldInit.step(startChar);
+		
+		// Duplicate the initial state, as it will *not* receive any epsilon-transitions
+		// for the inner character
+		State newInit = new State();
+		newInit.setAccept(true);
+		newInit.getTransitions().addAll(realInit.getTransitions());
+		
+		automaton.setInitialState(newInit);
+		
+
+		automaton.setDeterministic(false);
+		
+		for(State s : automaton.getStates()) {
+			s.setAccept(true);
+			if(s.step(endChar) != null) {
+				s.getTransitions().clear();
+				continue;
+			}
+			
+			if(s != newInit) {
+				State innerSucc = s.step(innerChar);
+				if(innerSucc != null) {
+					automaton.addEpsilons(Collections.singleton(new StatePair(s, innerSucc)));
+				}
+			}
+			
+			// Remove all transitions with special characters
+			List<Transition> newTransitions = new ArrayList<>();
+			Set<Transition> transSet = s.getTransitions();
+			Iterator<Transition> transIt = transSet.iterator();
+			
+			while(transIt.hasNext()) {
+				Transition t = transIt.next();
+				State succ = t.getDest();
+				
+				if(t.getMax() > overallHigh) {
+					transIt.remove();
+					if(t.getMin() <= overallHigh) {
+						newTransitions.add(new Transition(t.getMin(), overallHigh, succ));
+					}
+				}
+			}
+			
+			transSet.addAll(newTransitions);
+		}
+		
+		determinize(automaton);
+		automaton.minimize();
+		
+		return automaton;
+	}
+	
+	/**
+	 * Determinizes the given automaton in place, like {@link Automaton#determinize()}, but
+	 * aborting the subset construction as soon as the number of states exceeds the limit.
+	 * 
+	 * @param automaton the automaton to determinize
+	 * @throws StateLimitExceededException if the deterministic automaton exceeds the limit
+	 */
+	private void determinize(Automaton automaton) throws StateLimitExceededException {
+		if(automaton.isDeterministic() || automaton.getSingleton() != null) {
+			return;
+		}
+		
+		Map<Set<State>,State> subsetStates = new HashMap<>();
+		Deque<Set<State>> worklist = new ArrayDeque<>();
+		Set<State> initSubset = Collections.singleton(automaton.getInitialState());
+		State init = new State();
+		subsetStates.put(initSubset, init);
+		worklist.add(initSubset);
+		
+		Map<State,Integer> active = new HashMap<>();
+		while(!worklist.isEmpty()) {
+			Set<State> subset = worklist.poll();
+			State state = subsetStates.get(subset);
+			
+			List<Transition> transitions = new ArrayList<>();
+			for(State s : subset) {
+				if(s.isAccept()) {
+					state.setAccept(true);
+				}
+				transitions.addAll(s.getTransitions());
+			}
+			Transition[] byMin = transitions.toArray(new Transition[transitions.size()]);
+			Transition[] byMax = byMin.clone();
+			Arrays.sort(byMin, BY_MIN);
+			Arrays.sort(byMax, BY_MAX);
+			
+			// Sweep over the boundaries of the transition ranges, maintaining the number of
+			// transitions to each successor that cover the current range
+			int minIdx = 0, maxIdx = 0;
+			int low = 0;
+			while(maxIdx < byMax.length) {
+				int point = byMax[maxIdx].getMax() + 1;
+				if(minIdx < byMin.length && byMin[minIdx].getMin() < point) {
+					point = byMin[minIdx].getMin();
+				}
+				if(!active.isEmpty() && low < point) {
+					Set<State> succSubset = new HashSet<>(active.keySet());
+					State succ = subsetStates.get(succSubset);
+					if(succ == null) {
+						if(maxStates > 0 && subsetStates.size() >= maxStates) {
+							throw new StateLimitExceededException(maxStates);
+						}
+						succ = new State();
+						subsetStates.put(succSubset, succ);
+						worklist.add(succSubset);
+					}
+					state.addTransition(new Transition((char)low, (char)(point - 1), succ));
+				}
+				while(maxIdx < byMax.length && byMax[maxIdx].getMax() + 1 == point) {
+					State dest = byMax[maxIdx++].getDest();
+					int count = active.remove(dest);
+					if(count > 1) {
+						active.put(dest, count - 1);
+					}
+				}
+				while(minIdx < byMin.length && byMin[minIdx].getMin() == point) {
+					State dest = byMin[minIdx++].getDest();
+					Integer count = active.get(dest);
+					active.put(dest, (count == null) ? 1 : count + 1);
+				}
+				low = point;
+			}
+		}
+		
+		automaton.setInitialState(init);
+		automaton.setDeterministic(true);
+		automaton.removeDeadTransitions();
+	}
+	
+	private void assignActionCodes() {
+		char c = overallLow;
+		
+		for(Map.Entry<String,List<DuzztAction>> entry : impl.getActionLists()) {
+			String name = entry.getKey();
+			List<DuzztAction> actions = entry.getValue();
+			
+			char low = c;
+			
+			for(DuzztAction a : actions) {
+				if(a.isGlobal()) {
+					addToRanges(globalRanges, c);
+				}
+				if(a.isTerminator()) {
+					addToRanges(terminatorRanges, c);
+				}
+				this.actions[c++ - overallLow] = a;
+			}
+			char high = (char)(c - 1);
+			
+			id2range.put(name, new CharRange(low, high));
+		}
+	}
+	
+	private static void addToRanges(List<CharRange> ranges, char c) {
+		int last = ranges.size() - 1;
+		if(last >= 0 && ranges.get(last).getHigh() == c - 1) {
+			ranges.set(last, new CharRange(ranges.get(last).getLow(), c));
+		}
+		else {
+			ranges.add(new CharRange(c, c));
+		}
+	}
+
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.directcompiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A deterministic finite automaton over an integer alphabet with a partial
+ * transition function.
+ * <p>
+ * Transitions of each state are stored as two parallel arrays, sorted by symbol.
+ * Instances are immutable; all operations return new automata.
+ */
+final class DFA {
+
+	/**
+	 * Builder for {@link DFA}s. Transitions for a state must be added in ascending
+	 * order of their symbols.
+	 */
+	static final class Builder {
+		private final List<IntList> transitions = new ArrayList<>();
+		private boolean[] accepting = new boolean[16];
+		private int initial;
+
+		public int addState(boolean accept) {
+			int idx = transitions.size();
+			transitions.add(new IntList(4));
+			if(idx == accepting.length) {
+				accepting = Arrays.copyOf(accepting, idx * 2);
+			}
+			accepting[idx] = accept;
+			return idx;
+		}
+
+		public void setInitial(int initial) {
+			this.initial = initial;
+		}
+
+		public void addTransition(int from, int sym, int to) {
+			IntList trans = transitions.get(from);
+			assert trans.isEmpty() || trans.get(trans.size() - 2) < sym;
+			trans.add(sym);
+			trans.add(to);
+		}
+
+		public DFA build() {
+			int n = transitions.size();
+			int[][] syms = new int[n][];
+			int[][] targets = new int[n][];
+			for(int i = 0; i < n; i++) {
+				IntList trans = transitions.get(i);
+				int num = trans.size() / 2;
+				syms[i] = new int[num];
+				targets[i] = new int[num];
+				for(int j = 0; j < num; j++) {
+					syms[i][j] = trans.get(2*j);
+					targets[i][j] = trans.get(2*j + 1);
+				}
+			}
+			return new DFA(initial, syms, targets, Arrays.copyOf(accepting, n));
+		}
+	}
+
+	private final int initial;
+	private final int[][] syms;
+	private final int[][] targets;
+	private final boolean[] accepting;
+
+	DFA(int initial, int[][] syms, int[][] targets, boolean[] accepting) {
+		this.initial = initial;
+		this.syms = syms;
+		this.targets = targets;
+		this.accepting = accepting;
+	}
+
+	public int size() {
+		return syms.length;
+	}
+
+	public int getInitial() {
+		return initial;
+	}
+
+	public boolean isAccepting(int state) {
+		return accepting[state];
+	}
+
+	public int[] getSymbols(int state) {
+		return syms[state];
+	}
+
+	public int[] getTargets(int state) {
+		return targets[state];
+	}
+
+	public int getNumTransitions() {
+		int num = 0;
+		for(int[] s : syms) {
+			num += s.length;
+		}
+		return num;
+	}
+
+	/**
+	 * Retrieves the successor of a state for a given symbol.
+	 *
+	 * @param state the source state
+	 * @param sym the symbol
+	 * @return the successor state, or {@code -1} if the transition is undefined
+	 */
+	public int getSuccessor(int state, int sym) {
+		int idx = Arrays.binarySearch(syms[state], sym);
+		if(idx < 0) {
+			return -1;
+		}
+		return targets[state][idx];
+	}
+
+	/**
+	 * Creates a copy of this DFA as an {@link NFA}. All accepting states of this DFA
+	 * are connected to the final state of the NFA via epsilon transitions.
+	 *
+	 * @return an NFA accepting the same language as this DFA
+	 */
+	public NFA toNFA() {
+		NFA nfa = new NFA();
+		int n = size();
+		for(int i = 0; i < n; i++) {
+			nfa.addState();
+		}
+		int fin = nfa.addState();
+		for(int i = 0; i < n; i++) {
+			for(int j = 0; j < syms[i].length; j++) {
+				nfa.addTransition(i, syms[i][j], targets[i][j]);
+			}
+			if(accepting[i]) {
+				nfa.addEpsilon(i, fin);
+			}
+		}
+		nfa.setInitial(initial);
+		nfa.setFinal(fin);
+		return nfa;
+	}
+
+	/**
+	 * Removes all states which are not reachable from the initial state, or from which
+	 * no accepting state can be reached. If the language of this automaton is empty,
+	 * the result consists of a single, non-accepting initial state without transitions.
+	 *
+	 * @return the trimmed automaton
+	 */
+	public DFA trim() {
+		int n = size();
+
+		// Compute predecessor lists in CSR format
+		int[] predStart = new int[n + 1];
+		for(int i = 0; i < n; i++) {
+			for(int t : targets[i]) {
+				predStart[t + 1]++;
+			}
+		}
+		for(int i = 0; i < n; i++) {
+			predStart[i + 1] += predStart[i];
+		}
+		int[] preds = new int[predStart[n]];
+		int[] fill = Arrays.copyOf(predStart, n);
+		for(int i = 0; i < n; i++) {
+			for(int t : targets[i]) {
+				preds[fill[t]++] = i;
+			}
+		}
+
+		boolean[] live = new boolean[n];
+		IntList stack = new IntList();
+		for(int i = 0; i < n; i++) {
+			if(accepting[i]) {
+				live[i] = true;
+				stack.add(i);
+			}
+		}
+		while(!stack.isEmpty()) {
+			int q = stack.pop();
+			for(int j = predStart[q]; j < predStart[q + 1]; j++) {
+				int p = preds[j];
+				if(!live[p]) {
+					live[p] = true;
+					stack.add(p);
+				}
+			}
+		}
+
+		if(!live[initial]) {
+			return new DFA(0, new int[][]{{}}, new int[][]{{}}, new boolean[]{false});
+		}
+
+		int[] newIdx = new int[n];
+		Arrays.fill(newIdx, -1);
+		IntList order = new IntList();
+		newIdx[initial] = 0;
+		order.add(initial);
+		for(int i = 0; i < order.size(); i++) {
+			int q = order.get(i);
+			for(int t : targets[q]) {
+				if(live[t] && newIdx[t] == -1) {
+					newIdx[t] = order.size();
+					order.add(t);
+				}
+			}
+		}
+
+		return remap(order, newIdx, true);
+	}
+
+	/**
+	 * Minimizes this DFA, using Hopcroft's partition refinement algorithm adapted to
+	 * partial transition functions: an undefined transition is treated as distinct from
+	 * any defined transition, which is achieved by initially scheduling <i>all</i> blocks
+	 * as splitters. The automaton is expected to be trimmed.
+	 *
+	 * @return the minimal DFA equivalent to this one
+	 */
+	public DFA minimize() {
+		int n = size();
+
+		// Inverse transitions, in CSR format
+		int[] invStart = new int[n + 1];
+		for(int i = 0; i < n; i++) {
+			for(int t : targets[i]) {
+				invStart[t + 1]++;
+			}
+		}
+		for(int i = 0; i < n; i++) {
+			invStart[i + 1] += invStart[i];
+		}
+		int numTrans = invStart[n];
+		int[] invSrc = new int[numTrans];
+		int[] invSym = new int[numTrans];
+		int[] fill = Arrays.copyOf(invStart, n);
+		for(int i = 0; i < n; i++) {
+			for(int j = 0; j < syms[i].length; j++) {
+				int pos = fill[targets[i][j]]++;
+				invSrc[pos] = i;
+				invSym[pos] = syms[i][j];
+			}
+		}
+
+		// Partition data structure: the elements of each block are stored contiguously
+		// in elems, marked elements are moved to the front of their block.
+		int[] elems = new int[n];
+		int[] loc = new int[n];
+		int[] blockOf = new int[n];
+		int[] bFirst = new int[n + 1];
+		int[] bEnd = new int[n + 1];
+		int[] bMarked = new int[n + 1];
+		int numBlocks = 0;
+
+		int pos = 0;
+		for(int acc = 0; acc < 2; acc++) {
+			int start = pos;
+			for(int i = 0; i < n; i++) {
+				if(accepting[i] == (acc == 1)) {
+					elems[pos] = i;
+					loc[i] = pos++;
+					blockOf[i] = numBlocks;
+				}
+			}
+			if(pos > start) {
+				bFirst[numBlocks] = start;
+				bMarked[numBlocks] = start;
+				bEnd[numBlocks] = pos;
+				numBlocks++;
+			}
+		}
+
+		boolean[] inWorklist = new boolean[n + 1];
+		IntList worklist = new IntList();
+		for(int b = 0; b < numBlocks; b++) {
+			worklist.add(b);
+			inWorklist[b] = true;
+		}
+
+		IntList touched = new IntList();
+		long[] buf = new long[16];
+		while(!worklist.isEmpty()) {
+			int splitter = worklist.pop();
+			inWorklist[splitter] = false;
+
+			// Collect all (symbol, source) pairs leading into the splitter
+			int numPairs = 0;
+			for(int k = bFirst[splitter]; k < bEnd[splitter]; k++) {
+				int q = elems[k];
+				for(int j = invStart[q]; j < invStart[q + 1]; j++) {
+					if(numPairs == buf.length) {
+						buf = Arrays.copyOf(buf, numPairs * 2);
+					}
+					buf[numPairs++] = ((long)invSym[j] << 32) | invSrc[j];
+				}
+			}
+			Arrays.sort(buf, 0, numPairs);
+
+			int j = 0;
+			while(j < numPairs) {
+				int sym = (int)(buf[j] >>> 32);
+				// Mark all predecessors w.r.t. the current symbol
+				while(j < numPairs && (int)(buf[j] >>> 32) == sym) {
+					int p = (int)buf[j++];
+					int b = blockOf[p];
+					int m = bMarked[b];
+					if(loc[p] >= m) {
+						if(m == bFirst[b]) {
+							touched.add(b);
+						}
+						int other = elems[m];
+						int lp = loc[p];
+						elems[m] = p;
+						loc[p] = m;
+						elems[lp] = other;
+						loc[other] = lp;
+						bMarked[b] = m + 1;
+					}
+				}
+				// Split touched blocks
+				for(int t = 0; t < touched.size(); t++) {
+					int b = touched.get(t);
+					int mid = bMarked[b];
+					bMarked[b] = bFirst[b];
+					if(mid == bEnd[b]) {
+						continue;
+					}
+					int nb = numBlocks++;
+					bFirst[nb] = bFirst[b];
+					bEnd[nb] = mid;
+					bMarked[nb] = bFirst[nb];
+					bFirst[b] = mid;
+					bMarked[b] = mid;
+					for(int k = bFirst[nb]; k < bEnd[nb]; k++) {
+						blockOf[elems[k]] = nb;
+					}
+					if(inWorklist[b]) {
+						worklist.add(nb);
+						inWorklist[nb] = true;
+					}
+					else {
+						int smaller = (bEnd[nb] - bFirst[nb] <= bEnd[b] - bFirst[b]) ? nb : b;
+						worklist.add(smaller);
+						inWorklist[smaller] = true;
+					}
+				}
+				touched.clear();
+			}
+		}
+
+		// Construct quotient automaton, numbering blocks in BFS order
+		int[] newIdx = new int[numBlocks];
+		Arrays.fill(newIdx, -1);
+		IntList order = new IntList();
+		newIdx[blockOf[initial]] = 0;
+		order.add(initial);
+		for(int i = 0; i < order.size(); i++) {
+			int q = order.get(i);
+			for(int t : targets[q]) {
+				int b = blockOf[t];
+				if(newIdx[b] == -1) {
+					newIdx[b] = order.size();
+					order.add(elems[bFirst[b]]);
+				}
+			}
+		}
+		int[] stateIdx = new int[n];
+		for(int i = 0; i < n; i++) {
+			stateIdx[i] = newIdx[blockOf[i]];
+		}
+
+		return remap(order, stateIdx, false);
+	}
+
+	/**
+	 * Creates a new DFA consisting of the given states (in the given order).
+	 *
+	 * @param order the states to retain, the first one being the new initial state
+	 * @param newIdx the new index of every state, {@code -1} for states not retained
+	 * @param dropUndefined whether transitions to states not retained should be dropped
+	 * @return the new DFA
+	 */
+	private DFA remap(IntList order, int[] newIdx, boolean dropUndefined) {
+		int m = order.size();
+		int[][] newSyms = new int[m][];
+		int[][] newTargets = new int[m][];
+		boolean[] newAcc = new boolean[m];
+		for(int i = 0; i < m; i++) {
+			int q = order.get(i);
+			int[] s = syms[q];
+			int[] t = targets[q];
+			int num = 0;
+			for(int j = 0; j < t.length; j++) {
+				if(!dropUndefined || newIdx[t[j]] != -1) {
+					num++;
+				}
+			}
+			newSyms[i] = new int[num];
+			newTargets[i] = new int[num];
+			int k = 0;
+			for(int j = 0; j < t.length; j++) {
+				if(!dropUndefined || newIdx[t[j]] != -1) {
+					newSyms[i][k] = s[j];
+					newTargets[i][k++] = newIdx[t[j]];
+				}
+			}
+			newAcc[i] = accepting[q];
+		}
+		return new DFA(0, newSyms, newTargets, newAcc);
+	}
+}
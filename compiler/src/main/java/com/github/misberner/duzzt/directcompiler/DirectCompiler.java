@@ -0,0 +1,471 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.directcompiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.misberner.duzzt.ActionModel;
+import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.DuzztCompiler;
+import com.github.misberner.duzzt.PhaseTimer;
+import com.github.misberner.duzzt.automaton.DuzztAutomaton;
+import com.github.misberner.duzzt.automaton.DuzztState;
+import com.github.misberner.duzzt.exceptions.RecursiveSubExpressionException;
+import com.github.misberner.duzzt.exceptions.StateLimitExceededException;
+import com.github.misberner.duzzt.exceptions.UndefinedIdentifierException;
+import com.github.misberner.duzzt.exceptions.UndefinedSubExpressionException;
+import com.github.misberner.duzzt.model.SubExpression;
+import com.github.misberner.duzzt.re.DuzztREAlt;
+import com.github.misberner.duzzt.re.DuzztREConcat;
+import com.github.misberner.duzzt.re.DuzztREEnd;
+import com.github.misberner.duzzt.re.DuzztREIdentifier;
+import com.github.misberner.duzzt.re.DuzztREInner;
+import com.github.misberner.duzzt.re.DuzztREModifier;
+import com.github.misberner.duzzt.re.DuzztRENonEmpty;
+import com.github.misberner.duzzt.re.DuzztREStart;
+import com.github.misberner.duzzt.re.DuzztRESubexpr;
+import com.github.misberner.duzzt.re.DuzztREUtil;
+import com.github.misberner.duzzt.re.DuzztREVisitor;
+import com.github.misberner.duzzt.re.DuzztRegExp;
+
+/**
+ * Regular expression compiler which translates the {@link DuzztRegExp} AST directly
+ * into a finite automaton, without relying on an external automata library.
+ * <p>
+ * The alphabet does not consist of the individual actions, but of <i>action classes</i>:
+ * maximal runs of overloads of the same action name that share their global and terminator
+ * flags. As identifiers in the syntax always refer to all overloads of an action name, the
+ * actions in a class are indistinguishable during compilation, and the size of the automata
+ * only depends on the number of action names, not on the number of overloads. Each class is
+ * assigned an integer symbol, with the scope symbols (start, end and inner) following the
+ * last class symbol. Only when constructing the final {@link DuzztAutomaton} are the
+ * classes expanded to the individual actions.
+ * <p>
+ * Expressions are translated into an NFA
+ * (Thompson construction), which is then determinized via the subset construction.
+ * Scopes are closed directly on the resulting DFA, and the results for subexpressions
+ * are memoized as minimal DFAs. The accepted language is the same as that of the
+ * automaton produced by the
+ * {@link com.github.misberner.duzzt.bricscompiler.BricsCompiler}.
+ */
+public class DirectCompiler implements DuzztCompiler {
+
+	private static final class Fragment {
+		private final int start;
+		private final int end;
+
+		public Fragment(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	private static final class SymbolRange {
+		private final int low;
+		private final int high;
+
+		public SymbolRange(int low, int high) {
+			this.low = low;
+			this.high = high;
+		}
+	}
+
+	private class NFATranslator implements DuzztREVisitor<Fragment, NFA> {
+		private final Map<String,DFA> subexprAutomata;
+
+		public NFATranslator(Map<String,DFA> subexprAutomata) {
+			this.subexprAutomata = subexprAutomata;
+		}
+
+		@Override
+		public Fragment visit(DuzztREAlt re, NFA nfa) {
+			int start = nfa.addState();
+			int end = nfa.addState();
+			for(DuzztRegExp child : re.getChildren()) {
+				Fragment f = child.accept(this, nfa);
+				nfa.addEpsilon(start, f.start);
+				nfa.addEpsilon(f.end, end);
+			}
+			return new Fragment(start, end);
+		}
+		@Override
+		public Fragment visit(DuzztREConcat re, NFA nfa) {
+			Fragment result = null;
+			for(DuzztRegExp child : re.getChildren()) {
+				Fragment f = child.accept(this, nfa);
+				if(result == null) {
+					result = f;
+				}
+				else {
+					nfa.addEpsilon(result.end, f.start);
+					result = new Fragment(result.start, f.end);
+				}
+			}
+			if(result == null) {
+				int state = nfa.addState();
+				result = new Fragment(state, state);
+			}
+			return result;
+		}
+		@Override
+		public Fragment visit(DuzztREIdentifier re, NFA nfa) {
+			SymbolRange range = id2range.get(re.getName());
+			if(range == null) {
+				throw new UndefinedIdentifierException(re.getName());
+			}
+			int start = nfa.addState();
+			int end = nfa.addState();
+			for(int sym = range.low; sym <= range.high; sym++) {
+				nfa.addTransition(start, sym, end);
+			}
+			return new Fragment(start, end);
+		}
+		@Override
+		public Fragment visit(DuzztREModifier re, NFA nfa) {
+			Fragment sub = re.getSub().accept(this, nfa);
+			int start = nfa.addState();
+			int end = nfa.addState();
+			nfa.addEpsilon(start, sub.start);
+			nfa.addEpsilon(sub.end, end);
+			char modChar = re.getModChar();
+			if(modChar == '?' || modChar == '*') {
+				nfa.addEpsilon(start, end);
+			}
+			if(modChar == '*' || modChar == '+') {
+				nfa.addEpsilon(sub.end, sub.start);
+			}
+			return new Fragment(start, end);
+		}
+		@Override
+		public Fragment visit(DuzztRESubexpr re, NFA nfa) {
+			DFA dfa = subexprAutomata.get(re.getSubexprName());
+			NFA template = dfa.toNFA();
+			int ofs = nfa.copyOf(template);
+			return new Fragment(ofs + template.getInitial(), ofs + template.getFinal());
+		}
+		@Override
+		public Fragment visit(DuzztRENonEmpty re, NFA nfa) {
+			Fragment sub = re.getSub().accept(this, nfa);
+			int start = nfa.addState();
+			nfa.copyClosureTransitions(sub.start, start);
+			return new Fragment(start, sub.end);
+		}
+		@Override
+		public Fragment visit(DuzztREStart re, NFA nfa) {
+			return special(startSym, nfa);
+		}
+		@Override
+		public Fragment visit(DuzztREEnd re, NFA nfa) {
+			return special(endSym, nfa);
+		}
+		@Override
+		public Fragment visit(DuzztREInner re, NFA nfa) {
+			return special(innerSym, nfa);
+		}
+
+		private Fragment special(int sym, NFA nfa) {
+			int start = nfa.addState();
+			int end = nfa.addState();
+			nfa.addTransition(start, sym, end);
+			return new Fragment(start, end);
+		}
+	}
+
+	private final ActionModel impl;
+
+	private final Map<String,SymbolRange> id2range
+		= new HashMap<>();
+	private final DuzztAction[] actions;
+	// the actions of class c are actions[classStart[c]] to actions[classStart[c+1] - 1]
+	private final IntList classStart = new IntList();
+	private final IntList globalClassSyms = new IntList();
+
+	private final int numClasses;
+	private final int startSym, endSym, innerSym;
+	private final int maxStates;
+	private final PhaseTimer timer;
+
+	public DirectCompiler(ActionModel impl) {
+		this(impl, 0, PhaseTimer.DISABLED);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param impl the action model
+	 * @param maxStates the maximum number of states of any automaton constructed during
+	 * compilation, or {@code 0} for no limit. Exceeding this limit results in a
+	 * {@link StateLimitExceededException}.
+	 * @param timer the timer for recording the compilation phases
+	 */
+	public DirectCompiler(ActionModel impl, int maxStates, PhaseTimer timer) {
+		this.impl = impl;
+		this.maxStates = maxStates;
+		this.timer = timer;
+		int numActions = impl.getAllActions().size();
+		this.actions = new DuzztAction[numActions];
+		this.numClasses = assignActionSymbols();
+		this.startSym = numClasses;
+		this.endSym = numClasses + 1;
+		this.innerSym = numClasses + 2;
+	}
+
+	/**
+	 * Retrieves the number of action classes, i.e., the number of symbols used for
+	 * representing actions.
+	 *
+	 * @return the number of action classes
+	 */
+	public int getNumActionClasses() {
+		return numClasses;
+	}
+
+	@Override
+	public DuzztAutomaton compile(DuzztRegExp re, Map<String,SubExpression> subExpressions) {
+		Map<String,DFA> subexprAutomata = new HashMap<>();
+
+		SubExpression rootSubExpr = new SubExpression(re);
+
+		long start = timer.start();
+		compileSubExpressions(rootSubExpr, subExpressions, subexprAutomata);
+		timer.stop(PHASE_SUBEXPRESSIONS, start);
+
+		start = timer.start();
+		DFA dfa = doCompile(rootSubExpr, subExpressions, subexprAutomata);
+
+		dfa = postProcess(dfa);
+
+		DuzztAutomaton result = toDuzztAutomaton(dfa);
+		timer.stop(PHASE_DETERMINIZATION, start);
+		return result;
+	}
+
+	private DFA postProcess(DFA dfa) {
+		DFA.Builder builder = new DFA.Builder();
+		int n = dfa.size();
+		for(int i = 0; i < n; i++) {
+			builder.addState(true);
+		}
+		builder.setInitial(dfa.getInitial());
+
+		int[] succs = new int[numClasses];
+		for(int s = 0; s < n; s++) {
+			Arrays.fill(succs, -1);
+			int[] syms = dfa.getSymbols(s);
+			int[] targets = dfa.getTargets(s);
+			for(int j = 0; j < syms.length; j++) {
+				int sym = syms[j];
+				if(sym >= numClasses) {
+					continue;
+				}
+				// Turn terminator actions into self loops
+				succs[sym] = isTerminatorClass(sym) ? s : targets[j];
+			}
+			// Add global actions
+			for(int i = 0; i < globalClassSyms.size(); i++) {
+				int sym = globalClassSyms.get(i);
+				if(succs[sym] == -1) {
+					succs[sym] = s;
+				}
+			}
+			for(int sym = 0; sym < succs.length; sym++) {
+				if(succs[sym] != -1) {
+					builder.addTransition(s, sym, succs[sym]);
+				}
+			}
+		}
+
+		return builder.build().minimize();
+	}
+
+	private DuzztAutomaton toDuzztAutomaton(DFA dfa) {
+		int n = dfa.size();
+		DuzztState[] states = new DuzztState[n];
+		List<DuzztState> stateList = new ArrayList<>(n);
+
+		int id = 0;
+		for(int i = 0; i < n; i++) {
+			if(dfa.getSymbols(i).length > 0 || i == dfa.getInitial()) {
+				states[i] = new DuzztState(id++);
+				stateList.add(states[i]);
+			}
+		}
+
+		for(int i = 0; i < n; i++) {
+			DuzztState duzztState = states[i];
+			if(duzztState == null) {
+				continue;
+			}
+			int[] syms = dfa.getSymbols(i);
+			int[] targets = dfa.getTargets(i);
+			for(int j = 0; j < syms.length && syms[j] < numClasses; j++) {
+				int sym = syms[j];
+				DuzztState succ = isTerminatorClass(sym) ? null : states[targets[j]];
+				for(int k = classStart.get(sym); k < classStart.get(sym + 1); k++) {
+					duzztState.addTransition(actions[k], succ);
+				}
+			}
+		}
+
+		return new DuzztAutomaton(stateList, states[dfa.getInitial()]);
+	}
+
+	private void compileSubExpressions(SubExpression expr, Map<String,SubExpression> subExpressions,
+			Map<String,DFA> subexprAutomata)
+			throws UndefinedSubExpressionException, RecursiveSubExpressionException {
+		Set<String> subExprRefs = DuzztREUtil.findReferencedSubexprs(expr.getExpression());
+
+		for(String subExprRef : subExprRefs) {
+			SubExpression subExpr = subExpressions.get(subExprRef);
+			if(subExpr == null) {
+				throw new UndefinedSubExpressionException(subExprRef);
+			}
+
+			if(!subexprAutomata.containsKey(subExprRef)) {
+				subexprAutomata.put(subExprRef, null);
+				DFA a;
+				try {
+					a = doCompile(subExpr, subExpressions, subexprAutomata);
+				}
+				catch(StateLimitExceededException ex) {
+					throw ex.inSubExpression(subExprRef);
+				}
+				subexprAutomata.put(subExprRef, a);
+			}
+			else if(subexprAutomata.get(subExprRef) == null) {
+				throw new RecursiveSubExpressionException(subExprRef);
+			}
+		}
+	}
+
+	private DFA doCompile(SubExpression expr, Map<String,SubExpression> subExpressions, Map<String,DFA> subexprAutomata)
+			throws UndefinedSubExpressionException, RecursiveSubExpressionException {
+		compileSubExpressions(expr, subExpressions, subexprAutomata);
+
+		NFA nfa = new NFA();
+		Fragment f = expr.getExpression().accept(new NFATranslator(subexprAutomata), nfa);
+		nfa.setInitial(f.start);
+		nfa.setFinal(f.end);
+
+		if(!expr.isOwnScope()) {
+			return nfa.determinize(new int[]{f.start}, -1, maxStates).trim().minimize();
+		}
+
+		// A scope accepts all sequences which, with or without a leading start symbol,
+		// are accepted by the expression, and which contain no further start symbols
+		int[] init = nfa.closure(new int[]{f.start});
+		int[] startSucc = nfa.step(init, startSym);
+		int[] initialStates = new int[init.length + startSucc.length];
+		System.arraycopy(init, 0, initialStates, 0, init.length);
+		System.arraycopy(startSucc, 0, initialStates, init.length, startSucc.length);
+
+		DFA dfa = nfa.determinize(initialStates, startSym, maxStates).trim().minimize();
+		return closeScope(dfa);
+	}
+
+	private DFA closeScope(DFA dfa) {
+		int n = dfa.size();
+
+		NFA nfa = new NFA();
+		for(int i = 0; i < n; i++) {
+			nfa.addState();
+		}
+		// The initial state is duplicated, as it will *not* receive the transitions
+		// of its inner successors
+		int newInit = nfa.addState();
+		int fin = nfa.addState();
+		nfa.setInitial(newInit);
+		nfa.setFinal(fin);
+
+		int[] visited = new int[n];
+		for(int s = 0; s < n; s++) {
+			// Make prefix closed
+			nfa.addEpsilon(s, fin);
+			if(dfa.getSuccessor(s, endSym) != -1) {
+				continue;
+			}
+
+			copyActionTransitions(dfa, s, nfa, s);
+
+			// Treat transitions for the inner symbol as epsilon transitions, unless the
+			// inner successor ends the scope
+			int t = dfa.getSuccessor(s, innerSym);
+			visited[s] = s + 1;
+			while(t != -1 && visited[t] != s + 1 && dfa.getSuccessor(t, endSym) == -1) {
+				visited[t] = s + 1;
+				copyActionTransitions(dfa, t, nfa, s);
+				t = dfa.getSuccessor(t, innerSym);
+			}
+		}
+
+		nfa.addEpsilon(newInit, fin);
+		int init = dfa.getInitial();
+		if(dfa.getSuccessor(init, endSym) == -1) {
+			copyActionTransitions(dfa, init, nfa, newInit);
+		}
+
+		return nfa.determinize(new int[]{newInit}, -1, maxStates).minimize();
+	}
+
+	private void copyActionTransitions(DFA dfa, int state, NFA nfa, int target) {
+		int[] syms = dfa.getSymbols(state);
+		int[] targets = dfa.getTargets(state);
+		for(int j = 0; j < syms.length && syms[j] < numClasses; j++) {
+			nfa.addTransition(target, syms[j], targets[j]);
+		}
+	}
+
+	private boolean isTerminatorClass(int sym) {
+		return actions[classStart.get(sym)].isTerminator();
+	}
+
+	private int assignActionSymbols() {
+		int idx = 0;
+		int sym = 0;
+
+		for(Map.Entry<String,List<DuzztAction>> entry : impl.getActionLists()) {
+			String name = entry.getKey();
+			List<DuzztAction> actions = entry.getValue();
+
+			int low = sym;
+
+			DuzztAction prev = null;
+			for(DuzztAction a : actions) {
+				if(prev == null || a.isGlobal() != prev.isGlobal() || a.isTerminator() != prev.isTerminator()) {
+					if(a.isGlobal()) {
+						globalClassSyms.add(sym);
+					}
+					classStart.add(idx);
+					sym++;
+				}
+				this.actions[idx++] = a;
+				prev = a;
+			}
+			int high = sym - 1;
+
+			id2range.put(name, new SymbolRange(low, high));
+		}
+		classStart.add(idx);
+
+		return sym;
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.directcompiler;
+
+import java.util.Arrays;
+
+/**
+ * A minimal growable list of primitive {@code int}s, used to avoid boxing
+ * in the automaton construction.
+ */
+final class IntList {
+
+	private int[] data;
+	private int size;
+
+	public IntList() {
+		this(8);
+	}
+
+	public IntList(int initialCapacity) {
+		this.data = new int[Math.max(initialCapacity, 1)];
+	}
+
+	public void add(int value) {
+		if(size == data.length) {
+			data = Arrays.copyOf(data, size * 2);
+		}
+		data[size++] = value;
+	}
+
+	public int get(int idx) {
+		return data[idx];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return (size == 0);
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public int pop() {
+		return data[--size];
+	}
+
+	public int[] toArray() {
+		return Arrays.copyOf(data, size);
+	}
+
+}
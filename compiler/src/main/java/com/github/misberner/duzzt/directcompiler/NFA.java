@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.directcompiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.misberner.duzzt.exceptions.StateLimitExceededException;
+
+/**
+ * A nondeterministic finite automaton with epsilon transitions over an integer
+ * alphabet.
+ * <p>
+ * The automaton has a single initial state and a single final state, which is
+ * what a Thompson-style construction naturally yields. Subset construction is
+ * provided by {@link #determinize(int[], int, int)}.
+ */
+final class NFA {
+
+	private final List<IntList> symTransitions = new ArrayList<>();
+	private final List<IntList> epsTransitions = new ArrayList<>();
+
+	private int initial = -1;
+	private int fin = -1;
+
+	public int addState() {
+		symTransitions.add(null);
+		epsTransitions.add(null);
+		return symTransitions.size() - 1;
+	}
+
+	public int size() {
+		return symTransitions.size();
+	}
+
+	public int getInitial() {
+		return initial;
+	}
+
+	public void setInitial(int initial) {
+		this.initial = initial;
+	}
+
+	public int getFinal() {
+		return fin;
+	}
+
+	public void setFinal(int fin) {
+		this.fin = fin;
+	}
+
+	public void addTransition(int from, int sym, int to) {
+		IntList trans = symTransitions.get(from);
+		if(trans == null) {
+			trans = new IntList(4);
+			symTransitions.set(from, trans);
+		}
+		trans.add(sym);
+		trans.add(to);
+	}
+
+	public void addEpsilon(int from, int to) {
+		IntList eps = epsTransitions.get(from);
+		if(eps == null) {
+			eps = new IntList(2);
+			epsTransitions.set(from, eps);
+		}
+		eps.add(to);
+	}
+
+	/**
+	 * Copies all states and transitions of another NFA into this one.
+	 *
+	 * @param other the NFA to copy
+	 * @return the offset which has to be added to state indices of {@code other}
+	 * to obtain the indices of the respective copies
+	 */
+	public int copyOf(NFA other) {
+		int ofs = size();
+		int n = other.size();
+		for(int i = 0; i < n; i++) {
+			addState();
+		}
+		for(int i = 0; i < n; i++) {
+			IntList trans = other.symTransitions.get(i);
+			if(trans != null) {
+				for(int j = 0; j < trans.size(); j += 2) {
+					addTransition(ofs + i, trans.get(j), ofs + trans.get(j + 1));
+				}
+			}
+			IntList eps = other.epsTransitions.get(i);
+			if(eps != null) {
+				for(int j = 0; j < eps.size(); j++) {
+					addEpsilon(ofs + i, ofs + eps.get(j));
+				}
+			}
+		}
+		return ofs;
+	}
+
+	/**
+	 * Adds, for every symbol transition that is reachable from {@code src} via epsilon
+	 * transitions only, a corresponding symbol transition to {@code target}. This is used
+	 * to create a copy of a state that does not accept the empty word.
+	 *
+	 * @param src the state whose epsilon closure should be inspected
+	 * @param target the state to add transitions to
+	 */
+	public void copyClosureTransitions(int src, int target) {
+		for(int q : closure(new int[]{src})) {
+			IntList trans = symTransitions.get(q);
+			if(trans != null) {
+				for(int j = 0; j < trans.size(); j += 2) {
+					addTransition(target, trans.get(j), trans.get(j + 1));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the (sorted) epsilon closure of a set of states.
+	 *
+	 * @param states the states
+	 * @return the sorted array of all states reachable via epsilon transitions
+	 */
+	public int[] closure(int[] states) {
+		return closure(states, states.length, new boolean[size()]);
+	}
+
+	private int[] closure(int[] states, int num, boolean[] visited) {
+		IntList result = new IntList(num * 2);
+		IntList stack = new IntList(num * 2);
+		for(int i = 0; i < num; i++) {
+			int q = states[i];
+			if(!visited[q]) {
+				visited[q] = true;
+				stack.add(q);
+				result.add(q);
+			}
+		}
+		while(!stack.isEmpty()) {
+			int q = stack.pop();
+			IntList eps = epsTransitions.get(q);
+			if(eps == null) {
+				continue;
+			}
+			for(int j = 0; j < eps.size(); j++) {
+				int r = eps.get(j);
+				if(!visited[r]) {
+					visited[r] = true;
+					stack.add(r);
+					result.add(r);
+				}
+			}
+		}
+		int[] arr = result.toArray();
+		for(int q : arr) {
+			visited[q] = false;
+		}
+		Arrays.sort(arr);
+		return arr;
+	}
+
+	/**
+	 * Computes the set of states reachable from a set of states by reading a single
+	 * symbol, followed by the epsilon closure.
+	 *
+	 * @param states the (epsilon-closed) set of source states
+	 * @param sym the symbol to read
+	 * @return the sorted array of successor states
+	 */
+	public int[] step(int[] states, int sym) {
+		IntList succs = new IntList();
+		for(int q : states) {
+			IntList trans = symTransitions.get(q);
+			if(trans == null) {
+				continue;
+			}
+			for(int j = 0; j < trans.size(); j += 2) {
+				if(trans.get(j) == sym) {
+					succs.add(trans.get(j + 1));
+				}
+			}
+		}
+		return closure(succs.toArray());
+	}
+
+	/**
+	 * Performs the subset construction, starting from the given set of states. The
+	 * resulting DFA contains only reachable subsets, but may contain states which
+	 * cannot reach an accepting state.
+	 *
+	 * @param initialStates the initial set of states
+	 * @param ignoredSym a symbol whose transitions should be ignored, or {@code -1}
+	 * @param maxStates the maximum number of states of the resulting DFA, or {@code 0}
+	 * for no limit
+	 * @return the deterministic automaton
+	 * @throws StateLimitExceededException if the resulting DFA would have more than
+	 * {@code maxStates} states
+	 */
+	public DFA determinize(int[] initialStates, int ignoredSym, int maxStates)
+			throws StateLimitExceededException {
+		boolean[] visited = new boolean[size()];
+		Map<StateSet,Integer> index = new HashMap<>();
+		List<int[]> sets = new ArrayList<>();
+
+		int[] init = closure(initialStates, initialStates.length, visited);
+		index.put(new StateSet(init), 0);
+		sets.add(init);
+
+		DFA.Builder builder = new DFA.Builder();
+		builder.addState(Arrays.binarySearch(init, fin) >= 0);
+		builder.setInitial(0);
+
+		long[] buf = new long[16];
+		int[] targets = new int[16];
+		for(int i = 0; i < sets.size(); i++) {
+			int[] set = sets.get(i);
+			int numPairs = 0;
+			for(int q : set) {
+				IntList trans = symTransitions.get(q);
+				if(trans == null) {
+					continue;
+				}
+				for(int j = 0; j < trans.size(); j += 2) {
+					int sym = trans.get(j);
+					if(sym == ignoredSym) {
+						continue;
+					}
+					if(numPairs == buf.length) {
+						buf = Arrays.copyOf(buf, numPairs * 2);
+					}
+					buf[numPairs++] = ((long)sym << 32) | trans.get(j + 1);
+				}
+			}
+			Arrays.sort(buf, 0, numPairs);
+
+			int j = 0;
+			while(j < numPairs) {
+				int sym = (int)(buf[j] >>> 32);
+				int numTargets = 0;
+				while(j < numPairs && (int)(buf[j] >>> 32) == sym) {
+					if(numTargets == targets.length) {
+						targets = Arrays.copyOf(targets, numTargets * 2);
+					}
+					targets[numTargets++] = (int)buf[j++];
+				}
+				int[] succ = closure(targets, numTargets, visited);
+				StateSet key = new StateSet(succ);
+				Integer succIdx = index.get(key);
+				if(succIdx == null) {
+					if(sets.size() == maxStates) {
+						throw new StateLimitExceededException(maxStates);
+					}
+					succIdx = sets.size();
+					index.put(key, succIdx);
+					sets.add(succ);
+					builder.addState(Arrays.binarySearch(succ, fin) >= 0);
+				}
+				builder.addTransition(i, sym, succIdx);
+			}
+		}
+
+		return builder.build();
+	}
+
+
+	private static final class StateSet {
+		private final int[] states;
+		private final int hash;
+
+		public StateSet(int[] states) {
+			this.states = states;
+			this.hash = Arrays.hashCode(states);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(obj == this) {
+				return true;
+			}
+			if(!(obj instanceof StateSet)) {
+				return false;
+			}
+			StateSet other = (StateSet)obj;
+			return hash == other.hash && Arrays.equals(states, other.states);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.exceptions;
+
+/**
+ * Thrown by a {@link com.github.misberner.duzzt.DuzztCompiler} if an automaton constructed
+ * during compilation exceeds the maximum number of states.
+ */
+public class StateLimitExceededException extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+	
+	private final int maxStates;
+	private final String exprName;
+	
+	public StateLimitExceededException(int maxStates) {
+		this(maxStates, null);
+	}
+	
+	public StateLimitExceededException(int maxStates, String exprName) {
+		super(((exprName != null) ? "In subexpression <" + exprName + ">: " : "")
+				+ "Automaton exceeds the maximum number of " + maxStates + " states");
+		this.maxStates = maxStates;
+		this.exprName = exprName;
+	}
+	
+	public int getMaxStates() {
+		return maxStates;
+	}
+	
+	/**
+	 * Retrieves the name of the subexpression whose automaton exceeded the limit.
+	 * 
+	 * @return the name of the subexpression, or {@code null} if the limit was exceeded
+	 * while compiling the main expression
+	 */
+	public String getExpressionName() {
+		return exprName;
+	}
+	
+	/**
+	 * Attributes this exception to the given subexpression, unless it already is
+	 * attributed to a (nested) subexpression.
+	 * 
+	 * @param subExprName the name of the subexpression
+	 * @return an exception attributed to a subexpression
+	 */
+	public StateLimitExceededException inSubExpression(String subExprName) {
+		if(exprName != null) {
+			return this;
+		}
+		StateLimitExceededException ex = new StateLimitExceededException(maxStates, subExprName);
+		ex.setStackTrace(getStackTrace());
+		return ex;
+	}
+
+}
@@ -17,6 +17,7 @@
 package com.github.misberner.duzzt.model;
 
 import com.github.misberner.duzzt.annotations.SubExpr;
+import com.github.misberner.duzzt.re.DuzztRESimplifier;
 import com.github.misberner.duzzt.re.DuzztRegExp;
 import com.github.misberner.duzzt.re.parser.DuzztRegExpParser;
 
@@ -32,10 +33,20 @@ public class SubExpression {
 		this.ownScope = true;
 	}
 	
-	public SubExpression(SubExpr annotation) {
-		this.name = annotation.name();
-		this.expression = DuzztRegExpParser.parse(annotation.definedAs());
-		this.ownScope = annotation.ownScope();
+	public SubExpression(SubExpr annotation, DuzztRESimplifier simplifier) {
+		this(annotation.name(), annotation.definedAs(), annotation.ownScope(), simplifier);
+	}
+	
+	public SubExpression(String name, String definedAs, boolean ownScope, DuzztRESimplifier simplifier) {
+		this.name = name;
+		this.expression = simplifier.simplify(DuzztRegExpParser.parse(definedAs));
+		this.ownScope = ownScope;
+	}
+	
+	public SubExpression(String name, DuzztRegExp expression, boolean ownScope) {
+		this.name = name;
+		this.expression = expression;
+		this.ownScope = ownScope;
 	}
 	
 	public String getName() {
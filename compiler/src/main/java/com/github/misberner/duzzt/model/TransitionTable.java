@@ -0,0 +1,224 @@
+/*
+ *
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.misberner.apcommons.util.methods.ParameterInfo;
+import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
+import com.github.misberner.duzzt.automaton.DuzztAutomaton;
+import com.github.misberner.duzzt.automaton.DuzztState;
+import com.github.misberner.duzzt.automaton.DuzztTransition;
+
+/**
+ * The automaton of a DSL in the form of static transition tables, see
+ * {@link GenerateEmbeddedDSL#transitionTable()}.
+ * <p>
+ * Action IDs are the indices of the actions sorted by {@link DuzztAction.ActionComparator}.
+ * States are numbered in the order of {@link DuzztAutomaton#getStates()}, except that the
+ * initial state always has index {@code 0}. Terminating transitions lead to the additional
+ * state with index {@link #getNumStates()}.
+ * <p>
+ * As large tables would exceed the size limit for methods in class files if they were
+ * written as array initializers, the transitions are encoded as string literals: for every
+ * state, the number of its transitions, followed by the action ID and successor index of
+ * each transition, all as {@code char}s.
+ */
+public final class TransitionTable {
+	
+	/**
+	 * The maximum size of a transition table, i.e., the product of the number of states and
+	 * the number of actions. The generated {@code Syntax} class allocates an {@code int} array
+	 * of this size in its static initializer, so this limits its footprint to 16 MiB (and
+	 * prevents the size computation from overflowing).
+	 */
+	public static final int MAX_SIZE = 1 << 22;
+	
+	/**
+	 * The maximum number of characters per encoded string literal. As every character takes
+	 * at most three bytes in a class file, this stays well below the limit of 65535 bytes.
+	 */
+	private static final int CHUNK_SIZE = 8192;
+	
+	/**
+	 * Numbers the states of an automaton, such that the initial state has index {@code 0},
+	 * and all other states follow in the order of {@link DuzztAutomaton#getStates()}.
+	 * Unlike the state IDs, these indices are unique among all states.
+	 * 
+	 * @param automaton the automaton
+	 * @return a map from states to their indices
+	 */
+	public static Map<DuzztState,Integer> indexStates(DuzztAutomaton automaton) {
+		Map<DuzztState,Integer> indices = new HashMap<>();
+		indices.put(automaton.getInitialState(), 0);
+		for(DuzztState s : automaton.getNonInitialStates()) {
+			indices.put(s, indices.size());
+		}
+		return indices;
+	}
+	
+	private final int numStates;
+	private final List<String> actionSignatures;
+	private final List<Integer> terminators;
+	private final List<String> encodedTransitions;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param automaton the automaton
+	 * @param sortedActions all actions of the DSL, sorted by {@link DuzztAction.ActionComparator}
+	 */
+	public TransitionTable(DuzztAutomaton automaton, List<DuzztAction> sortedActions) {
+		Map<DuzztAction,Integer> actionIds = new HashMap<>();
+		List<String> signatures = new ArrayList<>(sortedActions.size());
+		for(DuzztAction a : sortedActions) {
+			actionIds.put(a, actionIds.size());
+			signatures.add(signature(a));
+		}
+		boolean[] terminating = new boolean[sortedActions.size()];
+		
+		Map<DuzztState,Integer> stateIndices = indexStates(automaton);
+		this.numStates = stateIndices.size();
+		
+		char[] data = new char[numStates];
+		int pos = 0;
+		List<DuzztState> states = new ArrayList<>(numStates);
+		states.add(automaton.getInitialState());
+		states.addAll(automaton.getNonInitialStates());
+		for(DuzztState s : states) {
+			Collection<DuzztTransition> transitions = s.getTransitions();
+			data = ensureCapacity(data, pos + 1 + 2 * transitions.size());
+			data[pos++] = (char) transitions.size();
+			for(DuzztTransition t : transitions) {
+				DuzztState succ = t.getSuccessor();
+				int actionId = actionIds.get(t.getAction());
+				data[pos++] = (char) actionId;
+				if(succ == null) {
+					terminating[actionId] = true;
+					data[pos++] = (char) numStates;
+				}
+				else {
+					data[pos++] = (char) stateIndices.get(succ).intValue();
+				}
+			}
+		}
+		List<Integer> terms = new ArrayList<>();
+		for(int i = 0; i < terminating.length; i++) {
+			if(terminating[i]) {
+				terms.add(i);
+			}
+		}
+		List<String> encoded = new ArrayList<>();
+		for(int start = 0; start < pos; start += CHUNK_SIZE) {
+			encoded.add(escape(data, start, Math.min(pos, start + CHUNK_SIZE)));
+		}
+		
+		this.actionSignatures = Collections.unmodifiableList(signatures);
+		this.terminators = Collections.unmodifiableList(terms);
+		this.encodedTransitions = Collections.unmodifiableList(encoded);
+	}
+	
+	/**
+	 * Retrieves the number of states, excluding the additional state reached via
+	 * terminating transitions.
+	 * @return the number of states
+	 */
+	public int getNumStates() {
+		return numStates;
+	}
+	
+	public int getNumActions() {
+		return actionSignatures.size();
+	}
+	
+	/**
+	 * Retrieves the signatures of all actions, in the order of their IDs. A signature consists
+	 * of the name of the action, followed by the comma-separated parameter types (as declared)
+	 * in parentheses, e.g., {@code add(int)}.
+	 * @return the action signatures
+	 */
+	public List<String> getActionSignatures() {
+		return actionSignatures;
+	}
+	
+	/**
+	 * Retrieves the IDs of all terminating actions, i.e., of all actions that end the call chain
+	 * in at least one state. This includes actions that are not explicitly declared as terminators,
+	 * but conclude the syntax and have a non-void return type.
+	 * @return the IDs of the terminating actions
+	 */
+	public List<Integer> getTerminators() {
+		return terminators;
+	}
+	
+	/**
+	 * Retrieves the encoded transitions, split into chunks which can be written as
+	 * string literals. Non-printable and non-ASCII characters are already escaped.
+	 * @return the encoded transitions
+	 */
+	public List<String> getEncodedTransitions() {
+		return encodedTransitions;
+	}
+	
+	private static String signature(DuzztAction action) {
+		StringBuilder sb = new StringBuilder(action.getName());
+		sb.append('(');
+		boolean first = true;
+		for(ParameterInfo p : action.getParameters()) {
+			if(!first) {
+				sb.append(',');
+			}
+			first = false;
+			sb.append(p.getType());
+		}
+		sb.append(')');
+		return sb.toString();
+	}
+	
+	private static char[] ensureCapacity(char[] data, int capacity) {
+		if(capacity <= data.length) {
+			return data;
+		}
+		char[] result = new char[Math.max(capacity, 2 * data.length)];
+		System.arraycopy(data, 0, result, 0, data.length);
+		return result;
+	}
+	
+	private static String escape(char[] data, int start, int end) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = start; i < end; i++) {
+			char c = data[i];
+			if(c >= 0x20 && c < 0x7f && c != '"' && c != '\\') {
+				sb.append(c);
+			}
+			else if(c < 0x100) {
+				// Unicode escapes are translated before lexing, and must not produce line breaks or quotes
+				sb.append(String.format("\\%03o", (int) c));
+			}
+			else {
+				sb.append(String.format("\\u%04x", (int) c));
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.re;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Normalizing rewrite pass over Duzzt regular expressions. The following language-preserving
+ * rewrites are applied bottom-up:
+ * <ul>
+ * <li>nested concatenations and alternatives are flattened, e.g., {@code (a b) c} becomes
+ * {@code a b c};</li>
+ * <li>duplicate alternatives are removed, e.g., {@code a|b|a} becomes {@code a|b}, and
+ * alternatives with a single remaining child are replaced by this child;</li>
+ * <li>nested modifiers are folded, e.g., {@code (a*)?} becomes {@code a*} and
+ * {@code (a?)+} becomes {@code a*}, and modifiers that do not change the language of
+ * their subexpression are dropped;</li>
+ * <li>redundant non-empty constraints are dropped, e.g., {@code << << a >> >>} becomes
+ * {@code << a >>}, and {@code << a >>} becomes {@code a} if {@code a} does not accept the
+ * empty word.</li>
+ * </ul>
+ * Furthermore, identical subtrees are hash-consed, i.e., they are represented by the same
+ * object. This holds across all expressions simplified by the same simplifier instance.
+ * <p>
+ * The languages of subexpression references are unknown to the simplifier, hence they are
+ * treated conservatively.
+ */
+public final class DuzztRESimplifier {
+	
+	private static final class Key {
+		private final Class<?> type;
+		private final Object label;
+		private final List<DuzztRegExp> children;
+		
+		public Key(Class<?> type, Object label, List<DuzztRegExp> children) {
+			this.type = type;
+			this.label = label;
+			this.children = children;
+		}
+		
+		@Override
+		public int hashCode() {
+			int hc = type.hashCode();
+			hc = hc * 31 + ((label == null) ? 0 : label.hashCode());
+			for(DuzztRegExp child : children) {
+				hc = hc * 31 + System.identityHashCode(child);
+			}
+			return hc;
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof Key)) {
+				return false;
+			}
+			Key o = (Key)other;
+			if(type != o.type) {
+				return false;
+			}
+			if((label == null) ? o.label != null : !label.equals(o.label)) {
+				return false;
+			}
+			if(children.size() != o.children.size()) {
+				return false;
+			}
+			// children are canonical, hence identity comparison suffices
+			for(int i = 0; i < children.size(); i++) {
+				if(children.get(i) != o.children.get(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+	
+	private final class SimplifyVisitor implements DuzztREVisitor<DuzztRegExp, Void> {
+		@Override
+		public DuzztRegExp visit(DuzztREAlt re, Void data) {
+			// canonical instances without equals(), hence a (linked) hash set removes duplicates by identity
+			Set<DuzztRegExp> alternatives = new LinkedHashSet<>();
+			for(DuzztRegExp child : re.getChildren()) {
+				DuzztRegExp simplified = child.accept(this, null);
+				if(simplified instanceof DuzztREAlt) {
+					alternatives.addAll(((DuzztREAlt)simplified).getChildren());
+				}
+				else {
+					alternatives.add(simplified);
+				}
+			}
+			if(alternatives.size() == 1) {
+				return alternatives.iterator().next();
+			}
+			List<DuzztRegExp> children = new ArrayList<>(alternatives);
+			Key key = new Key(DuzztREAlt.class, null, children);
+			DuzztRegExp canonical = table.get(key);
+			if(canonical == null) {
+				canonical = new DuzztREAlt(children);
+				table.put(key, canonical);
+			}
+			return canonical;
+		}
+		@Override
+		public DuzztRegExp visit(DuzztREConcat re, Void data) {
+			List<DuzztRegExp> children = new ArrayList<>();
+			for(DuzztRegExp child : re.getChildren()) {
+				DuzztRegExp simplified = child.accept(this, null);
+				if(simplified instanceof DuzztREConcat) {
+					children.addAll(((DuzztREConcat)simplified).getChildren());
+				}
+				else {
+					children.add(simplified);
+				}
+			}
+			Key key = new Key(DuzztREConcat.class, null, children);
+			DuzztRegExp canonical = table.get(key);
+			if(canonical == null) {
+				canonical = new DuzztREConcat(children);
+				table.put(key, canonical);
+			}
+			return canonical;
+		}
+		@Override
+		public DuzztRegExp visit(DuzztREIdentifier re, Void data) {
+			Key key = new Key(DuzztREIdentifier.class, re.getName(), Collections.<DuzztRegExp>emptyList());
+			DuzztRegExp canonical = table.get(key);
+			if(canonical == null) {
+				canonical = re;
+				table.put(key, canonical);
+			}
+			return canonical;
+		}
+		@Override
+		public DuzztRegExp visit(DuzztREModifier re, Void data) {
+			DuzztRegExp sub = re.getSub().accept(this, null);
+			char modChar = re.getModChar();
+			boolean changed;
+			do {
+				changed = false;
+				if(sub instanceof DuzztREModifier) {
+					DuzztREModifier subMod = (DuzztREModifier)sub;
+					modChar = foldModifiers(modChar, subMod.getModChar());
+					sub = subMod.getSub();
+					changed = true;
+				}
+				if(sub instanceof DuzztRENonEmpty && modChar != '+') {
+					// (L \ {eps})* = L*, and (L \ {eps})? = L?
+					sub = ((DuzztRENonEmpty)sub).getSub();
+					changed = true;
+				}
+			} while(changed);
+			if(acceptsEmpty(sub) == Boolean.TRUE) {
+				if(modChar == '?') {
+					return sub;
+				}
+				modChar = '*';
+			}
+			return modifier(sub, modChar);
+		}
+		@Override
+		public DuzztRegExp visit(DuzztRESubexpr re, Void data) {
+			Key key = new Key(DuzztRESubexpr.class, re.getSubexprName(), Collections.<DuzztRegExp>emptyList());
+			DuzztRegExp canonical = table.get(key);
+			if(canonical == null) {
+				canonical = re;
+				table.put(key, canonical);
+			}
+			return canonical;
+		}
+		@Override
+		public DuzztRegExp visit(DuzztRENonEmpty re, Void data) {
+			DuzztRegExp sub = re.getSub().accept(this, null);
+			if(sub instanceof DuzztRENonEmpty) {
+				return sub;
+			}
+			if(acceptsEmpty(sub) == Boolean.FALSE) {
+				return sub;
+			}
+			if(sub instanceof DuzztREModifier) {
+				DuzztREModifier subMod = (DuzztREModifier)sub;
+				if(acceptsEmpty(subMod.getSub()) == Boolean.FALSE) {
+					switch(subMod.getModChar()) {
+					case '?':
+						return subMod.getSub();
+					case '*':
+						return modifier(subMod.getSub(), '+');
+					default:
+					}
+				}
+			}
+			Key key = new Key(DuzztRENonEmpty.class, null, Collections.singletonList(sub));
+			DuzztRegExp canonical = table.get(key);
+			if(canonical == null) {
+				canonical = new DuzztRENonEmpty(sub);
+				table.put(key, canonical);
+			}
+			return canonical;
+		}
+		@Override
+		public DuzztRegExp visit(DuzztREStart re, Void data) {
+			return re;
+		}
+		@Override
+		public DuzztRegExp visit(DuzztREEnd re, Void data) {
+			return re;
+		}
+		@Override
+		public DuzztRegExp visit(DuzztREInner re, Void data) {
+			return re;
+		}
+	}
+	
+	private static final DuzztREVisitor<Boolean, Void> acceptsEmptyVisitor
+		= new AbstractDuzztREVisitor<Boolean, Void>() {
+			@Override
+			public Boolean visit(DuzztREAlt re, Void data) {
+				Boolean result = Boolean.FALSE;
+				for(DuzztRegExp child : re.getChildren()) {
+					Boolean childResult = child.accept(this, null);
+					if(childResult == Boolean.TRUE) {
+						return Boolean.TRUE;
+					}
+					if(childResult == null) {
+						result = null;
+					}
+				}
+				return result;
+			}
+			@Override
+			public Boolean visit(DuzztREConcat re, Void data) {
+				Boolean result = Boolean.TRUE;
+				for(DuzztRegExp child : re.getChildren()) {
+					Boolean childResult = child.accept(this, null);
+					if(childResult == Boolean.FALSE) {
+						return Boolean.FALSE;
+					}
+					if(childResult == null) {
+						result = null;
+					}
+				}
+				return result;
+			}
+			@Override
+			public Boolean visit(DuzztREModifier re, Void data) {
+				if(re.getModChar() == '+') {
+					return re.getSub().accept(this, null);
+				}
+				return Boolean.TRUE;
+			}
+			@Override
+			public Boolean visit(DuzztRENonEmpty re, Void data) {
+				return Boolean.FALSE;
+			}
+			@Override
+			public Boolean visit(DuzztRESubexpr re, Void data) {
+				return null;
+			}
+			@Override
+			protected Boolean defaultVisit(DuzztRegExp re, Void data) {
+				// identifiers and special symbols
+				return Boolean.FALSE;
+			}
+	};
+	
+	/**
+	 * Checks whether the given expression accepts the empty word.
+	 * 
+	 * @param re the expression
+	 * @return {@link Boolean#TRUE} or {@link Boolean#FALSE} if the expression definitely
+	 * does or does not accept the empty word, respectively, or {@code null} if this depends
+	 * on referenced subexpressions
+	 */
+	public static Boolean acceptsEmpty(DuzztRegExp re) {
+		return re.accept(acceptsEmptyVisitor, null);
+	}
+	
+	private static char foldModifiers(char outer, char inner) {
+		if(outer == inner) {
+			return outer;
+		}
+		// all other combinations of '?', '*' and '+' are equivalent to '*'
+		return '*';
+	}
+	
+	private final Map<Key,DuzztRegExp> table = new HashMap<>();
+	private final SimplifyVisitor visitor = new SimplifyVisitor();
+	
+	/**
+	 * Simplifies the given expression.
+	 * 
+	 * @param re the expression to simplify
+	 * @return the simplified expression, accepting the same language as {@code re}
+	 */
+	public DuzztRegExp simplify(DuzztRegExp re) {
+		return re.accept(visitor, null);
+	}
+	
+	private DuzztRegExp modifier(DuzztRegExp sub, char modChar) {
+		Key key = new Key(DuzztREModifier.class, modChar, Collections.singletonList(sub));
+		DuzztRegExp canonical = table.get(key);
+		if(canonical == null) {
+			canonical = new DuzztREModifier(sub, modChar);
+			table.put(key, canonical);
+		}
+		return canonical;
+	}
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.directcompiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.github.misberner.duzzt.ActionModel;
+import com.github.misberner.duzzt.CompilerEngine;
+import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.automaton.DuzztAutomaton;
+import com.github.misberner.duzzt.automaton.DuzztState;
+import com.github.misberner.duzzt.automaton.DuzztTransition;
+import com.github.misberner.duzzt.model.SubExpression;
+import com.github.misberner.duzzt.re.DuzztRESimplifier;
+import com.github.misberner.duzzt.re.DuzztRegExp;
+import com.github.misberner.duzzt.re.parser.DuzztRegExpParser;
+
+/**
+ * Checks that the {@link DirectCompiler} and the brics-based compiler accept the same
+ * languages, and that simplifying the regular expressions does not change the language.
+ */
+public class CompilerEquivalenceTest {
+
+	private static final class TestActionModel implements ActionModel {
+		private final Map<String,List<DuzztAction>> actionLists = new LinkedHashMap<>();
+		private final List<DuzztAction> allActions = new ArrayList<>();
+
+		public TestActionModel add(String name, boolean global, boolean terminator) {
+			DuzztAction action = new DuzztAction(name, global, terminator);
+			List<DuzztAction> list = actionLists.get(name);
+			if(list == null) {
+				list = new ArrayList<>();
+				actionLists.put(name, list);
+			}
+			list.add(action);
+			allActions.add(action);
+			return this;
+		}
+
+		public TestActionModel add(String... names) {
+			for(String name : names) {
+				add(name, false, false);
+			}
+			return this;
+		}
+
+		@Override
+		public Set<? extends Map.Entry<String,List<DuzztAction>>> getActionLists() {
+			return Collections.unmodifiableSet(actionLists.entrySet());
+		}
+
+		@Override
+		public List<DuzztAction> getAllActions() {
+			return Collections.unmodifiableList(allActions);
+		}
+	}
+
+	@Test
+	public void testDateAdder() {
+		TestActionModel impl = new TestActionModel()
+				.add("add", "and", "days", "hours", "minutes", "seconds")
+				.add("to", false, true);
+		checkEquivalence(impl,
+				"(<add> days)? (<add> hours)? (<add> minutes)? (<add> seconds)? to",
+				"add", "^add|/and");
+	}
+
+	@Test
+	public void testScopesAndNonEmpty() {
+		TestActionModel impl = new TestActionModel()
+				.add("open", "close", "a", "b", "sep", "item")
+				.add("reset", true, false)
+				.add("done", false, true)
+				.add("abort", true, true);
+		checkEquivalence(impl,
+				"(a|b)* <<a? b*>> <list>+ (<block> | <<sep item?>>)* done",
+				"list", "^item|/sep item|!sep",
+				"block", "open (a <<b*>>)? close");
+	}
+
+	@Test
+	public void testRedundantExpressions() {
+		TestActionModel impl = new TestActionModel()
+				.add("a", "b", "c", "d")
+				.add("done", false, true);
+		checkEquivalence(impl,
+				"((a?)?)* (b|b|(c|b))+ ((d)) (<x>|<x>)? (((a)*)+)? done",
+				"x", "(((c)))*|c+|c?");
+	}
+
+	private static void checkEquivalence(ActionModel impl, String syntax, String... subExprDefs) {
+		DuzztRESimplifier simplifier = new DuzztRESimplifier();
+
+		DuzztRegExp rawSyntax = DuzztRegExpParser.parse(syntax);
+		Map<String,SubExpression> rawSubExprs = new HashMap<>();
+		Map<String,SubExpression> simplifiedSubExprs = new HashMap<>();
+		for(int i = 0; i < subExprDefs.length; i += 2) {
+			String name = subExprDefs[i];
+			rawSubExprs.put(name,
+					new SubExpression(name, DuzztRegExpParser.parse(subExprDefs[i + 1]), true));
+			simplifiedSubExprs.put(name,
+					new SubExpression(name, subExprDefs[i + 1], true, simplifier));
+		}
+		DuzztRegExp simplifiedSyntax = simplifier.simplify(DuzztRegExpParser.parse(syntax));
+
+		DuzztAutomaton reference = CompilerEngine.DIRECT.createCompiler(impl)
+				.compile(simplifiedSyntax, simplifiedSubExprs);
+
+		assertEquivalent(reference, CompilerEngine.BRICS.createCompiler(impl)
+				.compile(simplifiedSyntax, simplifiedSubExprs));
+		assertEquivalent(reference, CompilerEngine.DIRECT.createCompiler(impl)
+				.compile(rawSyntax, rawSubExprs));
+		assertEquivalent(reference, CompilerEngine.BRICS.createCompiler(impl)
+				.compile(rawSyntax, rawSubExprs));
+	}
+
+	/**
+	 * Asserts that two automata over the same actions are language-equivalent, by exploring
+	 * their product. Terminating transitions (without a successor) must coincide.
+	 */
+	private static void assertEquivalent(DuzztAutomaton expected, DuzztAutomaton actual) {
+		assertEquals(expected.getAllActions(), actual.getAllActions());
+
+		Set<List<DuzztState>> visited = new HashSet<>();
+		Deque<List<DuzztState>> queue = new ArrayDeque<>();
+		List<DuzztState> init = Arrays.asList(expected.getInitialState(), actual.getInitialState());
+		visited.add(init);
+		queue.add(init);
+
+		while(!queue.isEmpty()) {
+			List<DuzztState> pair = queue.poll();
+			DuzztState s1 = pair.get(0), s2 = pair.get(1);
+			for(DuzztAction action : expected.getAllActions()) {
+				DuzztTransition t1 = s1.getTransition(action);
+				DuzztTransition t2 = s2.getTransition(action);
+				if(t1 == null) {
+					assertNull("Unexpected transition for " + action.getName(), t2);
+					continue;
+				}
+				assertNotNull("Missing transition for " + action.getName(), t2);
+				DuzztState succ1 = t1.getSuccessor(), succ2 = t2.getSuccessor();
+				if(succ1 == null) {
+					assertNull("Non-terminating transition for " + action.getName(), succ2);
+					continue;
+				}
+				assertNotNull("Terminating transition for " + action.getName(), succ2);
+				List<DuzztState> succPair = Arrays.asList(succ1, succ2);
+				if(visited.add(succPair)) {
+					queue.add(succPair);
+				}
+			}
+		}
+	}
+}
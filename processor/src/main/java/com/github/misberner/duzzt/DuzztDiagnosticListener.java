@@ -69,6 +69,16 @@ public interface DuzztDiagnosticListener {
 	 */
 	void unusedSubExpression(String subExprName);
 	
+	/**
+	 * Called if compilation was aborted because an automaton exceeded the maximum
+	 * number of states.
+	 * 
+	 * @param maxStates the maximum number of states
+	 * @param exprName the name of the named subexpression whose automaton exceeded the limit,
+	 * or <tt>null</tt> if the limit was exceeded while compiling the main expression.
+	 */
+	void stateLimitExceeded(int maxStates, String exprName);
+	
 	
 	/**
 	 * Called when a generic information message is emitted.
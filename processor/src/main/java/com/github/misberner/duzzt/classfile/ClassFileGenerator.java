@@ -0,0 +1,1129 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.classfile;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+
+import com.github.misberner.apcommons.util.AFModifier;
+import com.github.misberner.apcommons.util.Visibility;
+import com.github.misberner.apcommons.util.methods.ParameterInfo;
+import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.annotations.StateClassStyle;
+import com.github.misberner.duzzt.annotations.StateInit;
+import com.github.misberner.duzzt.automaton.DuzztAutomaton;
+import com.github.misberner.duzzt.automaton.DuzztState;
+import com.github.misberner.duzzt.automaton.DuzztTransition;
+import com.github.misberner.duzzt.exceptions.ClassFileLimitExceededException;
+import com.github.misberner.duzzt.model.BulkBinding;
+import com.github.misberner.duzzt.model.DSLSpecification;
+import com.github.misberner.duzzt.model.FixedArityOverload;
+import com.github.misberner.duzzt.model.ForwardConstructor;
+import com.github.misberner.duzzt.model.ImplementationModel;
+import com.github.misberner.duzzt.model.SharedStateBases;
+
+/**
+ * Generates the class files of an EDSL directly, as an alternative to rendering its
+ * source code. The generated classes have the same API as those compiled from the
+ * generated source code, except that parameter names are not retained, and that
+ * the private members of the EDSL class which are accessed by its state classes are
+ * package-private and synthetic instead (such that they cannot be referenced from source
+ * code either). If enabled, the common transitions of all states are declared in a common
+ * base class, and states exposing the same methods share a generic base class, as in the
+ * generated source code, see {@link SharedStateBases}.
+ * <p>
+ * Only the default {@link StateClassStyle#INNER_CLASSES} state style is supported, and
+ * neither generic implementation classes or actions, nor reusable, recording, or
+ * transition table EDSLs. Whether an EDSL can be generated as class files has to be checked
+ * beforehand via {@link #supports(DSLSpecification)}; otherwise, and if a generated class
+ * exceeds the limits of the class file format, the source code has to be generated instead.
+ */
+public final class ClassFileGenerator {
+	
+	private static final String OBJECT = "java/lang/Object";
+	private static final String CTOR = "<init>";
+	private static final String IMPL_FIELD = "__duzzt_impl";
+	private static final String OUTER_FIELD = "this$0";
+	private static final String DSL_FIELD = "__duzzt_dsl";
+	private static final String SAFE_VARARGS = "Ljava/lang/SafeVarargs;";
+	private static final String SELF_TYPE_VAR = "__duzzt_Self";
+	// the successor slot of self-loops declared in the common base class, see addTransition
+	private static final int SELF_SLOT = -2;
+	private static final String SUCCESSOR_METHOD_DESC = "()L" + OBJECT + ";";
+	private static final int STATE_ACCESS = ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_FINAL;
+	private static final int BASE_ACCESS = ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_ABSTRACT;
+	
+	private final DSLSpecification spec;
+	private final DuzztAutomaton automaton;
+	private final ImplementationModel impl;
+	
+	private final String className;
+	private final String classDesc;
+	private final String implName;
+	private final String implDesc;
+	private final boolean implInterface;
+	private final boolean eagerStates;
+	private final boolean safeLazyStates;
+	private final boolean topLevelStates;
+	private final String outerField;
+	private final SharedStateBases sharedBases;
+	// the internal name of the common base class of all states, or null if there is none
+	private final String commonName;
+	
+	// nested types referenced by the generated classes, requiring InnerClasses entries
+	private final Set<TypeElement> nestedTypes = new LinkedHashSet<>();
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param spec the specification of the EDSL
+	 * @param automaton the compiled automaton of the EDSL
+	 * @param topLevelStates whether the state classes are top-level classes instead of inner
+	 * classes of the EDSL class, corresponding to split source code
+	 * @param sharedStateBases whether to generate the common and shared base classes of the
+	 * states, see {@link SharedStateBases}
+	 */
+	public ClassFileGenerator(DSLSpecification spec, DuzztAutomaton automaton, boolean topLevelStates,
+			boolean sharedStateBases) {
+		this.spec = spec;
+		this.automaton = automaton;
+		this.impl = spec.getImplementation();
+		this.className = spec.getQualifiedClassName().replace('.', '/');
+		this.classDesc = "L" + className + ";";
+		this.implName = internalName(impl.getType());
+		this.implDesc = "L" + implName + ";";
+		this.implInterface = impl.getType().getKind().isInterface();
+		this.eagerStates = (spec.getStateInit() == StateInit.EAGER);
+		this.safeLazyStates = (spec.getStateInit() == StateInit.LAZY_SAFE);
+		this.topLevelStates = topLevelStates;
+		this.outerField = topLevelStates ? DSL_FIELD : OUTER_FIELD;
+		this.sharedBases = new SharedStateBases(automaton, sharedStateBases);
+		this.commonName = sharedBases.getCommonTransitions().isEmpty() ? null : stateClassName(commonSimpleName());
+	}
+	
+	/**
+	 * Generates the class files of the EDSL class and all of its state classes.
+	 * 
+	 * @return the contents of the class files, keyed by the binary names of the classes
+	 * @throws IllegalArgumentException if the EDSL uses features that are not supported by
+	 * class file generation, see {@link #supports(DSLSpecification)}
+	 * @throws ClassFileLimitExceededException if a generated class exceeds the limits of the
+	 * class file format
+	 */
+	public Map<String,byte[]> generate() throws IllegalArgumentException, ClassFileLimitExceededException {
+		String unsupported = getUnsupportedFeature(spec);
+		if(unsupported != null) {
+			throw new IllegalArgumentException("Cannot generate class files for EDSL "
+					+ spec.getQualifiedClassName() + ": " + unsupported);
+		}
+		
+		ClassFileWriter cw = new ClassFileWriter(classAccess(), className, OBJECT);
+		List<ClassFileWriter> stateWriters = new ArrayList<>();
+		List<String> stateNames = new ArrayList<>();
+		
+		if(commonName != null) {
+			if(!topLevelStates) {
+				cw.addInnerClass(commonName, className, commonSimpleName(), BASE_ACCESS);
+			}
+			stateWriters.add(commonClass());
+			stateNames.add(commonName);
+		}
+		for(SharedStateBases.Base base : sharedBases.getBases()) {
+			String baseName = baseClassName(base);
+			if(!topLevelStates) {
+				cw.addInnerClass(baseName, className, baseSimpleName(base), BASE_ACCESS);
+			}
+			stateWriters.add(baseClass(base));
+			stateNames.add(baseName);
+		}
+		
+		for(DuzztState state : automaton.getNonInitialStates()) {
+			String stateName = stateClassName(state);
+			if(!topLevelStates) {
+				cw.addInnerClass(stateName, className, stateSimpleName(state), STATE_ACCESS);
+			}
+			
+			int fieldAccess = ClassFileWriter.ACC_SYNTHETIC;
+			if(eagerStates) {
+				fieldAccess |= ClassFileWriter.ACC_FINAL;
+			}
+			else if(safeLazyStates) {
+				fieldAccess |= ClassFileWriter.ACC_VOLATILE;
+			}
+			cw.addField(fieldAccess, stateFieldName(state), stateDesc(state), null);
+			if(!eagerStates) {
+				addStateAccessor(cw, state);
+			}
+			
+			SharedStateBases.Binding binding = sharedBases.getBindings().get(state);
+			stateWriters.add((binding != null) ? sharedStateClass(state, binding) : stateClass(state));
+			stateNames.add(stateName);
+		}
+		
+		cw.addField(ClassFileWriter.ACC_FINAL | ClassFileWriter.ACC_SYNTHETIC, IMPL_FIELD, implDesc, null);
+		for(ForwardConstructor fc : spec.getForwardConstructors()) {
+			addForwardConstructor(cw, fc);
+		}
+		addDelegateConstructor(cw);
+		for(DuzztTransition t : automaton.getInitialState().getTransitions()) {
+			addTransition(cw, className, t, -1);
+		}
+		
+		Map<String,byte[]> result = new LinkedHashMap<>();
+		result.put(binaryName(className), finish(cw));
+		for(int i = 0; i < stateWriters.size(); i++) {
+			result.put(binaryName(stateNames.get(i)), finish(stateWriters.get(i)));
+		}
+		return result;
+	}
+	
+	private ClassFileWriter commonClass() {
+		ClassFileWriter cw = newStateClassWriter(BASE_ACCESS, commonName, commonSimpleName(), OBJECT);
+		String selfSig = "T" + SELF_TYPE_VAR + ";";
+		cw.setSignature("<" + SELF_TYPE_VAR + ":" + commonSignature(selfSig) + ">L" + OBJECT + ";");
+		addDslField(cw, 0);
+		addStateConstructor(cw, commonName, OBJECT, false);
+		for(DuzztTransition t : sharedBases.getCommonTransitions()) {
+			addTransition(cw, commonName, t, SELF_SLOT);
+		}
+		return cw;
+	}
+	
+	private ClassFileWriter stateClass(DuzztState state) {
+		String stateName = stateClassName(state);
+		ClassFileWriter sw = newStateClassWriter(STATE_ACCESS, stateName, stateSimpleName(state), stateSuperName());
+		if(commonName != null) {
+			addCommonInnerClass(sw);
+			sw.setSignature(commonSignature(stateDesc(state)));
+		}
+		else {
+			addDslField(sw, topLevelStates ? ClassFileWriter.ACC_PRIVATE : 0);
+		}
+		addStateConstructor(sw, stateName, stateSuperName(), commonName != null);
+		for(DuzztTransition t : sharedBases.getOwnTransitions().get(state)) {
+			addTransition(sw, stateName, t, -1);
+		}
+		return sw;
+	}
+	
+	private ClassFileWriter baseClass(SharedStateBases.Base base) {
+		String baseName = baseClassName(base);
+		ClassFileWriter bw = newStateClassWriter(BASE_ACCESS, baseName, baseSimpleName(base), stateSuperName());
+		List<SharedStateBases.SharedTransition> slots = base.getSlots();
+		StringBuilder sig = new StringBuilder("<");
+		for(SharedStateBases.SharedTransition st : slots) {
+			sig.append(successorTypeVar(st.getSlot())).append(":L").append(OBJECT).append(';');
+		}
+		if(commonName != null) {
+			addCommonInnerClass(bw);
+			String selfSig = "T" + SELF_TYPE_VAR + ";";
+			sig.append(SELF_TYPE_VAR).append(':').append(commonSignature(selfSig));
+			bw.setSignature(sig.append('>').append(commonSignature(selfSig)).toString());
+		}
+		else {
+			if(!slots.isEmpty()) {
+				bw.setSignature(sig.append(">L").append(OBJECT).append(';').toString());
+			}
+			addDslField(bw, 0);
+		}
+		addStateConstructor(bw, baseName, stateSuperName(), commonName != null);
+		for(SharedStateBases.SharedTransition st : base.getTransitions()) {
+			addTransition(bw, baseName, st.getTransition(), st.getSlot());
+		}
+		for(SharedStateBases.SharedTransition st : slots) {
+			ClassFileWriter.MethodWriter mw = bw.addMethod(ClassFileWriter.ACC_ABSTRACT,
+					successorMethodName(st.getSlot()), SUCCESSOR_METHOD_DESC);
+			mw.setSignature("()T" + successorTypeVar(st.getSlot()) + ";");
+		}
+		return bw;
+	}
+	
+	private ClassFileWriter sharedStateClass(DuzztState state, SharedStateBases.Binding binding) {
+		String stateName = stateClassName(state);
+		String baseName = baseClassName(binding.getBase());
+		ClassFileWriter sw = newStateClassWriter(STATE_ACCESS, stateName, stateSimpleName(state), baseName);
+		List<DuzztState> successors = binding.getSuccessors();
+		if(!topLevelStates) {
+			sw.addInnerClass(baseName, className, baseSimpleName(binding.getBase()), BASE_ACCESS);
+		}
+		if(!successors.isEmpty() || commonName != null) {
+			StringBuilder sig = new StringBuilder("L").append(baseName).append('<');
+			for(DuzztState succ : successors) {
+				sig.append(stateDesc(succ));
+			}
+			if(commonName != null) {
+				sig.append(stateDesc(state));
+			}
+			sw.setSignature(sig.append(">;").toString());
+		}
+		addStateConstructor(sw, stateName, baseName, true);
+		for(int i = 0; i < successors.size(); i++) {
+			CodeBuilder code = sw.addMethod(0, successorMethodName(i), SUCCESSOR_METHOD_DESC).code();
+			returnState(code, baseName, successors.get(i));
+		}
+		return sw;
+	}
+	
+	/**
+	 * The superclass of state classes and shared base classes, i.e., the common base class
+	 * if there is one.
+	 */
+	private String stateSuperName() {
+		return (commonName != null) ? commonName : OBJECT;
+	}
+	
+	private String commonSignature(String selfSig) {
+		return "L" + commonName + "<" + selfSig + ">;";
+	}
+	
+	private void addCommonInnerClass(ClassFileWriter sw) {
+		if(!topLevelStates) {
+			sw.addInnerClass(commonName, className, commonSimpleName(), BASE_ACCESS);
+		}
+	}
+	
+	/**
+	 * Creates the writer for a state class or a shared base class, given its access flags as
+	 * an inner class of the EDSL class.
+	 */
+	private ClassFileWriter newStateClassWriter(int access, String name, String simpleName, String superName) {
+		if(topLevelStates) {
+			int topLevelAccess = (access & ~ClassFileWriter.ACC_PUBLIC) | ClassFileWriter.ACC_SUPER;
+			if(spec.isClassPublic()) {
+				topLevelAccess |= ClassFileWriter.ACC_PUBLIC;
+			}
+			return new ClassFileWriter(topLevelAccess, name, superName);
+		}
+		ClassFileWriter sw = new ClassFileWriter(access | ClassFileWriter.ACC_SUPER, name, superName);
+		sw.addInnerClass(name, className, simpleName, access);
+		return sw;
+	}
+	
+	private void addDslField(ClassFileWriter sw, int topLevelAccess) {
+		int access = topLevelStates ? topLevelAccess : ClassFileWriter.ACC_SYNTHETIC;
+		sw.addField(access | ClassFileWriter.ACC_FINAL, outerField, classDesc, null);
+	}
+	
+	/**
+	 * Adds the constructor of a state class, which either stores the reference to the DSL
+	 * object itself, or passes it on to its shared base class.
+	 */
+	private void addStateConstructor(ClassFileWriter sw, String name, String superName, boolean inheritsDsl) {
+		int access = topLevelStates ? 0 : ClassFileWriter.ACC_PUBLIC;
+		CodeBuilder code = sw.addMethod(access, CTOR, "(" + classDesc + ")V").code();
+		code.aload(0);
+		code.aload(1);
+		if(inheritsDsl) {
+			code.invokeSpecial(superName, CTOR, "(" + classDesc + ")V");
+		}
+		else {
+			code.putField(name, outerField, classDesc);
+			code.aload(0);
+			code.invokeSpecial(superName, CTOR, "()V");
+		}
+		code.xreturn("V");
+	}
+	
+	/**
+	 * Checks whether the class files of an EDSL can be generated.
+	 * 
+	 * @param spec the specification of the EDSL
+	 * @return {@code true} if class file generation supports the EDSL, {@code false} if its
+	 * source code has to be generated instead
+	 */
+	public static boolean supports(DSLSpecification spec) {
+		return getUnsupportedFeature(spec) == null;
+	}
+	
+	/**
+	 * Determines a feature of an EDSL that is not supported by class file generation.
+	 * 
+	 * @param spec the specification of the EDSL
+	 * @return a description of the unsupported feature, or {@code null} if class file
+	 * generation supports the EDSL
+	 */
+	public static String getUnsupportedFeature(DSLSpecification spec) {
+		if(spec.getStateStyle() != StateClassStyle.INNER_CLASSES) {
+			return "the " + spec.getStateStyle() + " state style is not supported";
+		}
+		if(spec.isReusable() || spec.isRecording() || spec.isTransitionTable()) {
+			return "reusable, recording, and transition table EDSLs are not supported";
+		}
+		ImplementationModel impl = spec.getImplementation();
+		if(!impl.getTypeParameters().isEmpty()) {
+			return "generic implementation classes are not supported";
+		}
+		for(DuzztAction action : impl.getAllActions()) {
+			if(!action.getTypeParameters().isEmpty()) {
+				return "generic action methods are not supported";
+			}
+			String unsupported = getUnsupportedType(action.getParameters(), action.getReturnType(),
+					action.getThrownTypes());
+			if(unsupported != null) {
+				return unsupported;
+			}
+		}
+		for(BulkBinding bulk : impl.getBulkBindings().values()) {
+			if(!bulk.getTypeParameters().isEmpty()) {
+				return "generic bulk methods are not supported";
+			}
+			String unsupported = getUnsupportedType(bulk.getParameters(), bulk.getMethod().getReturnType(),
+					bulk.getThrownTypes());
+			if(unsupported != null) {
+				return unsupported;
+			}
+		}
+		for(ForwardConstructor fc : spec.getForwardConstructors()) {
+			if(!fc.getTypeParameters().isEmpty()) {
+				return "generic constructors are not supported";
+			}
+			String unsupported = getUnsupportedType(fc.getParameters(), null, fc.getThrownTypes());
+			if(unsupported != null) {
+				return unsupported;
+			}
+		}
+		return null;
+	}
+	
+	private static String getUnsupportedType(List<? extends ParameterInfo> params, TypeMirror returnType,
+			List<? extends TypeMirror> thrownTypes) {
+		for(ParameterInfo param : params) {
+			if(!isSupportedType(param.getType())) {
+				return "parameter type " + param.getType() + " is not supported";
+			}
+		}
+		if(returnType != null && !isSupportedType(returnType)) {
+			return "return type " + returnType + " is not supported";
+		}
+		for(TypeMirror thrown : thrownTypes) {
+			if(thrown.getKind() != TypeKind.DECLARED) {
+				return "thrown type " + thrown + " is not supported";
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Checks whether a type can be represented by {@link #descriptor(TypeMirror)} and
+	 * {@link #signature(TypeMirror)}, i.e., does not contain type variables or erroneous types.
+	 */
+	private static boolean isSupportedType(TypeMirror type) {
+		switch(type.getKind()) {
+		case ARRAY:
+			return isSupportedType(((ArrayType) type).getComponentType());
+		case DECLARED:
+			DeclaredType declType = (DeclaredType) type;
+			TypeMirror enclosing = declType.getEnclosingType();
+			if(enclosing.getKind() == TypeKind.DECLARED && !isSupportedType(enclosing)) {
+				return false;
+			}
+			for(TypeMirror arg : declType.getTypeArguments()) {
+				if(arg.getKind() != TypeKind.WILDCARD) {
+					if(!isSupportedType(arg)) {
+						return false;
+					}
+					continue;
+				}
+				WildcardType wildcard = (WildcardType) arg;
+				if(wildcard.getExtendsBound() != null && !isSupportedType(wildcard.getExtendsBound())) {
+					return false;
+				}
+				if(wildcard.getSuperBound() != null && !isSupportedType(wildcard.getSuperBound())) {
+					return false;
+				}
+			}
+			return true;
+		default:
+			return type.getKind().isPrimitive() || type.getKind() == TypeKind.VOID;
+		}
+	}
+	
+	private byte[] finish(ClassFileWriter cw) throws ClassFileLimitExceededException {
+		for(TypeElement nested : nestedTypes) {
+			TypeElement outer = (TypeElement) nested.getEnclosingElement();
+			cw.addInnerClass(internalName(nested), internalName(outer), nested.getSimpleName().toString(),
+					innerClassAccess(nested));
+		}
+		return cw.toByteArray();
+	}
+	
+	private int classAccess() {
+		int access = ClassFileWriter.ACC_SUPER;
+		if(spec.isClassPublic()) {
+			access |= ClassFileWriter.ACC_PUBLIC;
+		}
+		if(spec.getModifier() == AFModifier.ABSTRACT) {
+			access |= ClassFileWriter.ACC_ABSTRACT;
+		}
+		else if(spec.getModifier() == AFModifier.FINAL) {
+			access |= ClassFileWriter.ACC_FINAL;
+		}
+		return access;
+	}
+	
+	private static int access(Visibility visibility) {
+		switch(visibility) {
+		case PUBLIC:
+			return ClassFileWriter.ACC_PUBLIC;
+		case PROTECTED:
+			return ClassFileWriter.ACC_PROTECTED;
+		case PRIVATE:
+			return ClassFileWriter.ACC_PRIVATE;
+		default:
+			return 0;
+		}
+	}
+	
+	
+	// State classes
+	
+	private String stateSimpleName(DuzztState state) {
+		return spec.getClassName() + "__" + state.getId();
+	}
+	
+	private String stateClassName(DuzztState state) {
+		return stateClassName(stateSimpleName(state));
+	}
+	
+	private String stateClassName(String simpleName) {
+		if(topLevelStates) {
+			int pkgEnd = className.lastIndexOf('/');
+			return className.substring(0, pkgEnd + 1) + simpleName;
+		}
+		return className + "$" + simpleName;
+	}
+	
+	private String commonSimpleName() {
+		return spec.getClassName() + "__State";
+	}
+	
+	private String baseSimpleName(SharedStateBases.Base base) {
+		return spec.getClassName() + "__Base" + base.getId();
+	}
+	
+	private String baseClassName(SharedStateBases.Base base) {
+		return stateClassName(baseSimpleName(base));
+	}
+	
+	private static String successorTypeVar(int slot) {
+		return "__duzzt_S" + slot;
+	}
+	
+	private static String successorMethodName(int slot) {
+		return "__duzzt_successor" + slot;
+	}
+	
+	private String stateDesc(DuzztState state) {
+		return state.isInitial() ? classDesc : "L" + stateClassName(state) + ";";
+	}
+	
+	private static String stateFieldName(DuzztState state) {
+		return "__duzzt_state" + state.getId();
+	}
+	
+	private static String stateAccessorName(DuzztState state) {
+		return "__duzzt_getState" + state.getId();
+	}
+	
+	private void newState(CodeBuilder code, DuzztState state) {
+		String stateName = stateClassName(state);
+		code.anew(stateName);
+		code.dup();
+		code.aload(0);
+		code.invokeSpecial(stateName, CTOR, "(" + classDesc + ")V");
+	}
+	
+	private void addStateAccessor(ClassFileWriter cw, DuzztState state) {
+		String desc = stateDesc(state);
+		String field = stateFieldName(state);
+		CodeBuilder code = cw.addMethod(ClassFileWriter.ACC_FINAL | ClassFileWriter.ACC_SYNTHETIC,
+				stateAccessorName(state), "()" + desc).code();
+		int done = code.newLabel();
+		if(safeLazyStates) {
+			int local = code.newLocal(desc);
+			code.aload(0);
+			code.getField(className, field, desc);
+			code.astore(local);
+			code.aload(local);
+			code.ifNonNull(done);
+			newState(code, state);
+			code.astore(local);
+			code.aload(0);
+			code.aload(local);
+			code.putField(className, field, desc);
+			code.mark(done);
+			code.aload(local);
+			code.xreturn(desc);
+		}
+		else {
+			code.aload(0);
+			code.getField(className, field, desc);
+			code.ifNonNull(done);
+			code.aload(0);
+			newState(code, state);
+			code.putField(className, field, desc);
+			code.mark(done);
+			code.aload(0);
+			code.getField(className, field, desc);
+			code.xreturn(desc);
+		}
+	}
+	
+	private void initEagerStates(CodeBuilder code) {
+		if(!eagerStates) {
+			return;
+		}
+		for(DuzztState state : automaton.getNonInitialStates()) {
+			code.aload(0);
+			newState(code, state);
+			code.putField(className, stateFieldName(state), stateDesc(state));
+		}
+	}
+	
+	
+	// Constructors
+	
+	private void addForwardConstructor(ClassFileWriter cw, ForwardConstructor fc) {
+		List<? extends ParameterInfo> params = fc.getParameters();
+		int access = access(fc.getVisibility());
+		if(isVarArgs(params)) {
+			access |= ClassFileWriter.ACC_VARARGS;
+		}
+		String desc = methodDescriptor(params, "V");
+		ClassFileWriter.MethodWriter mw = cw.addMethod(access, CTOR, desc);
+		mw.setSignature(methodSignature(params, "V", desc));
+		addExceptions(mw, fc.getThrownTypes());
+		
+		CodeBuilder code = mw.code();
+		code.aload(0);
+		code.invokeSpecial(OBJECT, CTOR, "()V");
+		initEagerStates(code);
+		code.aload(0);
+		code.anew(implName);
+		code.dup();
+		loadParameters(code, 1, params, params.size());
+		code.invokeSpecial(implName, CTOR, desc);
+		code.putField(className, IMPL_FIELD, implDesc);
+		code.xreturn("V");
+	}
+	
+	private void addDelegateConstructor(ClassFileWriter cw) {
+		CodeBuilder code = cw.addMethod(access(spec.getDelegateConstructorVisibility()), CTOR,
+				"(" + implDesc + ")V").code();
+		code.aload(0);
+		code.invokeSpecial(OBJECT, CTOR, "()V");
+		initEagerStates(code);
+		code.aload(0);
+		code.aload(1);
+		code.putField(className, IMPL_FIELD, implDesc);
+		code.xreturn("V");
+	}
+	
+	
+	// Transitions
+	
+	/**
+	 * Adds the methods for a transition. The {@code slot} is the index of the type parameter
+	 * representing the successor of the transition if it is declared in a shared base class,
+	 * {@link #SELF_SLOT} if it is a self-loop declared in the common base class, or {@code -1}
+	 * if the successor state is returned directly.
+	 */
+	private void addTransition(ClassFileWriter cw, String owner, DuzztTransition t, int slot) {
+		DuzztAction action = t.getAction();
+		List<ParameterInfo> params = action.getParameters();
+		DuzztState succ = t.getSuccessor();
+		
+		if(succ == null) {
+			String retDesc = descriptor(action.getReturnType());
+			ClassFileWriter.MethodWriter mw = newMethod(cw, ClassFileWriter.ACC_PUBLIC, action.getName(),
+					params, retDesc, signature(action.getReturnType()), action.getThrownTypes());
+			CodeBuilder code = mw.code();
+			loadImpl(code, owner);
+			loadParameters(code, 1, params, params.size());
+			invokeImpl(code, action.getMethod());
+			code.xreturn(retDesc);
+			return;
+		}
+		
+		int access = ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_FINAL;
+		ClassFileWriter.MethodWriter mw = newMethod(cw, access, action.getName(), params, successorDesc(t, slot),
+				successorSignature(t, slot), action.getThrownTypes());
+		if(action.getHasVarArgsParams()) {
+			mw.addAnnotation(SAFE_VARARGS);
+		}
+		CodeBuilder code = mw.code();
+		callImpl(code, owner, action.getMethod(), params, 1, params.size());
+		returnSuccessor(code, owner, t, slot);
+		
+		if(t.isVarArgsApplicable()) {
+			addVarArgsTransition(cw, owner, t, slot);
+			List<FixedArityOverload> overloads = impl.getFixedArityOverloads().get(action);
+			if(overloads != null) {
+				for(FixedArityOverload overload : overloads) {
+					addFixedArityTransition(cw, owner, t, slot, overload.getExtraParameterNames().size());
+				}
+			}
+		}
+		if(t.isRepeatable()) {
+			BulkBinding bulk = impl.getBulkBindings().get(action);
+			if(bulk != null) {
+				addBulkTransitions(cw, owner, t, slot, bulk);
+			}
+		}
+	}
+	
+	private void addVarArgsTransition(ClassFileWriter cw, String owner, DuzztTransition t, int slot) {
+		DuzztAction action = t.getAction();
+		List<ParameterInfo> params = action.getParameters();
+		TypeMirror lastType = params.get(params.size() - 1).getType();
+		String lastDesc = descriptor(lastType);
+		String succDesc = successorDesc(t, slot);
+		String succSig = successorSignature(t, slot);
+		
+		String desc = "(" + parameterDescriptors(params) + "[" + lastDesc + ")" + succDesc;
+		String sig = "(" + parameterSignatures(params) + "[" + signature(lastType) + ")" + succSig;
+		ClassFileWriter.MethodWriter mw = cw.addMethod(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_FINAL
+				| ClassFileWriter.ACC_VARARGS, action.getName(), desc);
+		mw.setSignature(sig.equals(desc) ? null : sig);
+		addExceptions(mw, action.getThrownTypes());
+		mw.addAnnotation(SAFE_VARARGS);
+		
+		CodeBuilder code = mw.code();
+		callImpl(code, owner, action.getMethod(), params, 1, params.size());
+		
+		int arraySlot = 1 + parameterSlots(params, params.size());
+		int lengthSlot = code.newLocal("I");
+		int indexSlot = code.newLocal("I");
+		code.aload(arraySlot);
+		code.arrayLength();
+		code.istore(lengthSlot);
+		code.iconst0();
+		code.istore(indexSlot);
+		int loop = code.newLabel();
+		int end = code.newLabel();
+		code.mark(loop);
+		code.iload(indexSlot);
+		code.iload(lengthSlot);
+		code.ifICmpGe(end);
+		loadImpl(code, owner);
+		loadParameters(code, 1, params, params.size() - 1);
+		code.aload(arraySlot);
+		code.iload(indexSlot);
+		code.arrayLoad(lastDesc);
+		invokeImpl(code, action.getMethod());
+		code.pop(descriptor(action.getReturnType()));
+		code.iinc(indexSlot, 1);
+		code.goTo(loop);
+		code.mark(end);
+		returnSuccessor(code, owner, t, slot);
+	}
+	
+	private void addFixedArityTransition(ClassFileWriter cw, String owner, DuzztTransition t, int slot, int extra) {
+		DuzztAction action = t.getAction();
+		List<ParameterInfo> params = action.getParameters();
+		TypeMirror lastType = params.get(params.size() - 1).getType();
+		String lastDesc = descriptor(lastType);
+		String lastSig = signature(lastType);
+		String succDesc = successorDesc(t, slot);
+		String succSig = successorSignature(t, slot);
+		
+		StringBuilder desc = new StringBuilder("(").append(parameterDescriptors(params));
+		StringBuilder sig = new StringBuilder("(").append(parameterSignatures(params));
+		for(int i = 0; i < extra; i++) {
+			desc.append(lastDesc);
+			sig.append(lastSig);
+		}
+		desc.append(')').append(succDesc);
+		sig.append(')').append(succSig);
+		ClassFileWriter.MethodWriter mw = cw.addMethod(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_FINAL,
+				action.getName(), desc.toString());
+		mw.setSignature(sig.toString().equals(desc.toString()) ? null : sig.toString());
+		addExceptions(mw, action.getThrownTypes());
+		
+		CodeBuilder code = mw.code();
+		callImpl(code, owner, action.getMethod(), params, 1, params.size());
+		int paramSlot = 1 + parameterSlots(params, params.size());
+		for(int i = 0; i < extra; i++) {
+			loadImpl(code, owner);
+			loadParameters(code, 1, params, params.size() - 1);
+			code.load(lastDesc, paramSlot);
+			invokeImpl(code, action.getMethod());
+			code.pop(descriptor(action.getReturnType()));
+			paramSlot += CodeBuilder.slots(lastDesc);
+		}
+		returnSuccessor(code, owner, t, slot);
+	}
+	
+	private void addBulkTransitions(ClassFileWriter cw, String owner, DuzztTransition t, int slot, BulkBinding bulk) {
+		DuzztAction action = t.getAction();
+		List<ParameterInfo> bulkParams = bulk.getParameters();
+		ExecutableElement bulkMethod = bulk.getMethod();
+		String succDesc = successorDesc(t, slot);
+		String succSig = successorSignature(t, slot);
+		int access = ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_FINAL;
+		
+		ClassFileWriter.MethodWriter mw = cw.addMethod(access, action.getName(),
+				methodDescriptor(bulkParams, succDesc));
+		mw.setSignature(methodSignature(bulkParams, succSig, methodDescriptor(bulkParams, succDesc)));
+		addExceptions(mw, bulk.getThrownTypes());
+		CodeBuilder code = mw.code();
+		callImpl(code, owner, bulkMethod, bulkParams, 1, bulkParams.size());
+		returnSuccessor(code, owner, t, slot);
+		
+		if(!bulk.isArrayOverload()) {
+			return;
+		}
+		List<ParameterInfo> truncParams = bulkParams.subList(0, bulkParams.size() - 1);
+		List<ParameterInfo> actionParams = action.getParameters();
+		TypeMirror elemType = actionParams.get(actionParams.size() - 1).getType();
+		String desc = "(" + parameterDescriptors(truncParams) + "[" + descriptor(elemType) + ")" + succDesc;
+		String sig = "(" + parameterSignatures(truncParams) + "[" + signature(elemType) + ")" + succSig;
+		mw = cw.addMethod(access, action.getName(), desc);
+		mw.setSignature(sig.equals(desc) ? null : sig);
+		addExceptions(mw, bulk.getThrownTypes());
+		code = mw.code();
+		loadImpl(code, owner);
+		loadParameters(code, 1, truncParams, truncParams.size());
+		code.aload(1 + parameterSlots(truncParams, truncParams.size()));
+		code.invokeStatic("java/util/Arrays", "asList", "([Ljava/lang/Object;)Ljava/util/List;");
+		invokeImpl(code, bulkMethod);
+		code.pop(descriptor(bulkMethod.getReturnType()));
+		returnSuccessor(code, owner, t, slot);
+	}
+	
+	private ClassFileWriter.MethodWriter newMethod(ClassFileWriter cw, int access, String name,
+			List<? extends ParameterInfo> params, String retDesc, String retSig, List<? extends TypeMirror> thrownTypes) {
+		if(isVarArgs(params)) {
+			access |= ClassFileWriter.ACC_VARARGS;
+		}
+		String desc = methodDescriptor(params, retDesc);
+		ClassFileWriter.MethodWriter mw = cw.addMethod(access, name, desc);
+		mw.setSignature(methodSignature(params, retSig, desc));
+		addExceptions(mw, thrownTypes);
+		return mw;
+	}
+	
+	private void addExceptions(ClassFileWriter.MethodWriter mw, List<? extends TypeMirror> thrownTypes) {
+		for(TypeMirror thrown : thrownTypes) {
+			if(thrown.getKind() != TypeKind.DECLARED) {
+				throw new IllegalArgumentException("Thrown type " + thrown + " is not supported");
+			}
+			mw.addException(internalName((TypeElement) ((DeclaredType) thrown).asElement()));
+		}
+	}
+	
+	
+	// Code generation
+	
+	private void loadDsl(CodeBuilder code, String owner) {
+		code.aload(0);
+		if(!owner.equals(className)) {
+			code.getField(owner, outerField, classDesc);
+		}
+	}
+	
+	private void loadImpl(CodeBuilder code, String owner) {
+		loadDsl(code, owner);
+		code.getField(className, IMPL_FIELD, implDesc);
+	}
+	
+	/**
+	 * Calls a method of the implementation with the first {@code count} of the given
+	 * parameters, and discards its result.
+	 */
+	private void callImpl(CodeBuilder code, String owner, ExecutableElement method,
+			List<? extends ParameterInfo> params, int firstSlot, int count) {
+		loadImpl(code, owner);
+		loadParameters(code, firstSlot, params, count);
+		invokeImpl(code, method);
+		code.pop(descriptor(method.getReturnType()));
+	}
+	
+	private void invokeImpl(CodeBuilder code, ExecutableElement method) {
+		StringBuilder desc = new StringBuilder("(");
+		for(VariableElement param : method.getParameters()) {
+			desc.append(descriptor(param.asType()));
+		}
+		desc.append(')').append(descriptor(method.getReturnType()));
+		String name = method.getSimpleName().toString();
+		if(implInterface) {
+			code.invokeInterface(implName, name, desc.toString());
+		}
+		else {
+			code.invokeVirtual(implName, name, desc.toString());
+		}
+	}
+	
+	private void returnState(CodeBuilder code, String owner, DuzztState state) {
+		loadDsl(code, owner);
+		String desc = stateDesc(state);
+		if(!state.isInitial()) {
+			if(eagerStates) {
+				code.getField(className, stateFieldName(state), desc);
+			}
+			else {
+				code.invokeVirtual(className, stateAccessorName(state), "()" + desc);
+			}
+		}
+		code.xreturn(desc);
+	}
+	
+	private String successorDesc(DuzztTransition t, int slot) {
+		switch(slot) {
+		case -1:
+			return stateDesc(t.getSuccessor());
+		case SELF_SLOT:
+			return "L" + commonName + ";";
+		default:
+			return "L" + OBJECT + ";";
+		}
+	}
+	
+	private String successorSignature(DuzztTransition t, int slot) {
+		switch(slot) {
+		case -1:
+			return stateDesc(t.getSuccessor());
+		case SELF_SLOT:
+			return "T" + SELF_TYPE_VAR + ";";
+		default:
+			return "T" + successorTypeVar(slot) + ";";
+		}
+	}
+	
+	/**
+	 * Returns the successor of a transition, which is the object itself for self-loops in the
+	 * common base class, and is obtained from the abstract successor method of the shared base
+	 * class if the transition is declared there.
+	 */
+	private void returnSuccessor(CodeBuilder code, String owner, DuzztTransition t, int slot) {
+		if(slot == -1) {
+			returnState(code, owner, t.getSuccessor());
+			return;
+		}
+		code.aload(0);
+		if(slot == SELF_SLOT) {
+			code.xreturn(successorDesc(t, slot));
+			return;
+		}
+		code.invokeVirtual(owner, successorMethodName(slot), SUCCESSOR_METHOD_DESC);
+		code.xreturn("L" + OBJECT + ";");
+	}
+	
+	private void loadParameters(CodeBuilder code, int firstSlot, List<? extends ParameterInfo> params, int count) {
+		int slot = firstSlot;
+		for(int i = 0; i < count; i++) {
+			String desc = descriptor(params.get(i).getType());
+			code.load(desc, slot);
+			slot += CodeBuilder.slots(desc);
+		}
+	}
+	
+	private int parameterSlots(List<? extends ParameterInfo> params, int count) {
+		int slots = 0;
+		for(int i = 0; i < count; i++) {
+			slots += CodeBuilder.slots(descriptor(params.get(i).getType()));
+		}
+		return slots;
+	}
+	
+	private static boolean isVarArgs(List<? extends ParameterInfo> params) {
+		return !params.isEmpty() && params.get(params.size() - 1).isVarArgs();
+	}
+	
+	
+	// Descriptors and signatures
+	
+	private String parameterDescriptors(List<? extends ParameterInfo> params) {
+		StringBuilder sb = new StringBuilder();
+		for(ParameterInfo p : params) {
+			sb.append(descriptor(p.getType()));
+		}
+		return sb.toString();
+	}
+	
+	private String parameterSignatures(List<? extends ParameterInfo> params) {
+		StringBuilder sb = new StringBuilder();
+		for(ParameterInfo p : params) {
+			sb.append(signature(p.getType()));
+		}
+		return sb.toString();
+	}
+	
+	private String methodDescriptor(List<? extends ParameterInfo> params, String retDesc) {
+		return "(" + parameterDescriptors(params) + ")" + retDesc;
+	}
+	
+	/**
+	 * Computes the generic signature of a method, or {@code null} if it does not differ
+	 * from the descriptor.
+	 */
+	private String methodSignature(List<? extends ParameterInfo> params, String retSig, String desc) {
+		String sig = "(" + parameterSignatures(params) + ")" + retSig;
+		return sig.equals(desc) ? null : sig;
+	}
+	
+	private String descriptor(TypeMirror type) {
+		switch(type.getKind()) {
+		case ARRAY:
+			return "[" + descriptor(((ArrayType) type).getComponentType());
+		case DECLARED:
+			return "L" + internalName((TypeElement) ((DeclaredType) type).asElement()) + ";";
+		default:
+			return primitiveDescriptor(type);
+		}
+	}
+	
+	private String signature(TypeMirror type) {
+		switch(type.getKind()) {
+		case ARRAY:
+			return "[" + signature(((ArrayType) type).getComponentType());
+		case DECLARED:
+			DeclaredType declType = (DeclaredType) type;
+			TypeElement elem = (TypeElement) declType.asElement();
+			StringBuilder sb = new StringBuilder();
+			TypeMirror enclosing = declType.getEnclosingType();
+			String enclosingSig = (enclosing.getKind() == TypeKind.DECLARED) ? signature(enclosing) : null;
+			if(enclosingSig != null && enclosingSig.indexOf('<') != -1) {
+				internalName(elem);
+				sb.append(enclosingSig, 0, enclosingSig.length() - 1).append('.').append(elem.getSimpleName());
+			}
+			else {
+				sb.append('L').append(internalName(elem));
+			}
+			if(!declType.getTypeArguments().isEmpty()) {
+				sb.append('<');
+				for(TypeMirror arg : declType.getTypeArguments()) {
+					sb.append(typeArgumentSignature(arg));
+				}
+				sb.append('>');
+			}
+			return sb.append(';').toString();
+		default:
+			return primitiveDescriptor(type);
+		}
+	}
+	
+	private String typeArgumentSignature(TypeMirror arg) {
+		if(arg.getKind() != TypeKind.WILDCARD) {
+			return signature(arg);
+		}
+		WildcardType wildcard = (WildcardType) arg;
+		if(wildcard.getExtendsBound() != null) {
+			return "+" + signature(wildcard.getExtendsBound());
+		}
+		if(wildcard.getSuperBound() != null) {
+			return "-" + signature(wildcard.getSuperBound());
+		}
+		return "*";
+	}
+	
+	private static String primitiveDescriptor(TypeMirror type) {
+		switch(type.getKind()) {
+		case BOOLEAN:
+			return "Z";
+		case BYTE:
+			return "B";
+		case CHAR:
+			return "C";
+		case SHORT:
+			return "S";
+		case INT:
+			return "I";
+		case LONG:
+			return "J";
+		case FLOAT:
+			return "F";
+		case DOUBLE:
+			return "D";
+		case VOID:
+			return "V";
+		default:
+			throw new IllegalArgumentException("Type " + type + " is not supported");
+		}
+	}
+	
+	/**
+	 * Computes the internal name of a type element, and records it as a referenced nested
+	 * type if it is a member of another type.
+	 */
+	private String internalName(TypeElement type) {
+		Element enclosing = type.getEnclosingElement();
+		if(enclosing instanceof TypeElement) {
+			nestedTypes.add(type);
+			return internalName((TypeElement) enclosing) + "$" + type.getSimpleName();
+		}
+		if(enclosing instanceof PackageElement && !((PackageElement) enclosing).isUnnamed()) {
+			return ((PackageElement) enclosing).getQualifiedName().toString().replace('.', '/')
+					+ "/" + type.getSimpleName();
+		}
+		return type.getSimpleName().toString();
+	}
+	
+	private static String binaryName(String internalName) {
+		return internalName.replace('/', '.');
+	}
+	
+	private static int innerClassAccess(TypeElement type) {
+		int access = 0;
+		Set<Modifier> mods = type.getModifiers();
+		if(mods.contains(Modifier.PUBLIC)) {
+			access |= ClassFileWriter.ACC_PUBLIC;
+		}
+		else if(mods.contains(Modifier.PROTECTED)) {
+			access |= ClassFileWriter.ACC_PROTECTED;
+		}
+		else if(mods.contains(Modifier.PRIVATE)) {
+			access |= ClassFileWriter.ACC_PRIVATE;
+		}
+		if(mods.contains(Modifier.STATIC)) {
+			access |= ClassFileWriter.ACC_STATIC;
+		}
+		if(mods.contains(Modifier.FINAL)) {
+			access |= ClassFileWriter.ACC_FINAL;
+		}
+		if(mods.contains(Modifier.ABSTRACT)) {
+			access |= ClassFileWriter.ACC_ABSTRACT;
+		}
+		ElementKind kind = type.getKind();
+		if(kind.isInterface()) {
+			access |= ClassFileWriter.ACC_INTERFACE | ClassFileWriter.ACC_ABSTRACT | ClassFileWriter.ACC_STATIC;
+			if(kind == ElementKind.ANNOTATION_TYPE) {
+				access |= ClassFileWriter.ACC_ANNOTATION;
+			}
+		}
+		else if(kind == ElementKind.ENUM) {
+			access |= ClassFileWriter.ACC_ENUM | ClassFileWriter.ACC_STATIC;
+		}
+		return access;
+	}
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.classfile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.misberner.duzzt.exceptions.ClassFileLimitExceededException;
+
+/**
+ * A minimal writer for Java class files, supporting only what is required for generated
+ * EDSL classes: fields, methods with code, and the <tt>Signature</tt>, <tt>Exceptions</tt>,
+ * <tt>RuntimeVisibleAnnotations</tt> (without elements), and <tt>InnerClasses</tt> attributes.
+ * <p>
+ * Class files are written in version 49 (Java 5), which does not require
+ * <tt>StackMapTable</tt> attributes, such that the code of the methods can be written
+ * without computing stack map frames.
+ */
+final class ClassFileWriter {
+	
+	public static final int ACC_PUBLIC = 0x0001;
+	public static final int ACC_PRIVATE = 0x0002;
+	public static final int ACC_PROTECTED = 0x0004;
+	public static final int ACC_STATIC = 0x0008;
+	public static final int ACC_FINAL = 0x0010;
+	public static final int ACC_SUPER = 0x0020;
+	public static final int ACC_VOLATILE = 0x0040;
+	public static final int ACC_VARARGS = 0x0080;
+	public static final int ACC_INTERFACE = 0x0200;
+	public static final int ACC_ABSTRACT = 0x0400;
+	public static final int ACC_SYNTHETIC = 0x1000;
+	public static final int ACC_ANNOTATION = 0x2000;
+	public static final int ACC_ENUM = 0x4000;
+	
+	private static final int MAGIC = 0xcafebabe;
+	private static final int MAJOR_VERSION = 49;
+	
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	
+	/**
+	 * A method of the class being written.
+	 */
+	public final class MethodWriter {
+		private final int access;
+		private final int nameIdx;
+		private final int descIdx;
+		private final CodeBuilder code;
+		private int signatureIdx = -1;
+		private final List<Integer> exceptionIdxs = new ArrayList<>();
+		private final List<Integer> annotationIdxs = new ArrayList<>();
+		
+		private MethodWriter(int access, String name, String descriptor) {
+			this.access = access;
+			this.nameIdx = utf8(name);
+			this.descIdx = utf8(descriptor);
+			int paramSlots = CodeBuilder.argumentSlots(descriptor);
+			if((access & ACC_STATIC) == 0) {
+				paramSlots++;
+			}
+			this.code = new CodeBuilder(ClassFileWriter.this, paramSlots);
+		}
+		
+		/**
+		 * Sets the generic signature of this method.
+		 * @param signature the generic signature, or {@code null} for none
+		 */
+		public void setSignature(String signature) {
+			this.signatureIdx = (signature != null) ? utf8(signature) : -1;
+		}
+		
+		/**
+		 * Adds a declared exception to this method.
+		 * @param internalName the internal name of the exception class
+		 */
+		public void addException(String internalName) {
+			exceptionIdxs.add(classRef(internalName));
+		}
+		
+		/**
+		 * Adds a runtime-visible annotation without any elements to this method.
+		 * @param descriptor the descriptor of the annotation type
+		 */
+		public void addAnnotation(String descriptor) {
+			annotationIdxs.add(utf8(descriptor));
+		}
+		
+		/**
+		 * Retrieves the builder for the code of this method. The code of abstract methods
+		 * is ignored.
+		 * @return the code builder
+		 */
+		public CodeBuilder code() {
+			return code;
+		}
+		
+		private void write(DataOutputStream out) throws IOException, ClassFileLimitExceededException {
+			out.writeShort(access);
+			out.writeShort(nameIdx);
+			out.writeShort(descIdx);
+			boolean hasCode = ((access & ACC_ABSTRACT) == 0);
+			int numAttrs = hasCode ? 1 : 0;
+			if(signatureIdx != -1) {
+				numAttrs++;
+			}
+			if(!exceptionIdxs.isEmpty()) {
+				numAttrs++;
+			}
+			if(!annotationIdxs.isEmpty()) {
+				numAttrs++;
+			}
+			out.writeShort(numAttrs);
+			
+			if(hasCode) {
+				byte[] bytecode = code.toByteArray();
+				out.writeShort(utf8("Code"));
+				out.writeInt(12 + bytecode.length);
+				out.writeShort(code.getMaxStack());
+				out.writeShort(code.getMaxLocals());
+				out.writeInt(bytecode.length);
+				out.write(bytecode);
+				out.writeShort(0); // exception table
+				out.writeShort(0); // attributes
+			}
+			
+			if(signatureIdx != -1) {
+				writeSignature(signatureIdx, out);
+			}
+			if(!exceptionIdxs.isEmpty()) {
+				out.writeShort(utf8("Exceptions"));
+				out.writeInt(2 + 2 * exceptionIdxs.size());
+				writeIndices(exceptionIdxs, out);
+			}
+			if(!annotationIdxs.isEmpty()) {
+				out.writeShort(utf8("RuntimeVisibleAnnotations"));
+				out.writeInt(2 + 4 * annotationIdxs.size());
+				out.writeShort(annotationIdxs.size());
+				for(int typeIdx : annotationIdxs) {
+					out.writeShort(typeIdx);
+					out.writeShort(0);
+				}
+			}
+		}
+	}
+	
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(poolBytes);
+	private final Map<String,Integer> poolIndices = new HashMap<>();
+	private int poolSize = 1;
+	
+	private final int access;
+	private final int thisIdx;
+	private final int superIdx;
+	private int signatureIdx = -1;
+	
+	private final ByteArrayOutputStream fieldBytes = new ByteArrayOutputStream();
+	private final DataOutputStream fields = new DataOutputStream(fieldBytes);
+	private int numFields;
+	private final List<MethodWriter> methods = new ArrayList<>();
+	// inner class entries, keyed by the internal name of the inner class
+	private final Map<String,int[]> innerClasses = new LinkedHashMap<>();
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param access the access flags of the class
+	 * @param internalName the internal name of the class
+	 * @param superName the internal name of the superclass
+	 */
+	public ClassFileWriter(int access, String internalName, String superName) {
+		this.access = access;
+		this.thisIdx = classRef(internalName);
+		this.superIdx = classRef(superName);
+	}
+	
+	/**
+	 * Sets the generic signature of the class.
+	 * @param signature the generic signature, or {@code null} for none
+	 */
+	public void setSignature(String signature) {
+		this.signatureIdx = (signature != null) ? utf8(signature) : -1;
+	}
+	
+	/**
+	 * Adds a field.
+	 * 
+	 * @param access the access flags of the field
+	 * @param name the name of the field
+	 * @param descriptor the descriptor of the field
+	 * @param signature the generic signature of the field, or {@code null} for none
+	 */
+	public void addField(int access, String name, String descriptor, String signature) {
+		try {
+			fields.writeShort(access);
+			fields.writeShort(utf8(name));
+			fields.writeShort(utf8(descriptor));
+			if(signature != null) {
+				fields.writeShort(1);
+				writeSignature(utf8(signature), fields);
+			}
+			else {
+				fields.writeShort(0);
+			}
+		}
+		catch(IOException ex) {
+			throw new AssertionError("Writing to a byte array must not fail", ex);
+		}
+		numFields++;
+	}
+	
+	/**
+	 * Adds a method. The code of the method has to be added to the
+	 * {@link MethodWriter#code() code builder} of the returned writer.
+	 * 
+	 * @param access the access flags of the method
+	 * @param name the name of the method
+	 * @param descriptor the descriptor of the method
+	 * @return the writer for the method
+	 */
+	public MethodWriter addMethod(int access, String name, String descriptor) {
+		MethodWriter mw = new MethodWriter(access, name, descriptor);
+		methods.add(mw);
+		return mw;
+	}
+	
+	/**
+	 * Adds an entry to the <tt>InnerClasses</tt> attribute. Entries for the same inner class
+	 * are only added once.
+	 * 
+	 * @param innerName the internal name of the inner class
+	 * @param outerName the internal name of the class declaring the inner class
+	 * @param simpleName the simple name of the inner class
+	 * @param access the access flags of the inner class, as declared in the source
+	 */
+	public void addInnerClass(String innerName, String outerName, String simpleName, int access) {
+		if(innerClasses.containsKey(innerName)) {
+			return;
+		}
+		innerClasses.put(innerName, new int[]{ classRef(innerName), classRef(outerName), utf8(simpleName), access });
+	}
+	
+	/**
+	 * Writes the class file.
+	 * @return the contents of the class file
+	 * @throws ClassFileLimitExceededException if the class exceeds the limits of the class
+	 * file format
+	 */
+	public byte[] toByteArray() throws ClassFileLimitExceededException {
+		try {
+			// Write methods and attributes first, as they may add constant pool entries
+			ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+			DataOutputStream body = new DataOutputStream(bodyBytes);
+			body.writeShort(methods.size());
+			for(MethodWriter mw : methods) {
+				mw.write(body);
+			}
+			int numAttrs = 0;
+			if(signatureIdx != -1) {
+				numAttrs++;
+			}
+			if(!innerClasses.isEmpty()) {
+				numAttrs++;
+			}
+			body.writeShort(numAttrs);
+			if(signatureIdx != -1) {
+				writeSignature(signatureIdx, body);
+			}
+			if(!innerClasses.isEmpty()) {
+				body.writeShort(utf8("InnerClasses"));
+				body.writeInt(2 + 8 * innerClasses.size());
+				body.writeShort(innerClasses.size());
+				for(int[] entry : innerClasses.values()) {
+					for(int value : entry) {
+						body.writeShort(value);
+					}
+				}
+			}
+			
+			if(poolSize > 0xffff) {
+				throw new ClassFileLimitExceededException("Too many constants in class file: " + poolSize);
+			}
+			ByteArrayOutputStream result = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(result);
+			out.writeInt(MAGIC);
+			out.writeShort(0);
+			out.writeShort(MAJOR_VERSION);
+			out.writeShort(poolSize);
+			poolBytes.writeTo(out);
+			out.writeShort(access);
+			out.writeShort(thisIdx);
+			out.writeShort(superIdx);
+			out.writeShort(0); // interfaces
+			out.writeShort(numFields);
+			fieldBytes.writeTo(out);
+			bodyBytes.writeTo(out);
+			out.flush();
+			return result.toByteArray();
+		}
+		catch(IOException ex) {
+			throw new AssertionError("Writing to a byte array must not fail", ex);
+		}
+	}
+	
+	int utf8(String value) {
+		String key = "U" + value;
+		Integer idx = poolIndices.get(key);
+		if(idx == null) {
+			idx = newConstant(key);
+			try {
+				pool.writeByte(CONSTANT_UTF8);
+				pool.writeUTF(value);
+			}
+			catch(IOException ex) {
+				throw new AssertionError("Writing to a byte array must not fail", ex);
+			}
+		}
+		return idx;
+	}
+	
+	int classRef(String internalName) {
+		String key = "C" + internalName;
+		Integer idx = poolIndices.get(key);
+		if(idx == null) {
+			int nameIdx = utf8(internalName);
+			idx = newConstant(key);
+			writeConstant(CONSTANT_CLASS, nameIdx);
+		}
+		return idx;
+	}
+	
+	int fieldRef(String owner, String name, String descriptor) {
+		return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+	}
+	
+	int methodRef(String owner, String name, String descriptor, boolean isInterface) {
+		return memberRef(isInterface ? CONSTANT_INTERFACE_METHODREF : CONSTANT_METHODREF,
+				owner, name, descriptor);
+	}
+	
+	private int memberRef(int tag, String owner, String name, String descriptor) {
+		String key = tag + owner + "." + name + ":" + descriptor;
+		Integer idx = poolIndices.get(key);
+		if(idx == null) {
+			int ownerIdx = classRef(owner);
+			int natIdx = nameAndType(name, descriptor);
+			idx = newConstant(key);
+			writeConstant(tag, ownerIdx, natIdx);
+		}
+		return idx;
+	}
+	
+	private int nameAndType(String name, String descriptor) {
+		String key = "N" + name + ":" + descriptor;
+		Integer idx = poolIndices.get(key);
+		if(idx == null) {
+			int nameIdx = utf8(name);
+			int descIdx = utf8(descriptor);
+			idx = newConstant(key);
+			writeConstant(CONSTANT_NAME_AND_TYPE, nameIdx, descIdx);
+		}
+		return idx;
+	}
+	
+	private int newConstant(String key) {
+		int idx = poolSize++;
+		poolIndices.put(key, idx);
+		return idx;
+	}
+	
+	private void writeConstant(int tag, int... indices) {
+		try {
+			pool.writeByte(tag);
+			for(int idx : indices) {
+				pool.writeShort(idx);
+			}
+		}
+		catch(IOException ex) {
+			throw new AssertionError("Writing to a byte array must not fail", ex);
+		}
+	}
+	
+	private void writeSignature(int signatureIdx, DataOutputStream out) throws IOException {
+		out.writeShort(utf8("Signature"));
+		out.writeInt(2);
+		out.writeShort(signatureIdx);
+	}
+	
+	private static void writeIndices(Collection<Integer> indices, DataOutputStream out) throws IOException {
+		out.writeShort(indices.size());
+		for(int idx : indices) {
+			out.writeShort(idx);
+		}
+	}
+}
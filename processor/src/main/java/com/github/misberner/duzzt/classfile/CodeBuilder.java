@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.classfile;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.misberner.duzzt.exceptions.ClassFileLimitExceededException;
+
+/**
+ * Builder for the bytecode of a single method. Only the instructions needed for generated
+ * EDSL classes are supported. The maximum stack size is tracked while instructions are
+ * added, which requires that the stack is empty at every branch target.
+ */
+final class CodeBuilder {
+	
+	private static final int ACONST_NULL = 0x01;
+	private static final int ICONST_0 = 0x03;
+	private static final int ILOAD = 0x15;
+	private static final int LLOAD = 0x16;
+	private static final int FLOAD = 0x17;
+	private static final int DLOAD = 0x18;
+	private static final int ALOAD = 0x19;
+	private static final int IALOAD = 0x2e;
+	private static final int LALOAD = 0x2f;
+	private static final int FALOAD = 0x30;
+	private static final int DALOAD = 0x31;
+	private static final int AALOAD = 0x32;
+	private static final int BALOAD = 0x33;
+	private static final int CALOAD = 0x34;
+	private static final int SALOAD = 0x35;
+	private static final int ISTORE = 0x36;
+	private static final int ASTORE = 0x3a;
+	private static final int POP = 0x57;
+	private static final int POP2 = 0x58;
+	private static final int DUP = 0x59;
+	private static final int IINC = 0x84;
+	private static final int IF_ICMPGE = 0xa2;
+	private static final int GOTO = 0xa7;
+	private static final int IRETURN = 0xac;
+	private static final int LRETURN = 0xad;
+	private static final int FRETURN = 0xae;
+	private static final int DRETURN = 0xaf;
+	private static final int ARETURN = 0xb0;
+	private static final int RETURN = 0xb1;
+	private static final int GETFIELD = 0xb4;
+	private static final int PUTFIELD = 0xb5;
+	private static final int INVOKEVIRTUAL = 0xb6;
+	private static final int INVOKESPECIAL = 0xb7;
+	private static final int INVOKESTATIC = 0xb8;
+	private static final int INVOKEINTERFACE = 0xb9;
+	private static final int NEW = 0xbb;
+	private static final int ARRAYLENGTH = 0xbe;
+	private static final int WIDE = 0xc4;
+	private static final int IFNONNULL = 0xc7;
+	
+	/**
+	 * Computes the number of local variable slots occupied by the arguments of a method.
+	 * 
+	 * @param methodDescriptor the descriptor of the method
+	 * @return the number of slots, not counting the receiver
+	 */
+	static int argumentSlots(String methodDescriptor) {
+		int slots = 0;
+		int i = 1;
+		while(methodDescriptor.charAt(i) != ')') {
+			char c = methodDescriptor.charAt(i);
+			slots += (c == 'J' || c == 'D') ? 2 : 1;
+			i = skipType(methodDescriptor, i);
+		}
+		return slots;
+	}
+	
+	/**
+	 * Computes the number of stack slots occupied by a value of the given type.
+	 * 
+	 * @param descriptor the type descriptor
+	 * @return the number of slots, which is {@code 0} for {@code void}
+	 */
+	static int slots(String descriptor) {
+		switch(descriptor.charAt(0)) {
+		case 'V':
+			return 0;
+		case 'J':
+		case 'D':
+			return 2;
+		default:
+			return 1;
+		}
+	}
+	
+	private static int skipType(String descriptor, int i) {
+		while(descriptor.charAt(i) == '[') {
+			i++;
+		}
+		if(descriptor.charAt(i) == 'L') {
+			i = descriptor.indexOf(';', i);
+		}
+		return i + 1;
+	}
+	
+	private static String returnType(String methodDescriptor) {
+		return methodDescriptor.substring(methodDescriptor.indexOf(')') + 1);
+	}
+	
+	private final ClassFileWriter cw;
+	private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+	private int stack;
+	private int maxStack;
+	private int maxLocals;
+	
+	private final List<Integer> labelPositions = new ArrayList<>();
+	// pairs of (instruction offset, label) for jumps whose target is not known yet
+	private final List<int[]> fixups = new ArrayList<>();
+	private byte[] finished;
+	
+	CodeBuilder(ClassFileWriter cw, int paramSlots) {
+		this.cw = cw;
+		this.maxLocals = paramSlots;
+	}
+	
+	/**
+	 * Allocates a new local variable.
+	 * 
+	 * @param descriptor the type descriptor of the variable
+	 * @return the slot of the variable
+	 */
+	public int newLocal(String descriptor) {
+		int slot = maxLocals;
+		maxLocals += slots(descriptor);
+		return slot;
+	}
+	
+	public void load(String descriptor, int slot) {
+		switch(descriptor.charAt(0)) {
+		case 'J':
+			varInsn(LLOAD, slot, 2);
+			break;
+		case 'F':
+			varInsn(FLOAD, slot, 1);
+			break;
+		case 'D':
+			varInsn(DLOAD, slot, 2);
+			break;
+		case 'L':
+		case '[':
+			varInsn(ALOAD, slot, 1);
+			break;
+		default:
+			varInsn(ILOAD, slot, 1);
+		}
+	}
+	
+	public void aload(int slot) {
+		varInsn(ALOAD, slot, 1);
+	}
+	
+	public void astore(int slot) {
+		varInsn(ASTORE, slot, -1);
+	}
+	
+	public void iload(int slot) {
+		varInsn(ILOAD, slot, 1);
+	}
+	
+	public void istore(int slot) {
+		varInsn(ISTORE, slot, -1);
+	}
+	
+	public void iconst0() {
+		insn(ICONST_0, 1);
+	}
+	
+	public void aconstNull() {
+		insn(ACONST_NULL, 1);
+	}
+	
+	public void iinc(int slot, int increment) {
+		code.write(IINC);
+		code.write(slot);
+		code.write(increment);
+	}
+	
+	public void arrayLength() {
+		insn(ARRAYLENGTH, 0);
+	}
+	
+	/**
+	 * Loads an array element onto the stack.
+	 * @param componentDescriptor the type descriptor of the array components
+	 */
+	public void arrayLoad(String componentDescriptor) {
+		switch(componentDescriptor.charAt(0)) {
+		case 'I':
+			insn(IALOAD, -1);
+			break;
+		case 'J':
+			insn(LALOAD, 0);
+			break;
+		case 'F':
+			insn(FALOAD, -1);
+			break;
+		case 'D':
+			insn(DALOAD, 0);
+			break;
+		case 'Z':
+		case 'B':
+			insn(BALOAD, -1);
+			break;
+		case 'C':
+			insn(CALOAD, -1);
+			break;
+		case 'S':
+			insn(SALOAD, -1);
+			break;
+		default:
+			insn(AALOAD, -1);
+		}
+	}
+	
+	public void dup() {
+		insn(DUP, 1);
+	}
+	
+	/**
+	 * Discards a value of the given type from the stack.
+	 * @param descriptor the type descriptor of the value, which may be {@code void}
+	 */
+	public void pop(String descriptor) {
+		switch(slots(descriptor)) {
+		case 1:
+			insn(POP, -1);
+			break;
+		case 2:
+			insn(POP2, -2);
+			break;
+		default:
+		}
+	}
+	
+	/**
+	 * Returns a value of the given type from the method.
+	 * @param descriptor the type descriptor of the value, which may be {@code void}
+	 */
+	public void xreturn(String descriptor) {
+		switch(descriptor.charAt(0)) {
+		case 'V':
+			insn(RETURN, 0);
+			break;
+		case 'J':
+			insn(LRETURN, -2);
+			break;
+		case 'F':
+			insn(FRETURN, -1);
+			break;
+		case 'D':
+			insn(DRETURN, -2);
+			break;
+		case 'L':
+		case '[':
+			insn(ARETURN, -1);
+			break;
+		default:
+			insn(IRETURN, -1);
+		}
+	}
+	
+	public void anew(String internalName) {
+		typeInsn(NEW, internalName, 1);
+	}
+	
+	public void getField(String owner, String name, String descriptor) {
+		memberInsn(GETFIELD, cw.fieldRef(owner, name, descriptor), slots(descriptor) - 1);
+	}
+	
+	public void putField(String owner, String name, String descriptor) {
+		memberInsn(PUTFIELD, cw.fieldRef(owner, name, descriptor), -slots(descriptor) - 1);
+	}
+	
+	public void invokeVirtual(String owner, String name, String descriptor) {
+		invoke(INVOKEVIRTUAL, owner, name, descriptor, false);
+	}
+	
+	public void invokeSpecial(String owner, String name, String descriptor) {
+		invoke(INVOKESPECIAL, owner, name, descriptor, false);
+	}
+	
+	public void invokeStatic(String owner, String name, String descriptor) {
+		invoke(INVOKESTATIC, owner, name, descriptor, false);
+	}
+	
+	public void invokeInterface(String owner, String name, String descriptor) {
+		invoke(INVOKEINTERFACE, owner, name, descriptor, true);
+	}
+	
+	/**
+	 * Creates a new label, which has to be {@link #mark(int) marked} before the code is
+	 * finished.
+	 * @return the label
+	 */
+	public int newLabel() {
+		labelPositions.add(-1);
+		return labelPositions.size() - 1;
+	}
+	
+	/**
+	 * Marks the current position as the target of a label.
+	 * @param label the label
+	 */
+	public void mark(int label) {
+		labelPositions.set(label, code.size());
+	}
+	
+	public void ifNonNull(int label) {
+		jump(IFNONNULL, label, -1);
+	}
+	
+	public void ifICmpGe(int label) {
+		jump(IF_ICMPGE, label, -2);
+	}
+	
+	public void goTo(int label) {
+		jump(GOTO, label, 0);
+	}
+	
+	int getMaxStack() {
+		return maxStack;
+	}
+	
+	int getMaxLocals() {
+		return maxLocals;
+	}
+	
+	byte[] toByteArray() throws ClassFileLimitExceededException {
+		if(finished == null) {
+			byte[] bytes = code.toByteArray();
+			if(bytes.length > 0xffff) {
+				throw new ClassFileLimitExceededException("Method code too large: " + bytes.length + " bytes");
+			}
+			for(int[] fixup : fixups) {
+				int target = labelPositions.get(fixup[1]);
+				if(target == -1) {
+					throw new IllegalStateException("Unmarked label " + fixup[1]);
+				}
+				int offset = target - fixup[0];
+				if(offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+					throw new ClassFileLimitExceededException("Branch offset too large: " + offset);
+				}
+				bytes[fixup[0] + 1] = (byte) (offset >> 8);
+				bytes[fixup[0] + 2] = (byte) offset;
+			}
+			this.finished = bytes;
+		}
+		return finished;
+	}
+	
+	private void insn(int opcode, int stackDelta) {
+		code.write(opcode);
+		adjustStack(stackDelta);
+	}
+	
+	private void varInsn(int opcode, int slot, int stackDelta) {
+		if(slot > 0xff) {
+			// Method descriptors are limited to 255 parameter slots, so this cannot exceed 0xffff
+			code.write(WIDE);
+			code.write(opcode);
+			code.write(slot >> 8);
+			code.write(slot);
+		}
+		else {
+			code.write(opcode);
+			code.write(slot);
+		}
+		adjustStack(stackDelta);
+	}
+	
+	private void typeInsn(int opcode, String internalName, int stackDelta) {
+		memberInsn(opcode, cw.classRef(internalName), stackDelta);
+	}
+	
+	private void memberInsn(int opcode, int poolIdx, int stackDelta) {
+		code.write(opcode);
+		code.write(poolIdx >> 8);
+		code.write(poolIdx);
+		adjustStack(stackDelta);
+	}
+	
+	private void invoke(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+		int argSlots = argumentSlots(descriptor);
+		int receiverSlots = (opcode == INVOKESTATIC) ? 0 : 1;
+		int stackDelta = slots(returnType(descriptor)) - argSlots - receiverSlots;
+		memberInsn(opcode, cw.methodRef(owner, name, descriptor, isInterface), stackDelta);
+		if(opcode == INVOKEINTERFACE) {
+			code.write(argSlots + 1);
+			code.write(0);
+		}
+	}
+	
+	private void jump(int opcode, int label, int stackDelta) {
+		fixups.add(new int[]{ code.size(), label });
+		code.write(opcode);
+		code.write(0);
+		code.write(0);
+		adjustStack(stackDelta);
+	}
+	
+	private void adjustStack(int delta) {
+		stack += delta;
+		if(stack > maxStack) {
+			maxStack = stack;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.exceptions;
+
+/**
+ * Thrown by the {@link com.github.misberner.duzzt.classfile.ClassFileGenerator} if a
+ * generated class exceeds one of the size limits of the class file format, e.g., the
+ * number of constant pool entries or the length of the code of a method.
+ */
+public class ClassFileLimitExceededException extends Exception {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public ClassFileLimitExceededException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.github.misberner.apcommons.util.methods.MethodUtils;
+import com.github.misberner.apcommons.util.methods.ParameterInfo;
+import com.github.misberner.duzzt.annotations.DSLAction;
+
+/**
+ * The binding of an action to a bulk method of the implementation class, as specified
+ * via {@link DSLAction#bulk()}. The bulk method takes the same parameters as the action,
+ * except for the last one, which is an {@link Iterable} or an array of values.
+ */
+public final class BulkBinding {
+	
+	/**
+	 * Determines the element type of a potential bulk method for an action, i.e., the type of
+	 * the values passed in its last parameter. This requires that the method has the same
+	 * number of parameters as the action, that all but the last parameter have the same
+	 * (erased) types, and that the last parameter is an array or an {@link Iterable}. The
+	 * element type itself is not checked, see {@link #isCompatibleElementType}.
+	 * 
+	 * @param actionParams the parameters of the action
+	 * @param method the potential bulk method
+	 * @param elementUtils the element utilities
+	 * @param typeUtils the type utilities
+	 * @return the element type, or {@code null} if the method does not qualify as a bulk
+	 * method for the action
+	 */
+	public static TypeMirror getBulkElementType(List<ParameterInfo> actionParams,
+			ExecutableElement method, Elements elementUtils, Types typeUtils) {
+		List<ParameterInfo> bulkParams = MethodUtils.getParameterInfos(method);
+		if(actionParams.isEmpty() || bulkParams.size() != actionParams.size()) {
+			return null;
+		}
+		int numFixed = actionParams.size() - 1;
+		for(int i = 0; i < numFixed; i++) {
+			TypeMirror actionParamType = typeUtils.erasure(actionParams.get(i).getType());
+			TypeMirror bulkParamType = typeUtils.erasure(bulkParams.get(i).getType());
+			if(!typeUtils.isSameType(actionParamType, bulkParamType)) {
+				return null;
+			}
+		}
+		return getElementType(bulkParams.get(numFixed).getType(), elementUtils, typeUtils);
+	}
+	
+	/**
+	 * Checks whether values of the given element type of a bulk method correspond to the
+	 * values of the last parameter of an action. This is the case if both have the same
+	 * erasure, or if the parameter type is primitive and the element type is its wrapper.
+	 * 
+	 * @param elementType the element type of the bulk method
+	 * @param paramType the type of the last parameter of the action
+	 * @param typeUtils the type utilities
+	 * @return {@code true} if the types are compatible, {@code false} otherwise
+	 */
+	public static boolean isCompatibleElementType(TypeMirror elementType, TypeMirror paramType,
+			Types typeUtils) {
+		TypeMirror erasedElementType = typeUtils.erasure(elementType);
+		TypeMirror erasedParamType = typeUtils.erasure(paramType);
+		if(typeUtils.isSameType(erasedElementType, erasedParamType)) {
+			return true;
+		}
+		return erasedParamType.getKind().isPrimitive() && erasedElementType.getKind() == TypeKind.DECLARED
+				&& typeUtils.isSameType(erasedElementType,
+						typeUtils.boxedClass((PrimitiveType) erasedParamType).asType());
+	}
+	
+	private static TypeMirror getElementType(TypeMirror type, Elements elementUtils, Types typeUtils) {
+		while(type.getKind() == TypeKind.TYPEVAR) {
+			type = ((TypeVariable) type).getUpperBound();
+		}
+		if(type.getKind() == TypeKind.ARRAY) {
+			return ((ArrayType) type).getComponentType();
+		}
+		if(type.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		
+		TypeMirror iterableType = typeUtils.erasure(elementUtils.getTypeElement(Iterable.class.getName()).asType());
+		Deque<TypeMirror> queue = new ArrayDeque<>();
+		queue.add(type);
+		while(!queue.isEmpty()) {
+			TypeMirror curr = queue.poll();
+			if(!typeUtils.isSameType(typeUtils.erasure(curr), iterableType)) {
+				queue.addAll(typeUtils.directSupertypes(curr));
+				continue;
+			}
+			List<? extends TypeMirror> typeArgs = ((DeclaredType) curr).getTypeArguments();
+			if(typeArgs.isEmpty()) {
+				// Raw Iterable
+				return elementUtils.getTypeElement(Object.class.getName()).asType();
+			}
+			TypeMirror typeArg = typeArgs.get(0);
+			if(typeArg.getKind() == TypeKind.WILDCARD) {
+				TypeMirror bound = ((WildcardType) typeArg).getExtendsBound();
+				return (bound != null) ? bound : elementUtils.getTypeElement(Object.class.getName()).asType();
+			}
+			return typeArg;
+		}
+		return null;
+	}
+	
+	private final ExecutableElement method;
+	private final List<ParameterInfo> parameters;
+	private final boolean arrayOverload;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param method the bulk method
+	 * @param arrayOverload whether an additional overload taking an array should be
+	 * generated, which passes the array to the bulk method as a {@link java.util.List}
+	 */
+	public BulkBinding(ExecutableElement method, boolean arrayOverload) {
+		this.method = method;
+		this.parameters = MethodUtils.getParameterInfos(method);
+		this.arrayOverload = arrayOverload;
+	}
+	
+	public ExecutableElement getMethod() {
+		return method;
+	}
+	
+	public List<ParameterInfo> getParameters() {
+		return parameters;
+	}
+	
+	public List<? extends TypeParameterElement> getTypeParameters() {
+		return method.getTypeParameters();
+	}
+	
+	public List<? extends TypeMirror> getThrownTypes() {
+		return method.getThrownTypes();
+	}
+	
+	public boolean isArrayOverload() {
+		return arrayOverload;
+	}
+}
@@ -26,17 +26,21 @@ import javax.lang.model.type.TypeKind;
 import com.github.misberner.apcommons.util.AFModifier;
 import com.github.misberner.apcommons.util.Visibility;
 import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
+import com.github.misberner.duzzt.annotations.StateClassStyle;
+import com.github.misberner.duzzt.annotations.StateInit;
 import com.github.misberner.duzzt.annotations.SubExpr;
+import com.github.misberner.duzzt.re.DuzztRESimplifier;
 import com.github.misberner.duzzt.re.DuzztRegExp;
 import com.github.misberner.duzzt.re.parser.DuzztRegExpParser;
 
 public class DSLSettings {
 	
-	private static final Map<String,SubExpression> parseSubexpressions(SubExpr[] subExprs) {
+	private static final Map<String,SubExpression> parseSubexpressions(SubExpr[] subExprs,
+			DuzztRESimplifier simplifier) {
 		Map<String,SubExpression> result = new HashMap<>();
 		
 		for(SubExpr se : subExprs) {
-			SubExpression parsed = new SubExpression(se);
+			SubExpression parsed = new SubExpression(se, simplifier);
 			result.put(parsed.getName(), parsed);
 		}
 		
@@ -64,12 +68,23 @@ public class DSLSettings {
 
 	private final boolean skipGeneratedAnnotation;
 	
+	private final int maxStates;
+	
+	private final StateClassStyle stateStyle;
+	private final StateInit stateInit;
+	
+	private final boolean reusable;
+	private final boolean recording;
+	private final boolean transitionTable;
+	
 	public DSLSettings(GenerateEmbeddedDSL annotation) {
 		this.name = annotation.name();
 		this.packageRef = annotation.packageName();
 		
-		this.syntax = DuzztRegExpParser.parse(annotation.syntax());
-		this.subExpressions = parseSubexpressions(annotation.where());
+		// Simplify the expressions before any compiler sees them, sharing identical subtrees
+		DuzztRESimplifier simplifier = new DuzztRESimplifier();
+		this.syntax = simplifier.simplify(DuzztRegExpParser.parse(annotation.syntax()));
+		this.subExpressions = parseSubexpressions(annotation.where(), simplifier);
 		
 		this.autoVarArgs = annotation.autoVarArgs();
 		this.delegateConstructorVisibility = annotation.delegateConstructorVisibility();
@@ -84,6 +99,12 @@ public class DSLSettings {
 		this.modifier = annotation.modifier();
 
 		this.skipGeneratedAnnotation = annotation.skipGeneratedAnnotation();
+		this.maxStates = annotation.maxStates();
+		this.stateStyle = annotation.stateStyle();
+		this.stateInit = annotation.stateInit();
+		this.reusable = annotation.reusable();
+		this.recording = annotation.recording();
+		this.transitionTable = annotation.transitionTable();
 	}
 	
 	public String getName() {
@@ -163,4 +184,28 @@ public class DSLSettings {
 	public boolean isSkipGeneratedAnnotation() {
 		return skipGeneratedAnnotation;
 	}
+
+	public int getMaxStates() {
+		return maxStates;
+	}
+
+	public StateClassStyle getStateStyle() {
+		return stateStyle;
+	}
+
+	public StateInit getStateInit() {
+		return stateInit;
+	}
+
+	public boolean isReusable() {
+		return reusable;
+	}
+
+	public boolean isRecording() {
+		return recording;
+	}
+
+	public boolean isTransitionTable() {
+		return transitionTable;
+	}
 }
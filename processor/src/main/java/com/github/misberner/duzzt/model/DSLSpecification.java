@@ -27,6 +27,8 @@ import com.github.misberner.apcommons.util.AFModifier;
 import com.github.misberner.apcommons.util.ElementUtils;
 import com.github.misberner.apcommons.util.NameUtils;
 import com.github.misberner.apcommons.util.Visibility;
+import com.github.misberner.duzzt.annotations.StateClassStyle;
+import com.github.misberner.duzzt.annotations.StateInit;
 import com.github.misberner.duzzt.re.DuzztRegExp;
 
 public class DSLSpecification {
@@ -113,4 +115,47 @@ public class DSLSpecification {
 		return settings.isSkipGeneratedAnnotation();
 	}
 
+	public int getMaxStates() {
+		return settings.getMaxStates();
+	}
+	
+	public StateClassStyle getStateStyle() {
+		return settings.getStateStyle();
+	}
+	
+	public StateInit getStateInit() {
+		return settings.getStateInit();
+	}
+	
+	public boolean isReusable() {
+		return settings.isReusable();
+	}
+	
+	public boolean isRecording() {
+		return settings.isRecording();
+	}
+	
+	public boolean isTransitionTable() {
+		return settings.isTransitionTable();
+	}
+	
+	/**
+	 * Retrieves the forward constructor without parameters, which is used for creating
+	 * thread-local instances of reusable EDSLs.
+	 * 
+	 * @return the forward constructor without parameters, or {@code null} if there is none
+	 */
+	public ForwardConstructor getNullaryForwardConstructor() {
+		for(ForwardConstructor fc : getForwardConstructors()) {
+			if(fc.getParameters().isEmpty()) {
+				return fc;
+			}
+		}
+		return null;
+	}
+	
+	public boolean isThreadLocalInstances() {
+		return isReusable() && getNullaryForwardConstructor() != null;
+	}
+
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.github.misberner.apcommons.util.methods.ParameterInfo;
+import com.github.misberner.duzzt.DuzztAction;
+
+/**
+ * A fixed-arity overload for repeating an action, i.e., an overload which takes the
+ * last parameter of the action multiple times. In contrast to the varargs overload,
+ * calling it does not require allocating an array.
+ */
+public final class FixedArityOverload {
+	
+	private final List<String> extraParameterNames;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param action the action to repeat, must have at least one parameter
+	 * @param repetitions the total number of repetitions, must be at least 2
+	 */
+	public FixedArityOverload(DuzztAction action, int repetitions) {
+		List<ParameterInfo> params = action.getParameters();
+		Set<String> paramNames = new HashSet<>();
+		for(ParameterInfo p : params) {
+			paramNames.add(p.getName());
+		}
+		String lastName = params.get(params.size() - 1).getName();
+		List<String> names = new ArrayList<>(repetitions - 1);
+		for(int i = 2; i <= repetitions; i++) {
+			String name = lastName + i;
+			if(paramNames.contains(name)) {
+				name = "__duzzt_" + name;
+			}
+			names.add(name);
+		}
+		this.extraParameterNames = Collections.unmodifiableList(names);
+	}
+	
+	/**
+	 * Retrieves the names of the additional parameters, which are of the same type as
+	 * the last parameter of the action.
+	 * 
+	 * @return the names of the additional parameters
+	 */
+	public List<String> getExtraParameterNames() {
+		return extraParameterNames;
+	}
+}
@@ -16,9 +16,11 @@
 package com.github.misberner.duzzt.model;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -27,16 +29,29 @@ import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.TypeParameterElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 
 import com.github.misberner.apcommons.util.Visibility;
+import com.github.misberner.apcommons.util.annotations.AnnotationUtils;
+import com.github.misberner.apcommons.util.methods.MethodUtils;
+import com.github.misberner.apcommons.util.methods.ParameterInfo;
 import com.github.misberner.apcommons.util.types.TypeUtils;
+import com.github.misberner.duzzt.ActionModel;
 import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.annotations.DSLAction;
+import com.github.misberner.duzzt.annotations.DSLReset;
+import com.github.misberner.duzzt.annotations.StateClassStyle;
 
-public class ImplementationModel {
+public class ImplementationModel implements ActionModel {
+	
+	/**
+	 * The maximum number of repetitions for which fixed-arity overloads are generated.
+	 */
+	public static final int MAX_FIXED_ARITY_REPETITIONS = 4;
 	
 	public static ImplementationModel create(
 			TypeElement type,
@@ -54,6 +69,12 @@ public class ImplementationModel {
 	private final List<DuzztAction> allActions = new ArrayList<>();
 	private final List<DuzztAction> globalActions = new ArrayList<>();
 	private final List<DuzztAction> terminatorActions = new ArrayList<>();
+	private final Map<DuzztAction,List<FixedArityOverload>> fixedArityOverloads = new HashMap<>();
+	private final Map<DuzztAction,BulkBinding> bulkBindings = new HashMap<>();
+	private ExecutableElement resetMethod;
+	private final Map<DuzztAction,TapeOperation> tapeOperations = new HashMap<>();
+	private final Map<DuzztAction,TapeOperation> bulkTapeOperations = new HashMap<>();
+	private final List<TapeOperation> tapeOperationList = new ArrayList<>();
 	
 	private final List<ForwardConstructor> forwardConstructors = new ArrayList<>();
 	
@@ -68,7 +89,18 @@ public class ImplementationModel {
 	
 	private void initialize(DSLSettings settings, Elements elementUtils, Types typeUtils) {
 		findForwardConstructors(settings, typeUtils);
-		findActions(settings, elementUtils);
+		List<ExecutableElement> methods = getMethods(settings, elementUtils);
+		findActions(settings, methods);
+		findBulkBindings(methods, elementUtils, typeUtils);
+		findRepetitionOverloads(typeUtils);
+		if(settings.isReusable()) {
+			findResetMethod(methods);
+			checkGeneratedNames("reset", "threadLocalInstance");
+		}
+		if(settings.isRecording()) {
+			findTapeOperations(settings, elementUtils, typeUtils);
+			checkGeneratedNames("replay", "prepare");
+		}
 	}
 	
 	public TypeElement getType() {
@@ -126,8 +158,80 @@ public class ImplementationModel {
 		return Collections.unmodifiableList(terminatorActions);
 	}
 	
+	/**
+	 * Retrieves the fixed-arity overloads of all actions for which auto varargs creation
+	 * is enabled. Actions without any such overloads are not contained in the map.
+	 * 
+	 * @return a map from actions to their fixed-arity overloads
+	 */
+	public Map<DuzztAction,List<FixedArityOverload>> getFixedArityOverloads() {
+		return Collections.unmodifiableMap(fixedArityOverloads);
+	}
+	
+	/**
+	 * Retrieves the bulk methods bound to actions via {@link DSLAction#bulk()}. Actions
+	 * without a bulk method are not contained in the map.
+	 * 
+	 * @return a map from actions to their bulk bindings
+	 */
+	public Map<DuzztAction,BulkBinding> getBulkBindings() {
+		return Collections.unmodifiableMap(bulkBindings);
+	}
+	
+	
+	/**
+	 * Retrieves the method annotated with {@link DSLReset}, which is called when resetting
+	 * a reusable EDSL object.
+	 * 
+	 * @return the reset method, or {@code null} if there is none or the EDSL is not reusable
+	 */
+	public ExecutableElement getResetMethod() {
+		return resetMethod;
+	}
+	
+	
+	/**
+	 * Retrieves the operations recorded for the (non-terminating) actions of an EDSL in
+	 * recording mode. Actions declaring checked exceptions cannot be recorded, and hence
+	 * are not contained in the map.
+	 * 
+	 * @return a map from actions to their recorded operations, which is empty if the EDSL
+	 * is not in recording mode
+	 */
+	public Map<DuzztAction,TapeOperation> getTapeOperations() {
+		return Collections.unmodifiableMap(tapeOperations);
+	}
+	
+	/**
+	 * Retrieves the operations recorded for the bulk methods bound to actions of an EDSL
+	 * in recording mode.
+	 * 
+	 * @return a map from actions to the recorded operations of their bulk methods
+	 * @see #getBulkBindings()
+	 */
+	public Map<DuzztAction,TapeOperation> getBulkTapeOperations() {
+		return Collections.unmodifiableMap(bulkTapeOperations);
+	}
 	
-	private void findActions(DSLSettings settings, Elements elementUtils) {
+	/**
+	 * Retrieves the recorded operations of the given actions and their bulk methods, ordered
+	 * by their operation codes.
+	 * 
+	 * @param actions the actions
+	 * @return the list of recorded operations
+	 */
+	public List<TapeOperation> getTapeOperations(Collection<? extends DuzztAction> actions) {
+		List<TapeOperation> result = new ArrayList<>();
+		for(TapeOperation op : tapeOperationList) {
+			if(actions.contains(op.getAction())) {
+				result.add(op);
+			}
+		}
+		return result;
+	}
+	
+	
+	private List<ExecutableElement> getMethods(DSLSettings settings, Elements elementUtils) {
 		List<? extends Element> members;
 		if(settings.isIncludeInherited()) {
 			members = elementUtils.getAllMembers(type);
@@ -135,10 +239,56 @@ public class ImplementationModel {
 		else {
 			members = type.getEnclosedElements();
 		}
-		List<? extends ExecutableElement> methods = ElementFilter.methodsIn(members);
+		return ElementFilter.methodsIn(members);
+	}
+	
+	private static DuzztAction createAction(ExecutableElement methodElement, DSLSettings settings) {
+		String name = methodElement.getSimpleName().toString();
+		
+		boolean global = false;
+		boolean enable = settings.isEnableAllMethods();
+		boolean autoVarArgs = settings.isDefaultAutoVarArgs(methodElement);
+		boolean terminator = settings.isDefaultTerminator(methodElement);
+		String bulkMethodName = null;
+		
+		if(methodElement.getAnnotation(DSLReset.class) != null) {
+			return null;
+		}
 		
+		DSLAction actionAnn = methodElement.getAnnotation(DSLAction.class);
+		if(actionAnn != null) {
+			Set<String> valuesSet
+				= AnnotationUtils.getAnnotationValues(methodElement, DSLAction.class).keySet();
+			
+			enable = actionAnn.enable();
+			if(!enable) {
+				return null;
+			}
+			
+			global = actionAnn.global();
+			
+			if(valuesSet.contains("terminator")) {
+				terminator = actionAnn.terminator();
+			}
+			
+			if(valuesSet.contains("autoVarArgs")) {
+				autoVarArgs = actionAnn.autoVarArgs(); 
+			}
+			
+			if(!actionAnn.bulk().isEmpty()) {
+				bulkMethodName = actionAnn.bulk();
+			}
+		}
+		else if(!enable) {
+			return null;
+		}
+		
+		return new DuzztAction(methodElement, name, global, terminator, autoVarArgs, bulkMethodName);
+	}
+	
+	private void findActions(DSLSettings settings, List<ExecutableElement> methods) {
 		for(ExecutableElement m : methods) {
-			DuzztAction a = DuzztAction.fromMethod(m, settings);
+			DuzztAction a = createAction(m, settings);
 			if(a != null) {
 				String name = a.getName();
 				List<DuzztAction> lst = actionLists.get(name);
@@ -159,6 +309,195 @@ public class ImplementationModel {
 		}
 	}
 	
+	private void findBulkBindings(List<ExecutableElement> methods, Elements elementUtils, Types typeUtils) {
+		TypeMirror listType = typeUtils.erasure(elementUtils.getTypeElement(List.class.getName()).asType());
+		
+		for(DuzztAction a : allActions) {
+			String bulkName = a.getBulkMethodName();
+			if(bulkName == null) {
+				continue;
+			}
+			if(a.getParameters().isEmpty()) {
+				throw new IllegalArgumentException("Action " + a.getMethod() + " has no parameters, "
+						+ "and thus cannot be bound to a bulk method");
+			}
+			ExecutableElement bulkMethod = null;
+			for(ExecutableElement m : methods) {
+				if(!m.getSimpleName().contentEquals(bulkName) || Visibility.of(m) == Visibility.PRIVATE
+						|| !isBulkMethodFor(m, a, elementUtils, typeUtils)) {
+					continue;
+				}
+				if(bulkMethod != null) {
+					throw new IllegalArgumentException("Bulk method '" + bulkName + "' for action "
+							+ a.getMethod() + " is ambiguous");
+				}
+				bulkMethod = m;
+			}
+			if(bulkMethod == null) {
+				throw new IllegalArgumentException("No suitable bulk method '" + bulkName + "' for action "
+						+ a.getMethod() + " found in " + type);
+			}
+			TypeMirror lastType = last(a.getParameters()).getType();
+			TypeMirror bulkType = typeUtils.erasure(last(MethodUtils.getParameterInfos(bulkMethod)).getType());
+			// The element type of the array must not refer to type parameters of the action
+			boolean arrayOverload = bulkType.getKind() != TypeKind.ARRAY && !lastType.getKind().isPrimitive()
+					&& a.getTypeParameters().isEmpty() && typeUtils.isAssignable(listType, bulkType);
+			bulkBindings.put(a, new BulkBinding(bulkMethod, arrayOverload));
+		}
+	}
+	
+	private static boolean isBulkMethodFor(ExecutableElement method, DuzztAction action,
+			Elements elementUtils, Types typeUtils) {
+		List<ParameterInfo> actionParams = action.getParameters();
+		TypeMirror elementType = BulkBinding.getBulkElementType(actionParams, method, elementUtils, typeUtils);
+		// Mismatching element types are reported by CheckDSLActionUsage
+		return elementType != null
+				&& BulkBinding.isCompatibleElementType(elementType, last(actionParams).getType(), typeUtils);
+	}
+	
+	private void findResetMethod(List<ExecutableElement> methods) {
+		// Illegal usages of @DSLReset are reported by CheckDSLResetUsage
+		for(ExecutableElement m : methods) {
+			if(m.getAnnotation(DSLReset.class) != null && m.getParameters().isEmpty()
+					&& Visibility.of(m) != Visibility.PRIVATE) {
+				resetMethod = m;
+				break;
+			}
+		}
+	}
+	
+	private void findTapeOperations(DSLSettings settings, Elements elementUtils, Types typeUtils) {
+		if(settings.getStateStyle() != StateClassStyle.INNER_CLASSES) {
+			throw new IllegalArgumentException("Recording is only supported with state style "
+					+ StateClassStyle.INNER_CLASSES);
+		}
+		TypeMirror runtimeExType = elementUtils.getTypeElement(RuntimeException.class.getName()).asType();
+		TypeMirror errorType = elementUtils.getTypeElement(Error.class.getName()).asType();
+		
+		// Operation codes follow the same deterministic order of actions as the state IDs
+		List<DuzztAction> sortedActions = new ArrayList<>(allActions);
+		Collections.sort(sortedActions, new DuzztAction.ActionComparator(typeUtils));
+		int numActions = sortedActions.size();
+		for(int i = 0; i < numActions; i++) {
+			DuzztAction a = sortedActions.get(i);
+			if(!a.isTerminator() && !declaresCheckedExceptions(a.getMethod(), runtimeExType, errorType, typeUtils)) {
+				tapeOperations.put(a, createTapeOperation(i, a, a.getMethod(), typeUtils));
+			}
+		}
+		int opcode = numActions;
+		for(DuzztAction a : sortedActions) {
+			BulkBinding bulk = bulkBindings.get(a);
+			if(bulk == null || a.isTerminator()) {
+				continue;
+			}
+			if(declaresCheckedExceptions(bulk.getMethod(), runtimeExType, errorType, typeUtils)) {
+				throw new IllegalArgumentException("Bulk method " + bulk.getMethod() + " declares checked "
+						+ "exceptions, and thus cannot be recorded");
+			}
+			bulkTapeOperations.put(a, createTapeOperation(opcode++, a, bulk.getMethod(), typeUtils));
+		}
+	}
+	
+	private TapeOperation createTapeOperation(int opcode, DuzztAction action, ExecutableElement method,
+			Types typeUtils) {
+		TapeOperation op = new TapeOperation(opcode, action, method, typeUtils);
+		tapeOperationList.add(op);
+		return op;
+	}
+	
+	private static boolean declaresCheckedExceptions(ExecutableElement method, TypeMirror runtimeExType,
+			TypeMirror errorType, Types typeUtils) {
+		for(TypeMirror thrown : method.getThrownTypes()) {
+			if(!typeUtils.isAssignable(thrown, runtimeExType) && !typeUtils.isAssignable(thrown, errorType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private void checkGeneratedNames(String... generatedNames) {
+		for(String generatedName : generatedNames) {
+			List<DuzztAction> actions = actionLists.get(generatedName);
+			if(actions == null) {
+				continue;
+			}
+			for(DuzztAction a : actions) {
+				if(a.getParameters().isEmpty()) {
+					throw new IllegalArgumentException("Action " + a.getMethod() + " clashes with the method "
+							+ generatedName + "() generated for this EDSL");
+				}
+			}
+		}
+	}
+	
+	private void findRepetitionOverloads(Types typeUtils) {
+		for(List<DuzztAction> actions : actionLists.values()) {
+			// The overloads of all actions with the same name are generated into the same class
+			// in the worst case, hence their (erased) signatures must not clash with each other,
+			// nor with those of the actions themselves. Bulk overloads are requested explicitly
+			// and hence take precedence over fixed-arity overloads.
+			Set<List<String>> signatures = new HashSet<>();
+			for(DuzztAction a : actions) {
+				signatures.add(erasedSignature(a, 0, typeUtils));
+			}
+			for(DuzztAction a : actions) {
+				BulkBinding bulk = bulkBindings.get(a);
+				if(bulk == null) {
+					continue;
+				}
+				List<String> bulkSignature = new ArrayList<>();
+				for(ParameterInfo p : bulk.getParameters()) {
+					bulkSignature.add(typeUtils.erasure(p.getType()).toString());
+				}
+				checkBulkSignature(a, bulkSignature, signatures);
+				if(bulk.isArrayOverload()) {
+					List<String> arraySignature = new ArrayList<>(bulkSignature.subList(0, bulkSignature.size() - 1));
+					TypeMirror lastType = typeUtils.erasure(last(a.getParameters()).getType());
+					arraySignature.add(typeUtils.getArrayType(lastType).toString());
+					checkBulkSignature(a, arraySignature, signatures);
+				}
+			}
+			for(DuzztAction a : actions) {
+				if(!a.isAutoVarArgs()) {
+					continue;
+				}
+				List<FixedArityOverload> overloads = new ArrayList<>();
+				for(int i = 2; i <= MAX_FIXED_ARITY_REPETITIONS; i++) {
+					if(signatures.add(erasedSignature(a, i - 1, typeUtils))) {
+						overloads.add(new FixedArityOverload(a, i));
+					}
+				}
+				if(!overloads.isEmpty()) {
+					fixedArityOverloads.put(a, overloads);
+				}
+			}
+		}
+	}
+	
+	private static void checkBulkSignature(DuzztAction action, List<String> signature, Set<List<String>> signatures) {
+		if(!signatures.add(signature)) {
+			throw new IllegalArgumentException("Bulk overload " + action.getName() + signature
+					+ " of action " + action.getMethod() + " clashes with another overload");
+		}
+	}
+	
+	private static <T> T last(List<T> list) {
+		return list.get(list.size() - 1);
+	}
+	
+	private static List<String> erasedSignature(DuzztAction action, int extraRepetitions, Types typeUtils) {
+		List<String> result = new ArrayList<>();
+		String lastType = null;
+		for(ParameterInfo p : action.getParameters()) {
+			lastType = typeUtils.erasure(p.getType()).toString();
+			result.add(lastType);
+		}
+		for(int i = 0; i < extraRepetitions; i++) {
+			result.add(lastType);
+		}
+		return result;
+	}
+	
 	private void findForwardConstructors(DSLSettings settings, Types typeUtils) {
 		if(!TypeUtils.isStandaloneInstantiable(type)) {
 			return;
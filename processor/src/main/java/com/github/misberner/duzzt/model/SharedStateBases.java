@@ -0,0 +1,273 @@
+/*
+ *
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.automaton.DuzztAutomaton;
+import com.github.misberner.duzzt.automaton.DuzztState;
+import com.github.misberner.duzzt.automaton.DuzztTransition;
+
+/**
+ * Determines the base classes shared by the non-initial states of an automaton.
+ * <p>
+ * The <i>common transitions</i> are those which all non-initial states have, and which
+ * either are terminating in all of them, or are self-loops in all of them. This is the case
+ * for global actions (unless they only occur in the initial state), and for terminator
+ * actions which are applicable everywhere. They are generated once, in a common base class
+ * of all non-initial states, which is parameterized by the type of the state class itself.
+ * <p>
+ * The remaining (<i>own</i>) transitions are used to group the states that expose the same
+ * methods, i.e., that have own transitions for the same actions, and agree on which of
+ * them are terminating and which of them are {@link DuzztTransition#isRepeatable() repeatable}.
+ * The methods of the states in such a group only differ in the successor states they return,
+ * and are hence generated once, in an abstract base class which has one type parameter for
+ * each of the non-terminating transitions. The successor states are obtained from abstract
+ * methods, which are implemented by the state classes extending the base class.
+ * <p>
+ * Only groups of at least two states are considered, as a single state would not benefit
+ * from a base class.
+ * <p>
+ * As the common and shared base classes become part of the API of the EDSL, they are only
+ * generated if enabled via the
+ * {@value com.github.misberner.duzzt.processor.Duzzt#OPTION_SHARED_STATE_BASES} option.
+ */
+public final class SharedStateBases {
+	
+	/**
+	 * A transition of a base class, taken from the first state of its group.
+	 */
+	public static final class SharedTransition {
+		private final DuzztTransition transition;
+		private final int slot;
+		
+		private SharedTransition(DuzztTransition transition, int slot) {
+			this.transition = transition;
+			this.slot = slot;
+		}
+		
+		public DuzztTransition getTransition() {
+			return transition;
+		}
+		
+		/**
+		 * Retrieves the index of the type parameter representing the successor state.
+		 * @return the index of the successor type parameter, or {@code -1} if this is a
+		 * terminating transition
+		 */
+		public int getSlot() {
+			return slot;
+		}
+		
+		public boolean isTerminating() {
+			return (slot == -1);
+		}
+	}
+	
+	/**
+	 * A base class shared by a group of states.
+	 */
+	public static final class Base {
+		private final int id;
+		private final List<SharedTransition> transitions;
+		private final List<SharedTransition> slots;
+		
+		private Base(int id, List<DuzztTransition> representativeTransitions) {
+			this.id = id;
+			List<SharedTransition> transitions = new ArrayList<>();
+			List<SharedTransition> slots = new ArrayList<>();
+			for(DuzztTransition t : representativeTransitions) {
+				if(t.getSuccessor() == null) {
+					transitions.add(new SharedTransition(t, -1));
+				}
+				else {
+					SharedTransition st = new SharedTransition(t, slots.size());
+					transitions.add(st);
+					slots.add(st);
+				}
+			}
+			this.transitions = Collections.unmodifiableList(transitions);
+			this.slots = Collections.unmodifiableList(slots);
+		}
+		
+		public int getId() {
+			return id;
+		}
+		
+		public List<SharedTransition> getTransitions() {
+			return transitions;
+		}
+		
+		/**
+		 * Retrieves the non-terminating transitions, in the order of the type parameters
+		 * representing their successor states.
+		 * @return the non-terminating transitions
+		 */
+		public List<SharedTransition> getSlots() {
+			return slots;
+		}
+	}
+	
+	/**
+	 * The binding of a state to its base class.
+	 */
+	public static final class Binding {
+		private final Base base;
+		private final List<DuzztState> successors;
+		
+		private Binding(Base base, DuzztState state) {
+			this.base = base;
+			List<DuzztState> successors = new ArrayList<>();
+			for(SharedTransition st : base.getSlots()) {
+				successors.add(state.getSuccessor(st.getTransition().getAction()));
+			}
+			this.successors = Collections.unmodifiableList(successors);
+		}
+		
+		public Base getBase() {
+			return base;
+		}
+		
+		/**
+		 * Retrieves the successor states, i.e., the type arguments for the base class.
+		 * @return the successor states, in the order of the slots of the base class
+		 */
+		public List<DuzztState> getSuccessors() {
+			return successors;
+		}
+	}
+	
+	private final List<DuzztTransition> commonTransitions;
+	private final Map<DuzztState,List<DuzztTransition>> ownTransitions;
+	private final List<Base> bases;
+	private final Map<DuzztState,Binding> bindings;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param automaton the automaton, after its state IDs have been reassigned
+	 * @param enabled whether common and shared base classes should be determined at all. If not,
+	 * there are no common transitions and no bases, and all transitions are own transitions
+	 */
+	public SharedStateBases(DuzztAutomaton automaton, boolean enabled) {
+		List<DuzztState> states = automaton.getNonInitialStates();
+		List<DuzztTransition> commonTransitions = new ArrayList<>();
+		Set<DuzztAction> commonActions = new HashSet<>();
+		if(enabled && states.size() >= 2) {
+			for(DuzztTransition t : states.get(0).getTransitions()) {
+				if(isCommon(t.getAction(), states)) {
+					commonTransitions.add(t);
+					commonActions.add(t.getAction());
+				}
+			}
+		}
+		this.commonTransitions = Collections.unmodifiableList(commonTransitions);
+		
+		Map<DuzztState,List<DuzztTransition>> ownTransitions = new HashMap<>();
+		Map<List<Object>,List<DuzztState>> groups = new LinkedHashMap<>();
+		for(DuzztState s : states) {
+			List<DuzztTransition> own = new ArrayList<>();
+			List<Object> key = new ArrayList<>();
+			for(DuzztTransition t : s.getTransitions()) {
+				if(commonActions.contains(t.getAction())) {
+					continue;
+				}
+				own.add(t);
+				key.add(Arrays.asList(t.getAction(), t.getSuccessor() == null, t.isRepeatable()));
+			}
+			ownTransitions.put(s, Collections.unmodifiableList(own));
+			List<DuzztState> group = groups.get(key);
+			if(group == null) {
+				group = new ArrayList<>();
+				groups.put(key, group);
+			}
+			group.add(s);
+		}
+		
+		List<Base> bases = new ArrayList<>();
+		Map<DuzztState,Binding> bindings = new HashMap<>();
+		for(Map.Entry<List<Object>,List<DuzztState>> e : groups.entrySet()) {
+			List<DuzztState> group = e.getValue();
+			// A base class without any (own) transitions would be empty
+			if(!enabled || group.size() < 2 || e.getKey().isEmpty()) {
+				continue;
+			}
+			Base base = new Base(bases.size(), ownTransitions.get(group.get(0)));
+			bases.add(base);
+			for(DuzztState s : group) {
+				bindings.put(s, new Binding(base, s));
+			}
+		}
+		this.ownTransitions = Collections.unmodifiableMap(ownTransitions);
+		this.bases = Collections.unmodifiableList(bases);
+		this.bindings = Collections.unmodifiableMap(bindings);
+	}
+	
+	private static boolean isCommon(DuzztAction action, List<DuzztState> states) {
+		DuzztTransition first = states.get(0).getTransition(action);
+		boolean terminating = (first.getSuccessor() == null);
+		for(DuzztState s : states) {
+			DuzztTransition t = s.getTransition(action);
+			if(t == null) {
+				return false;
+			}
+			if(terminating ? (t.getSuccessor() != null) : (t.getSuccessor() != s)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Retrieves the common transitions of all non-initial states, taken from the first of
+	 * them. The non-terminating ones are self-loops.
+	 * @return the common transitions, or an empty list if there is no common base class
+	 */
+	public List<DuzztTransition> getCommonTransitions() {
+		return commonTransitions;
+	}
+	
+	/**
+	 * Retrieves the own transitions of the non-initial states, i.e., those that are not
+	 * common transitions.
+	 * @return a map from non-initial states to their own transitions
+	 */
+	public Map<DuzztState,List<DuzztTransition>> getOwnTransitions() {
+		return ownTransitions;
+	}
+	
+	public List<Base> getBases() {
+		return bases;
+	}
+	
+	/**
+	 * Retrieves the bindings of the states which extend a base class.
+	 * @return a map from states to their bindings
+	 */
+	public Map<DuzztState,Binding> getBindings() {
+		return bindings;
+	}
+}
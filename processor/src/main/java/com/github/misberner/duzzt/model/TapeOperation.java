@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+import com.github.misberner.apcommons.util.methods.MethodUtils;
+import com.github.misberner.apcommons.util.methods.ParameterInfo;
+import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
+
+/**
+ * An operation recorded on the tape of an EDSL in {@link GenerateEmbeddedDSL#recording() recording}
+ * mode, i.e., the invocation of an action or bulk method of the implementation class.
+ * <p>
+ * Arguments of primitive type are stored in a {@code long[]} tape, all other arguments
+ * in an {@code Object[]} tape, in the order of the parameters.
+ */
+public final class TapeOperation {
+	
+	/**
+	 * Expression for reading the next primitive value from the tape during replay.
+	 */
+	public static final String PRIMITIVE_SOURCE = "__duzzt_prims[__duzzt_p++]";
+	
+	/**
+	 * Expression for reading the next reference from the tape during replay.
+	 */
+	public static final String REFERENCE_SOURCE = "__duzzt_refs[__duzzt_r++]";
+	
+	/**
+	 * An argument of a recorded operation.
+	 */
+	public static final class Argument {
+		private final String name;
+		private final boolean primitive;
+		private final String encode;
+		private final String decode;
+		
+		private Argument(ParameterInfo param, boolean erase, Types typeUtils) {
+			this.name = param.getName();
+			TypeMirror type = param.getType();
+			this.primitive = type.getKind().isPrimitive();
+			switch(type.getKind()) {
+			case BOOLEAN:
+				this.encode = "(" + name + " ? 1L : 0L)";
+				this.decode = "(" + PRIMITIVE_SOURCE + " != 0L)";
+				break;
+			case FLOAT:
+				this.encode = "Float.floatToRawIntBits(" + name + ")";
+				this.decode = "Float.intBitsToFloat((int) " + PRIMITIVE_SOURCE + ")";
+				break;
+			case DOUBLE:
+				this.encode = "Double.doubleToRawLongBits(" + name + ")";
+				this.decode = "Double.longBitsToDouble(" + PRIMITIVE_SOURCE + ")";
+				break;
+			case LONG:
+				this.encode = name;
+				this.decode = PRIMITIVE_SOURCE;
+				break;
+			case BYTE:
+			case SHORT:
+			case INT:
+			case CHAR:
+				this.encode = name;
+				this.decode = "(" + type + ") " + PRIMITIVE_SOURCE;
+				break;
+			default:
+				// Type variables of the method are not in scope during replay
+				TypeMirror castType = erase ? typeUtils.erasure(type) : type;
+				this.encode = name;
+				this.decode = "(" + castType + ") " + REFERENCE_SOURCE;
+			}
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public boolean isPrimitive() {
+			return primitive;
+		}
+		
+		/**
+		 * Retrieves the expression for the value stored on the tape.
+		 * @return the expression for the value to store
+		 */
+		public String getEncode() {
+			return encode;
+		}
+		
+		/**
+		 * Retrieves the expression for reading the argument from the tape during replay.
+		 * @return the expression for reading the argument
+		 */
+		public String getDecode() {
+			return decode;
+		}
+	}
+	
+	private final int opcode;
+	private final DuzztAction action;
+	private final ExecutableElement method;
+	private final List<ParameterInfo> parameters;
+	private final List<Argument> arguments;
+	private final int numPrimitives;
+	private final TypeMirror erasedReturnType;
+	private final List<TypeMirror> erasedParameterTypes;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param opcode the operation code
+	 * @param action the action this operation is recorded for
+	 * @param method the method of the implementation class to invoke during replay, i.e.,
+	 * the method of the action or its bulk method
+	 * @param typeUtils the type utilities
+	 */
+	public TapeOperation(int opcode, DuzztAction action, ExecutableElement method, Types typeUtils) {
+		this.opcode = opcode;
+		this.action = action;
+		this.method = method;
+		this.parameters = MethodUtils.getParameterInfos(method);
+		boolean erase = !method.getTypeParameters().isEmpty();
+		List<Argument> args = new ArrayList<>(parameters.size());
+		List<TypeMirror> erasedParamTypes = new ArrayList<>(parameters.size());
+		int prims = 0;
+		for(ParameterInfo p : parameters) {
+			Argument arg = new Argument(p, erase, typeUtils);
+			if(arg.isPrimitive()) {
+				prims++;
+			}
+			args.add(arg);
+			erasedParamTypes.add(typeUtils.erasure(p.getType()));
+		}
+		this.arguments = Collections.unmodifiableList(args);
+		this.numPrimitives = prims;
+		this.erasedReturnType = typeUtils.erasure(method.getReturnType());
+		this.erasedParameterTypes = Collections.unmodifiableList(erasedParamTypes);
+	}
+	
+	public int getOpcode() {
+		return opcode;
+	}
+	
+	public DuzztAction getAction() {
+		return action;
+	}
+	
+	public ExecutableElement getMethod() {
+		return method;
+	}
+	
+	public List<ParameterInfo> getParameters() {
+		return parameters;
+	}
+	
+	public List<? extends TypeParameterElement> getTypeParameters() {
+		return method.getTypeParameters();
+	}
+	
+	public List<Argument> getArguments() {
+		return arguments;
+	}
+	
+	public int getNumPrimitives() {
+		return numPrimitives;
+	}
+	
+	public int getNumReferences() {
+		return arguments.size() - numPrimitives;
+	}
+	
+	/**
+	 * Retrieves the erased return type of the method, as required for looking up a
+	 * {@link java.lang.invoke.MethodHandle} for it.
+	 * @return the erased return type
+	 */
+	public TypeMirror getErasedReturnType() {
+		return erasedReturnType;
+	}
+	
+	/**
+	 * Retrieves the erased parameter types of the method, as required for looking up a
+	 * {@link java.lang.invoke.MethodHandle} for it.
+	 * @return the erased parameter types
+	 */
+	public List<TypeMirror> getErasedParameterTypes() {
+		return erasedParameterTypes;
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ *
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.automaton.DuzztAutomaton;
+import com.github.misberner.duzzt.automaton.DuzztState;
+import com.github.misberner.duzzt.automaton.DuzztTransition;
+
+/**
+ * The transition table of an automaton in terms of the operation codes of an EDSL in
+ * recording mode. It is used for checking whether a recorded sequence of operations
+ * forms a valid call chain when it is prepared.
+ * <p>
+ * States are numbered as in the {@link TransitionTable}, i.e., the initial state always has
+ * index {@code 0}. Note that these indices differ from the state IDs, which are only unique
+ * among the non-initial states.
+ */
+public final class TapeStepTable {
+	
+	/**
+	 * A transition of the table.
+	 */
+	public static final class Step {
+		private final int opcode;
+		private final int successor;
+		
+		private Step(int opcode, int successor) {
+			this.opcode = opcode;
+			this.successor = successor;
+		}
+		
+		public int getOpcode() {
+			return opcode;
+		}
+		
+		public int getSuccessor() {
+			return successor;
+		}
+	}
+	
+	/**
+	 * A state of the table, along with its outgoing transitions.
+	 */
+	public static final class Row {
+		private final int state;
+		private final List<Step> steps;
+		
+		private Row(int state, List<Step> steps) {
+			this.state = state;
+			this.steps = Collections.unmodifiableList(steps);
+		}
+		
+		public int getState() {
+			return state;
+		}
+		
+		public List<Step> getSteps() {
+			return steps;
+		}
+	}
+	
+	private final List<Row> rows;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param automaton the automaton
+	 * @param implementation the implementation model, providing the recorded operations
+	 */
+	public TapeStepTable(DuzztAutomaton automaton, ImplementationModel implementation) {
+		Map<DuzztState,Integer> indices = TransitionTable.indexStates(automaton);
+		
+		Map<DuzztAction,TapeOperation> tapeOps = implementation.getTapeOperations();
+		Map<DuzztAction,TapeOperation> bulkTapeOps = implementation.getBulkTapeOperations();
+		
+		List<Row> rows = new ArrayList<>();
+		for(DuzztState s : automaton.getStates()) {
+			List<Step> steps = new ArrayList<>();
+			for(DuzztTransition t : s.getTransitions()) {
+				DuzztState succ = t.getSuccessor();
+				if(succ == null) {
+					continue;
+				}
+				int succIdx = indices.get(succ);
+				steps.add(new Step(tapeOps.get(t.getAction()).getOpcode(), succIdx));
+				TapeOperation bulkOp = bulkTapeOps.get(t.getAction());
+				if(bulkOp != null && t.isRepeatable()) {
+					steps.add(new Step(bulkOp.getOpcode(), succIdx));
+				}
+			}
+			if(!steps.isEmpty()) {
+				rows.add(new Row(indices.get(s), steps));
+			}
+		}
+		this.rows = Collections.unmodifiableList(rows);
+	}
+	
+	/**
+	 * Retrieves the states with at least one outgoing transition.
+	 * @return the list of states with outgoing transitions
+	 */
+	public List<Row> getRows() {
+		return rows;
+	}
+}
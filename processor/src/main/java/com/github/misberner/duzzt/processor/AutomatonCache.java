@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.processor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.util.Types;
+
+import com.github.misberner.apcommons.util.methods.ParameterInfo;
+import com.github.misberner.duzzt.CompilerEngine;
+import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
+import com.github.misberner.duzzt.annotations.SubExpr;
+import com.github.misberner.duzzt.automaton.DuzztAutomaton;
+import com.github.misberner.duzzt.automaton.DuzztState;
+import com.github.misberner.duzzt.automaton.DuzztTransition;
+
+/**
+ * An on-disk cache for compiled {@link DuzztAutomaton automata}.
+ * <p>
+ * Entries are keyed by a SHA-256 hash of everything the compilation result depends on:
+ * the syntax and subexpression definitions from the {@link GenerateEmbeddedDSL}
+ * annotation, the signatures and flags of all actions, and the compiler engine. The
+ * automata are stored <i>after</i> their state IDs have been reassigned, such that a
+ * cached automaton can be rendered directly. Transitions refer to actions by their
+ * index in the list of actions sorted via {@link DuzztAction.ActionComparator}, and are
+ * restored in the order in which they were stored.
+ */
+final class AutomatonCache {
+
+	private static final int MAGIC = 0x445a4143; // "DZAC"
+	// Increment whenever the key computation, the file format, or the compilation semantics change
+	private static final int FORMAT_VERSION = 2;
+
+	private static final String FILE_SUFFIX = ".dzc";
+
+	private final Path cacheDir;
+
+	/**
+	 * Constructor.
+	 * @param cacheDir the directory to store cached automata in. Will be created on demand.
+	 */
+	public AutomatonCache(Path cacheDir) {
+		this.cacheDir = cacheDir;
+	}
+
+	/**
+	 * Computes the cache key for a DSL.
+	 *
+	 * @param annotation the annotation specifying the DSL
+	 * @param engine the engine used for compiling the DSL
+	 * @param maxStates the maximum number of states the DSL is compiled with. Automata are only
+	 * cached if their compilation did not exceed this limit, hence it must be part of the key
+	 * @param sortedActions the actions of the DSL, sorted by {@link DuzztAction.ActionComparator}
+	 * @param types the type utilities
+	 * @return the (hex-encoded) cache key
+	 */
+	public String computeKey(GenerateEmbeddedDSL annotation, CompilerEngine engine, int maxStates,
+			List<DuzztAction> sortedActions, Types types) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException ex) {
+			throw new AssertionError("SHA-256 must be supported by every Java platform", ex);
+		}
+
+		try(DataOutputStream out = new DataOutputStream(new DigestOutputStream(new NullOutputStream(), digest))) {
+			out.writeInt(FORMAT_VERSION);
+			writeString(engine.name(), out);
+			out.writeInt(maxStates);
+			writeString(annotation.syntax(), out);
+			SubExpr[] subExprs = annotation.where();
+			out.writeInt(subExprs.length);
+			for(SubExpr subExpr : subExprs) {
+				writeString(subExpr.name(), out);
+				writeString(subExpr.definedAs(), out);
+				out.writeBoolean(subExpr.ownScope());
+			}
+			out.writeInt(sortedActions.size());
+			for(DuzztAction action : sortedActions) {
+				writeString(action.getName(), out);
+				List<ParameterInfo> params = action.getParameters();
+				out.writeInt(params.size());
+				for(ParameterInfo param : params) {
+					writeString(types.erasure(param.getType()).toString(), out);
+				}
+				writeString(types.erasure(action.getReturnType()).toString(), out);
+				out.writeBoolean(action.isGlobal());
+				out.writeBoolean(action.isTerminator());
+			}
+		}
+		catch(IOException ex) {
+			throw new AssertionError("Writing to a digest stream must not fail", ex);
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for(byte b : digest.digest()) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+			sb.append(Character.forDigit(b & 0xf, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Loads a cached automaton.
+	 *
+	 * @param key the cache key
+	 * @param sortedActions the actions of the DSL, sorted by {@link DuzztAction.ActionComparator}
+	 * @return the cached automaton, or {@code null} if there is no cache entry for this key
+	 * @throws IOException if the cache entry exists, but cannot be read
+	 */
+	public DuzztAutomaton load(String key, List<DuzztAction> sortedActions) throws IOException {
+		Path file = cacheDir.resolve(key + FILE_SUFFIX);
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if(in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				throw new IOException("Cache entry " + file + " has an unsupported format");
+			}
+			int numActions = in.readInt();
+			if(numActions != sortedActions.size()) {
+				throw new IOException("Cache entry " + file + " does not match the DSL actions");
+			}
+			int numStates = in.readInt();
+			int initIdx = in.readInt();
+			checkIndex(initIdx, numStates, file);
+
+			List<DuzztState> states = new ArrayList<>(numStates);
+			for(int i = 0; i < numStates; i++) {
+				states.add(new DuzztState(-1));
+			}
+			for(DuzztState state : states) {
+				state.setId(in.readInt());
+				int numTransitions = in.readInt();
+				for(int j = 0; j < numTransitions; j++) {
+					int actionIdx = in.readInt();
+					checkIndex(actionIdx, numActions, file);
+					int succIdx = in.readInt();
+					DuzztState succ = null;
+					if(succIdx != -1) {
+						checkIndex(succIdx, numStates, file);
+						succ = states.get(succIdx);
+					}
+					state.addTransition(sortedActions.get(actionIdx), succ);
+				}
+			}
+			return new DuzztAutomaton(states, states.get(initIdx));
+		}
+		catch(NoSuchFileException ex) {
+			return null;
+		}
+		catch(EOFException ex) {
+			throw new IOException("Cache entry " + file + " is truncated", ex);
+		}
+	}
+
+	/**
+	 * Stores an automaton in the cache. The entry is first written to a temporary file,
+	 * which is then moved to its final location, so that concurrent builds sharing the
+	 * same cache directory never observe partially written entries.
+	 *
+	 * @param key the cache key
+	 * @param automaton the automaton to store
+	 * @param sortedActions the actions of the DSL, sorted by {@link DuzztAction.ActionComparator}
+	 * @throws IOException if writing the cache entry fails
+	 */
+	public void store(String key, DuzztAutomaton automaton, List<DuzztAction> sortedActions) throws IOException {
+		Map<DuzztAction,Integer> actionIndices = new HashMap<>();
+		for(DuzztAction action : sortedActions) {
+			actionIndices.put(action, actionIndices.size());
+		}
+		List<DuzztState> states = automaton.getStates();
+		Map<DuzztState,Integer> stateIndices = new HashMap<>();
+		for(DuzztState state : states) {
+			stateIndices.put(state, stateIndices.size());
+		}
+
+		Files.createDirectories(cacheDir);
+		Path tmpFile = Files.createTempFile(cacheDir, key, ".tmp");
+		try {
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeInt(sortedActions.size());
+				out.writeInt(states.size());
+				out.writeInt(stateIndices.get(automaton.getInitialState()));
+				for(DuzztState state : states) {
+					out.writeInt(state.getId());
+					out.writeInt(state.getTransitions().size());
+					for(DuzztTransition t : state.getTransitions()) {
+						out.writeInt(actionIndices.get(t.getAction()));
+						DuzztState succ = t.getSuccessor();
+						out.writeInt((succ == null) ? -1 : stateIndices.get(succ));
+					}
+				}
+			}
+			Path file = cacheDir.resolve(key + FILE_SUFFIX);
+			try {
+				Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(AtomicMoveNotSupportedException ex) {
+				Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally {
+			Files.deleteIfExists(tmpFile);
+		}
+	}
+
+	private static void checkIndex(int idx, int size, Path file) throws IOException {
+		if(idx < 0 || idx >= size) {
+			throw new IOException("Cache entry " + file + " is corrupt");
+		}
+	}
+
+	private static void writeString(String str, DataOutputStream out) throws IOException {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static final class NullOutputStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+
+}
@@ -15,6 +15,7 @@
  */
 package com.github.misberner.duzzt.processor;
 
+import java.util.List;
 import java.util.Map;
 
 import javax.lang.model.element.AnnotationMirror;
@@ -22,15 +23,22 @@ import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
 
 import com.github.misberner.apcommons.processing.AbstractSingleAnnotationProcessor;
 import com.github.misberner.apcommons.processing.exceptions.ProcessingException;
 import com.github.misberner.apcommons.reporting.AnnotationReporter;
 import com.github.misberner.apcommons.util.APUtils;
+import com.github.misberner.apcommons.util.Visibility;
 import com.github.misberner.apcommons.util.annotations.AnnotationUtils;
 import com.github.misberner.apcommons.util.methods.MethodUtils;
+import com.github.misberner.apcommons.util.methods.ParameterInfo;
 import com.github.misberner.duzzt.annotations.DSLAction;
 import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
+import com.github.misberner.duzzt.model.BulkBinding;
 
 /**
  * Processor for checking the usage of {@link DSLAction} annotations.
@@ -42,6 +50,8 @@ import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
  * <ul>
  * <li>the enclosing type is not annotated with a {@link GenerateEmbeddedDSL} annotation.</li>
  * <lI>it is used on an override of one of the methods defined by the {@link Object} class.</li>
+ * <li>the bulk method specified via {@link DSLAction#bulk()} only exists with an element
+ * type that does not match the type of the last parameter of the action.</li>
  * </ul>
  * Furthermore, it is discouraged to specify any other values if {@link DSLAction#enable()}
  * is set to {@code false}.
@@ -98,6 +108,55 @@ final class CheckDSLActionUsage extends AbstractSingleAnnotationProcessor<DSLAct
 			rep.error("Using method '", methodElem.getSimpleName(), "' defined by Object class ",
 					"as DSL action is illegal");
 		}
+		else if(!annotation.bulk().isEmpty()) {
+			AnnotationValue bulkValue = AnnotationUtils.getAnnotationValues(annotationMirror).get("bulk");
+			checkBulkMethod(methodElem, enclosingType, generateDslAnnotation, annotation.bulk(),
+					rep.forValue(bulkValue), utils);
+		}
+	}
+	
+	/**
+	 * Checks whether the candidates for the bulk method of an action, i.e., the methods with
+	 * the given name whose other parameters match those of the action, have an element type
+	 * matching the last parameter of the action. If no candidate matches, an error is reported
+	 * for the first mismatching one. Missing bulk methods are reported when creating the
+	 * implementation model.
+	 */
+	private static void checkBulkMethod(ExecutableElement methodElem, TypeElement enclosingType,
+			GenerateEmbeddedDSL generateDslAnnotation, String bulkName, AnnotationReporter rep,
+			APUtils utils) {
+		List<ParameterInfo> actionParams = MethodUtils.getParameterInfos(methodElem);
+		if(actionParams.isEmpty()) {
+			return;
+		}
+		TypeMirror paramType = actionParams.get(actionParams.size() - 1).getType();
+		Elements elementUtils = utils.getElementUtils();
+		Types typeUtils = utils.getTypeUtils();
+		
+		List<? extends Element> members = generateDslAnnotation.includeInherited()
+				? elementUtils.getAllMembers(enclosingType) : enclosingType.getEnclosedElements();
+		ExecutableElement mismatch = null;
+		TypeMirror mismatchType = null;
+		for(ExecutableElement m : ElementFilter.methodsIn(members)) {
+			if(!m.getSimpleName().contentEquals(bulkName) || Visibility.of(m) == Visibility.PRIVATE) {
+				continue;
+			}
+			TypeMirror elementType = BulkBinding.getBulkElementType(actionParams, m, elementUtils, typeUtils);
+			if(elementType == null) {
+				continue;
+			}
+			if(BulkBinding.isCompatibleElementType(elementType, paramType, typeUtils)) {
+				return;
+			}
+			if(mismatch == null) {
+				mismatch = m;
+				mismatchType = elementType;
+			}
+		}
+		if(mismatch != null) {
+			rep.error("Element type ", mismatchType, " of bulk method ", mismatch,
+					" does not match the type ", paramType, " of the last parameter of this action");
+		}
 	}
 	
 	
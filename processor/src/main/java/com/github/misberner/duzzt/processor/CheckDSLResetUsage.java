@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.processor;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+
+import com.github.misberner.apcommons.processing.AbstractSingleAnnotationProcessor;
+import com.github.misberner.apcommons.processing.exceptions.ProcessingException;
+import com.github.misberner.apcommons.reporting.AnnotationReporter;
+import com.github.misberner.apcommons.util.APUtils;
+import com.github.misberner.apcommons.util.Visibility;
+import com.github.misberner.duzzt.annotations.DSLReset;
+import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
+
+/**
+ * Processor for checking the usage of {@link DSLReset} annotations.
+ * <p>
+ * This processor does not generate any code. It merely checks the usage of {@link DSLReset}
+ * annotations and issues errors or warnings in case of illegal or discouraged behavior,
+ * as described in the documentation of {@link DSLReset}.
+ */
+final class CheckDSLResetUsage extends AbstractSingleAnnotationProcessor<DSLReset> {
+	
+	public CheckDSLResetUsage() {
+		super(DSLReset.class);
+	}
+
+	@Override
+	public void process(Element elem, AnnotationMirror annotationMirror,
+			DSLReset annotation, APUtils utils) throws Exception,
+			ProcessingException {
+		if(!(elem instanceof ExecutableElement)) {
+			throw new IllegalStateException("Method-only annotation " + DSLReset.class.getSimpleName()
+					+ " used on non-method element");
+		}
+		ExecutableElement methodElem = (ExecutableElement)elem;
+		
+		Element enclosing = methodElem.getEnclosingElement();
+		
+		if(!(enclosing instanceof TypeElement)) {
+			throw new IllegalStateException("Enclosing element of method is not a type element");
+		}
+		
+		TypeElement enclosingType = (TypeElement)enclosing;
+		
+		GenerateEmbeddedDSL generateDslAnnotation
+			= enclosingType.getAnnotation(GenerateEmbeddedDSL.class);
+		
+		AnnotationReporter rep = utils.getReporter(methodElem, DSLReset.class);
+		
+		if(generateDslAnnotation == null) {
+			rep.error("Enclosing class or interface of this method must be annotated ",
+					"with @", GenerateEmbeddedDSL.class.getSimpleName(), ", or remove @",
+					DSLReset.class.getSimpleName(), " annotation");
+			return;
+		}
+		if(!methodElem.getParameters().isEmpty()) {
+			rep.error("Reset method must not have any parameters");
+		}
+		if(Visibility.of(methodElem) == Visibility.PRIVATE) {
+			rep.error("Reset method must not be private");
+		}
+		for(ExecutableElement m : ElementFilter.methodsIn(enclosingType.getEnclosedElements())) {
+			if(m == methodElem) {
+				break;
+			}
+			if(m.getAnnotation(DSLReset.class) != null) {
+				rep.error("@", DSLReset.class.getSimpleName(), " must not be used on more than one ",
+						"method, already used on method ", m.getSimpleName());
+				break;
+			}
+		}
+		if(!generateDslAnnotation.reusable()) {
+			rep.warning("@", DSLReset.class.getSimpleName(), " has no effect, as the EDSL is not ",
+					"reusable");
+		}
+	}
+	
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.Diagnostic.Kind;
+
+import com.github.misberner.apcommons.reporting.Reporter;
+
+/**
+ * A {@link Reporter} that records all messages, such that they can be replayed to another
+ * reporter later on. This allows work that produces diagnostics to be carried out on threads
+ * other than the compiler thread, which is the only one allowed to access the
+ * {@link javax.annotation.processing.Messager}.
+ * <p>
+ * Instances of this class are not thread-safe, each worker has to use its own instance.
+ */
+final class DeferredReporter implements Reporter {
+	
+	private static final class Message {
+		private final Kind kind;
+		private final Object[] msgs;
+		
+		public Message(Kind kind, Object[] msgs) {
+			this.kind = kind;
+			this.msgs = msgs;
+		}
+	}
+	
+	private final List<Message> messages = new ArrayList<>();
+	
+	/**
+	 * Replays all recorded messages, in the order in which they were reported.
+	 * 
+	 * @param target the reporter to forward the messages to
+	 */
+	public void replay(Reporter target) {
+		for(Message msg : messages) {
+			target.message(msg.kind, msg.msgs);
+		}
+	}
+
+	@Override
+	public void error(Object... msgs) {
+		message(Kind.ERROR, msgs);
+	}
+
+	@Override
+	public void warning(Object... msgs) {
+		message(Kind.WARNING, msgs);
+	}
+
+	@Override
+	public void mandatoryWarning(Object... msgs) {
+		message(Kind.MANDATORY_WARNING, msgs);
+	}
+
+	@Override
+	public void note(Object... msgs) {
+		message(Kind.NOTE, msgs);
+	}
+
+	@Override
+	public void other(Object... msgs) {
+		message(Kind.OTHER, msgs);
+	}
+
+	@Override
+	public void message(Kind kind, Object... msgs) {
+		messages.add(new Message(kind, msgs));
+	}
+
+}
@@ -16,13 +16,21 @@
  */
 package com.github.misberner.duzzt.processor;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
@@ -45,14 +53,28 @@ import org.stringtemplate.v4.STWriter;
 import com.github.misberner.apcommons.reporting.Reporter;
 import com.github.misberner.apcommons.util.APUtils;
 import com.github.misberner.apcommons.util.ElementUtils;
+import com.github.misberner.duzzt.CompilerEngine;
+import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.DuzztCompiler;
 import com.github.misberner.duzzt.DuzztDiagnosticListener;
+import com.github.misberner.duzzt.PhaseTimer;
 import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
+import com.github.misberner.duzzt.annotations.StateClassStyle;
+import com.github.misberner.duzzt.annotations.StateInit;
 import com.github.misberner.duzzt.automaton.DuzztAutomaton;
-import com.github.misberner.duzzt.bricscompiler.BricsCompiler;
+import com.github.misberner.duzzt.automaton.DuzztState;
+import com.github.misberner.duzzt.automaton.DuzztTransition;
+import com.github.misberner.duzzt.classfile.ClassFileGenerator;
+import com.github.misberner.duzzt.exceptions.ClassFileLimitExceededException;
 import com.github.misberner.duzzt.exceptions.DuzztInitializationException;
+import com.github.misberner.duzzt.exceptions.StateLimitExceededException;
 import com.github.misberner.duzzt.model.DSLSettings;
 import com.github.misberner.duzzt.model.DSLSpecification;
 import com.github.misberner.duzzt.model.ImplementationModel;
+import com.github.misberner.duzzt.model.SharedStateBases;
+import com.github.misberner.duzzt.model.TapeOperation;
+import com.github.misberner.duzzt.model.TapeStepTable;
+import com.github.misberner.duzzt.model.TransitionTable;
 import com.github.misberner.duzzt.re.DuzztREUtil;
 import com.github.misberner.duzzt.re.DuzztRegExp;
 
@@ -109,9 +131,101 @@ public class Duzzt {
 	private static final String ST_RESOURCE_NAME = "/stringtemplates/edsl-source.stg";
 	
 	private static final String ST_MAIN_TEMPLATE_NAME = "edsl_source";
+	private static final String ST_STATE_TEMPLATE_NAME = "state_source";
+	private static final String ST_BASE_TEMPLATE_NAME = "base_source";
+	private static final String ST_COMMON_TEMPLATE_NAME = "common_source";
+	
+	/**
+	 * Processor option for selecting the {@link CompilerEngine} (case-insensitive).
+	 */
+	public static final String OPTION_COMPILER = "duzzt.compiler";
+	
+	/**
+	 * Processor option for specifying a directory in which compiled automata are cached
+	 * across builds.
+	 */
+	public static final String OPTION_CACHE_DIR = "duzzt.cacheDir";
+	
+	/**
+	 * Processor option for specifying the number of threads used for compiling the automata
+	 * of all DSLs in a round. A value of {@code 0} selects the number of available processors.
+	 * If not specified, all DSLs are processed sequentially on the compiler thread.
+	 */
+	public static final String OPTION_THREADS = "duzzt.threads";
+	
+	/**
+	 * Processor option for specifying the maximum number of states of the automata constructed
+	 * while compiling a DSL, unless overridden by {@link GenerateEmbeddedDSL#maxStates()}. A
+	 * value of {@code 0} disables the limit.
+	 */
+	public static final String OPTION_MAX_STATES = "duzzt.maxStates";
+	
+	/**
+	 * The default value for {@link #OPTION_MAX_STATES}.
+	 */
+	public static final int DEFAULT_MAX_STATES = DuzztCompiler.DEFAULT_MAX_STATES;
+	
+	/**
+	 * Processor option for enabling the collection of timing and size statistics, which are
+	 * reported as notes.
+	 */
+	public static final String OPTION_STATS = "duzzt.stats";
+	
+	/**
+	 * Processor option for specifying a file to write a machine-readable (JSON) report of
+	 * the statistics to. Implies {@link #OPTION_STATS}.
+	 */
+	public static final String OPTION_STATS_FILE = "duzzt.statsFile";
+	
+	/**
+	 * Processor option for generating the class files of the EDSL classes directly, instead
+	 * of their source code, which saves compiling the generated code in another round. EDSLs
+	 * using features not supported by {@link ClassFileGenerator} are still generated as source
+	 * code. Note that javac 8 only picks up the generated class files if the class output
+	 * directory is on the class path, which is the case for Maven and Gradle builds.
+	 */
+	public static final String OPTION_CLASS_FILES = "duzzt.classFiles";
+	
+	/**
+	 * Processor option for specifying the number of states above which the state classes of
+	 * a DSL are generated as top-level classes, each in a compilation unit of its own, instead
+	 * of nested classes of the DSL class. A value of {@code 0} disables splitting.
+	 */
+	public static final String OPTION_SPLIT_THRESHOLD = "duzzt.splitThreshold";
+	
+	/**
+	 * The default value for {@link #OPTION_SPLIT_THRESHOLD}.
+	 */
+	public static final int DEFAULT_SPLIT_THRESHOLD = 500;
+	
+	/**
+	 * Processor option for generating base classes of the state classes of DSLs using the
+	 * {@link StateClassStyle#INNER_CLASSES} state style: a common base class declaring the
+	 * transitions shared by all states, and base classes shared by states exposing the same
+	 * methods, see {@link SharedStateBases}. This reduces the size of the generated code for
+	 * large DSLs, at the price of additional public (abstract) classes in the API of the EDSL.
+	 * Disabled by default.
+	 */
+	public static final String OPTION_SHARED_STATE_BASES = "duzzt.sharedStateBases";
+	
+	private static final String PHASE_SETTINGS = "settings";
+	private static final String PHASE_MODEL = "model";
+	private static final String PHASE_CACHE = "cache";
+	private static final String PHASE_REASSIGN_IDS = "reassignStateIds";
+	private static final String PHASE_RENDERING = "rendering";
+	private static final String PHASE_WRITING = "writing";
 	
 	private STGroup sourceGenGroup;
 	private boolean isJava9OrNewer;
+	private CompilerEngine compilerEngine = CompilerEngine.BRICS;
+	private AutomatonCache automatonCache;
+	private int numThreads = 1;
+	private int maxStates = DEFAULT_MAX_STATES;
+	private int splitThreshold = DEFAULT_SPLIT_THRESHOLD;
+	private boolean statsEnabled;
+	private boolean classFiles;
+	private boolean sharedStateBases;
+	private StatisticsReport statsReport;
 	
 	/**
 	 * Default constructor.
@@ -119,6 +233,16 @@ public class Duzzt {
 	public Duzzt() {
 	}
 	
+	/**
+	 * Retrieves the number of threads to use for compiling automata, as specified via
+	 * {@link #OPTION_THREADS}.
+	 * 
+	 * @return the number of threads, {@code 1} meaning sequential processing
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+	
 	public boolean isInitialized() {
 		return (sourceGenGroup != null);
 	}
@@ -148,6 +272,112 @@ public class Duzzt {
 		}
 
 		this.isJava9OrNewer = isJava9OrNewer(utils.getProcessingEnv().getSourceVersion());
+		
+		String compilerName = utils.getProcessingEnv().getOptions().get(OPTION_COMPILER);
+		if(compilerName != null) {
+			try {
+				this.compilerEngine = CompilerEngine.forName(compilerName);
+			}
+			catch(IllegalArgumentException ex) {
+				throw new DuzztInitializationException("Invalid value for option " + OPTION_COMPILER
+						+ ": " + ex.getMessage(), ex);
+			}
+		}
+		
+		String cacheDir = utils.getProcessingEnv().getOptions().get(OPTION_CACHE_DIR);
+		if(cacheDir != null) {
+			try {
+				this.automatonCache = new AutomatonCache(Paths.get(cacheDir));
+			}
+			catch(InvalidPathException ex) {
+				throw new DuzztInitializationException("Invalid value for option " + OPTION_CACHE_DIR
+						+ ": " + ex.getMessage(), ex);
+			}
+		}
+		
+		String threads = utils.getProcessingEnv().getOptions().get(OPTION_THREADS);
+		if(threads != null) {
+			try {
+				this.numThreads = Integer.parseInt(threads.trim());
+			}
+			catch(NumberFormatException ex) {
+				throw new DuzztInitializationException("Invalid value for option " + OPTION_THREADS
+						+ ": " + ex.getMessage(), ex);
+			}
+			if(numThreads < 0) {
+				throw new DuzztInitializationException("Invalid value for option " + OPTION_THREADS
+						+ ": number of threads must not be negative");
+			}
+			if(numThreads == 0) {
+				this.numThreads = Runtime.getRuntime().availableProcessors();
+			}
+		}
+		
+		String maxStatesStr = utils.getProcessingEnv().getOptions().get(OPTION_MAX_STATES);
+		if(maxStatesStr != null) {
+			try {
+				this.maxStates = Integer.parseInt(maxStatesStr.trim());
+			}
+			catch(NumberFormatException ex) {
+				throw new DuzztInitializationException("Invalid value for option " + OPTION_MAX_STATES
+						+ ": " + ex.getMessage(), ex);
+			}
+			if(maxStates < 0) {
+				throw new DuzztInitializationException("Invalid value for option " + OPTION_MAX_STATES
+						+ ": maximum number of states must not be negative");
+			}
+		}
+		
+		String splitThresholdStr = utils.getProcessingEnv().getOptions().get(OPTION_SPLIT_THRESHOLD);
+		if(splitThresholdStr != null) {
+			try {
+				this.splitThreshold = Integer.parseInt(splitThresholdStr.trim());
+			}
+			catch(NumberFormatException ex) {
+				throw new DuzztInitializationException("Invalid value for option " + OPTION_SPLIT_THRESHOLD
+						+ ": " + ex.getMessage(), ex);
+			}
+			if(splitThreshold < 0) {
+				throw new DuzztInitializationException("Invalid value for option " + OPTION_SPLIT_THRESHOLD
+						+ ": number of states must not be negative");
+			}
+		}
+		
+		Map<String,String> options = utils.getProcessingEnv().getOptions();
+		// -Aduzzt.stats is a flag, i.e., it has no value
+		this.statsEnabled = (options.containsKey(OPTION_STATS) && !"false".equals(options.get(OPTION_STATS)))
+				|| options.containsKey(OPTION_STATS_FILE);
+		this.classFiles = options.containsKey(OPTION_CLASS_FILES) && !"false".equals(options.get(OPTION_CLASS_FILES));
+		this.sharedStateBases = options.containsKey(OPTION_SHARED_STATE_BASES)
+				&& !"false".equals(options.get(OPTION_SHARED_STATE_BASES));
+		String statsFile = options.get(OPTION_STATS_FILE);
+		// init is invoked once per round, but the report covers all rounds
+		if(statsFile != null && statsReport == null) {
+			try {
+				this.statsReport = new StatisticsReport(Paths.get(statsFile));
+			}
+			catch(InvalidPathException ex) {
+				throw new DuzztInitializationException("Invalid value for option " + OPTION_STATS_FILE
+						+ ": " + ex.getMessage(), ex);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the statistics report, if one was requested via {@link #OPTION_STATS_FILE}.
+	 * 
+	 * @param reporter reporter for warnings if writing the report fails
+	 */
+	public void writeStatisticsReport(Reporter reporter) {
+		if(statsReport == null) {
+			return;
+		}
+		try {
+			statsReport.write();
+		}
+		catch(IOException ex) {
+			reporter.warning("Could not write statistics report: ", ex.getMessage());
+		}
 	}
 	
 	/**
@@ -164,6 +394,26 @@ public class Duzzt {
 	 */
 	public void process(Element elem, GenerateEmbeddedDSL annotation,
 			Elements elementUtils, Types typeUtils, Filer filer, Reporter reporter) throws IOException {
+		GenerationJob job = prepare(elem, annotation, elementUtils, typeUtils, reporter);
+		if(compile(job, reporter)) {
+			render(job, filer);
+		}
+	}
+	
+	/**
+	 * Prepares the generation of the embedded DSL for an annotated element, by extracting
+	 * all required information from the {@link javax.lang.model} elements. Must be invoked
+	 * on the compiler thread.
+	 * 
+	 * @param elem the element to process (must be class or interface)
+	 * @param annotation the annotation specifying the EDSL
+	 * @param elementUtils {@link javax.lang.model} element utilities class
+	 * @param typeUtils {@link javax.lang.model} type utilities
+	 * @param reporter reporter for error and warning reporting
+	 * @return the generation job, to be passed to {@link #compile(GenerationJob, Reporter)}
+	 */
+	GenerationJob prepare(Element elem, GenerateEmbeddedDSL annotation,
+			Elements elementUtils, Types typeUtils, Reporter reporter) {
 		
 		if(!ElementUtils.checkElementKind(elem, ElementKind.CLASS, ElementKind.INTERFACE)) {
 			throw new IllegalArgumentException("Annotation " + GenerateEmbeddedDSL.class.getSimpleName()
@@ -172,20 +422,210 @@ public class Duzzt {
 		
 		TypeElement te = (TypeElement)elem;
 		
-		ReporterDiagnosticListener dl = new ReporterDiagnosticListener(reporter);
+		PhaseTimer timer = statsEnabled ? new PhaseTimer() : PhaseTimer.DISABLED;
 		
+		long start = timer.start();
 		DSLSettings settings = new DSLSettings(annotation);
+		timer.stop(PHASE_SETTINGS, start);
 		
+		start = timer.start();
 		DSLSpecification spec = DSLSpecification.create(te, settings, elementUtils, typeUtils);
 		
-		BricsCompiler compiler = new BricsCompiler(spec.getImplementation());
+		if(spec.getStateInit() != StateInit.LAZY && spec.getStateStyle() != StateClassStyle.INNER_CLASSES) {
+			reporter.warning("State initialization ", spec.getStateInit(), " has no effect with state style ",
+					spec.getStateStyle(), ", as no state objects are stored");
+		}
 		
-		DuzztAutomaton automaton = compiler.compile(spec.getDSLSyntax(), spec.getSubExpressions());
-
-		// Make sure classes have same name if generated twice from the same spec
-		automaton.reassignStateIds(typeUtils);
+		if(spec.isReusable() && !spec.isThreadLocalInstances()) {
+			reporter.note("No thread-local instances of reusable EDSL ", spec.getClassName(),
+					" are provided, as it has no constructor without parameters");
+		}
+		
+		CompilerEngine engine = compilerEngine;
+		if(!engine.supports(spec.getImplementation())) {
+			reporter.note("The ", engine, " compiler engine does not support this DSL, using the ",
+					CompilerEngine.DIRECT, " engine instead");
+			engine = CompilerEngine.DIRECT;
+		}
+		
+		List<DuzztAction> sortedActions = new ArrayList<>(spec.getImplementation().getAllActions());
+		Collections.sort(sortedActions, new DuzztAction.ActionComparator(typeUtils));
+		timer.stop(PHASE_MODEL, start);
+		
+		String cacheKey = null;
+		if(automatonCache != null) {
+			start = timer.start();
+			cacheKey = automatonCache.computeKey(annotation, engine, getStateLimit(spec), sortedActions,
+					typeUtils);
+			timer.stop(PHASE_CACHE, start);
+		}
+		
+		return new GenerationJob(spec, engine, sortedActions, cacheKey, reporter, timer);
+	}
+	
+	/**
+	 * Retrieves the maximum number of states when compiling the given DSL, as specified
+	 * either in its annotation or via the {@value #OPTION_MAX_STATES} option.
+	 * 
+	 * @param spec the DSL specification
+	 * @return the maximum number of states
+	 */
+	private int getStateLimit(DSLSpecification spec) {
+		return (spec.getMaxStates() >= 0) ? spec.getMaxStates() : maxStates;
+	}
+	
+	/**
+	 * Compiles the automaton of a prepared generation job, or loads it from the cache. This
+	 * method does not access any {@link javax.lang.model} elements or compiler utilities, and
+	 * may hence be invoked on any thread, given that the reporter can be used from that thread.
+	 * 
+	 * @param job the generation job, as returned by {@link #prepare}
+	 * @param reporter reporter for error and warning reporting
+	 * @return {@code true} if the automaton was compiled successfully, {@code false} if
+	 * compilation was aborted (in which case an error has been reported)
+	 */
+	boolean compile(GenerationJob job, Reporter reporter) {
+		DSLSpecification spec = job.getSpecification();
+		PhaseTimer timer = job.getTimer();
 		
-		render(spec, automaton, filer, dl);
+		DuzztAutomaton automaton = null;
+		if(automatonCache != null) {
+			long start = timer.start();
+			try {
+				automaton = automatonCache.load(job.getCacheKey(), job.getSortedActions());
+			}
+			catch(IOException ex) {
+				reporter.warning("Could not read cached automaton, recompiling: ", ex.getMessage());
+			}
+			timer.stop(PHASE_CACHE, start);
+		}
+		
+		boolean cached = (automaton != null);
+		if(!cached) {
+			DuzztCompiler compiler = job.getEngine().createCompiler(spec.getImplementation(),
+					getStateLimit(spec), timer);
+			
+			try {
+				automaton = compiler.compile(spec.getDSLSyntax(), spec.getSubExpressions());
+			}
+			catch(StateLimitExceededException ex) {
+				new ReporterDiagnosticListener(reporter).stateLimitExceeded(ex.getMaxStates(),
+						ex.getExpressionName());
+				return false;
+			}
+	
+			// Make sure classes have same name if generated twice from the same spec
+			long start = timer.start();
+			automaton.reassignStateIds(job.getSortedActions());
+			timer.stop(PHASE_REASSIGN_IDS, start);
+			
+			if(automatonCache != null) {
+				start = timer.start();
+				try {
+					automatonCache.store(job.getCacheKey(), automaton, job.getSortedActions());
+				}
+				catch(IOException ex) {
+					reporter.warning("Could not write automaton to cache: ", ex.getMessage());
+				}
+				timer.stop(PHASE_CACHE, start);
+			}
+		}
+		
+		job.setAutomaton(automaton, cached);
+		
+		if(spec.isRecording() && !checkRecordedActions(spec, automaton, reporter)) {
+			return false;
+		}
+		if(spec.isTransitionTable() && !checkTransitionTable(spec, automaton, job.getSortedActions(), reporter)) {
+			return false;
+		}
+		if(spec.getStateStyle() == StateClassStyle.INTERFACES) {
+			return checkInterfaceStates(spec, automaton, reporter);
+		}
+		return true;
+	}
+	
+	/**
+	 * Checks whether all non-terminating actions of an automaton can be recorded, i.e., do
+	 * not declare any checked exceptions.
+	 */
+	private static boolean checkRecordedActions(DSLSpecification spec, DuzztAutomaton automaton,
+			Reporter reporter) {
+		Map<DuzztAction,TapeOperation> tapeOps = spec.getImplementation().getTapeOperations();
+		for(DuzztState state : automaton.getStates()) {
+			for(DuzztTransition t : state.getTransitions()) {
+				if(t.getSuccessor() != null && !tapeOps.containsKey(t.getAction())) {
+					reporter.error("Cannot record action '", t.getAction().getName(), "' of DSL ",
+							spec.getQualifiedClassName(), ", as it declares checked exceptions");
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Checks whether the state indices and action IDs of an automaton fit into the {@code char}s
+	 * used for encoding its {@link TransitionTable}, and whether the table does not exceed
+	 * {@link TransitionTable#MAX_SIZE}.
+	 */
+	private static boolean checkTransitionTable(DSLSpecification spec, DuzztAutomaton automaton,
+			List<DuzztAction> sortedActions, Reporter reporter) {
+		// One additional state is reached via terminating transitions
+		int numStates = automaton.getStates().size() + 1;
+		if(numStates > Character.MAX_VALUE || sortedActions.size() > Character.MAX_VALUE) {
+			reporter.error("Cannot generate the transition table of DSL ", spec.getQualifiedClassName(),
+					": it has ", numStates, " states and ", sortedActions.size(), " actions, but at most ",
+					(int) Character.MAX_VALUE, " of each are supported");
+			return false;
+		}
+		long size = (long) automaton.getStates().size() * sortedActions.size();
+		if(size > TransitionTable.MAX_SIZE) {
+			reporter.error("Cannot generate the transition table of DSL ", spec.getQualifiedClassName(),
+					": its ", automaton.getStates().size(), " states and ", sortedActions.size(),
+					" actions would require a table with ", size, " entries, but at most ",
+					TransitionTable.MAX_SIZE, " are supported");
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Checks whether the states of an automaton can be represented as interfaces that are all
+	 * implemented by a single class. This requires that every action either is terminating in
+	 * all non-initial states, or leads back to the initial state from all of them, or leads to
+	 * a non-initial state from all of them, as otherwise the return types in the implementing
+	 * class would conflict.
+	 */
+	private static boolean checkInterfaceStates(DSLSpecification spec, DuzztAutomaton automaton,
+			Reporter reporter) {
+		DuzztState init = automaton.getInitialState();
+		Map<DuzztAction,TransitionKind> kinds = new HashMap<>();
+		for(DuzztState state : automaton.getNonInitialStates()) {
+			for(DuzztTransition t : state.getTransitions()) {
+				TransitionKind kind = TransitionKind.of(t, init);
+				TransitionKind otherKind = kinds.put(t.getAction(), kind);
+				if(otherKind != null && otherKind != kind) {
+					reporter.error("Cannot use state style ", StateClassStyle.INTERFACES, " for DSL ",
+							spec.getQualifiedClassName(), ": action '", t.getAction().getName(),
+							"' is terminating or returns to the initial state only in some of the states",
+							" it is enabled in. Use ", StateClassStyle.INNER_CLASSES, " instead.");
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	private static enum TransitionKind {
+		TERMINATING, TO_INITIAL, TO_NON_INITIAL;
+		
+		public static TransitionKind of(DuzztTransition t, DuzztState init) {
+			if(t.getSuccessor() == null) {
+				return TERMINATING;
+			}
+			return (t.getSuccessor() == init) ? TO_INITIAL : TO_NON_INITIAL;
+		}
 	}
 	
 	private String isoDateFormat(Date date) {
@@ -195,11 +635,29 @@ public class Duzzt {
 		return fmt.format(date);
 	}
 
-	private Map<String, Object> buildGeneratorFlags(DSLSpecification spec) {
+	private Map<String, Object> buildGeneratorFlags(DSLSpecification spec, DuzztAutomaton automaton,
+			List<DuzztAction> sortedActions, boolean splitStates) {
 		final Map<String, Object> result = new HashMap<>();
 
 		result.put("java9OrNewer", this.isJava9OrNewer);
 		result.put("skipGeneratedAnnotation", spec.isSkipGeneratedAnnotation());
+		result.put("interfaceStates", spec.getStateStyle() == StateClassStyle.INTERFACES);
+		result.put("staticNestedStates", spec.getStateStyle() == StateClassStyle.STATIC_NESTED);
+		result.put("eagerStates", spec.getStateInit() == StateInit.EAGER);
+		result.put("safeLazyStates", spec.getStateInit() == StateInit.LAZY_SAFE);
+		result.put("splitStates", splitStates);
+		result.put("splitInnerStates", splitStates && spec.getStateStyle() == StateClassStyle.INNER_CLASSES);
+		if(spec.getStateStyle() == StateClassStyle.INNER_CLASSES) {
+			result.put("sharedBases", new SharedStateBases(automaton, sharedStateBases));
+		}
+		result.put("recording", spec.isRecording());
+		if(spec.isRecording()) {
+			result.put("tapeOperations", spec.getImplementation().getTapeOperations(automaton.getAllActions()));
+			result.put("tapeSteps", new TapeStepTable(automaton, spec.getImplementation()));
+		}
+		if(spec.isTransitionTable()) {
+			result.put("transitionTable", new TransitionTable(automaton, sortedActions));
+		}
 
 		return result;
 	}
@@ -215,19 +673,196 @@ public class Duzzt {
 		}
 	}
 	
-	private void render(DSLSpecification spec, DuzztAutomaton automaton,
-			Filer filer, ReporterDiagnosticListener diagnosticListener) throws IOException {
+	/**
+	 * Checks whether the state classes of an automaton are generated in compilation units of
+	 * their own, see {@link #OPTION_SPLIT_THRESHOLD}.
+	 */
+	private boolean isSplitStates(DuzztAutomaton automaton) {
+		return splitThreshold > 0 && automaton.getStates().size() > splitThreshold;
+	}
+	
+	/**
+	 * Renders the source code of a compiled generation job, or generates its class files
+	 * if {@link #OPTION_CLASS_FILES} is set. Must be invoked on the compiler thread.
+	 * 
+	 * @param job the generation job, after {@link #compile(GenerationJob, Reporter)} has been
+	 * invoked on it
+	 * @param filer the {@link Filer} used to write output files
+	 * @throws IOException if writing the generated source code or class files fails
+	 */
+	void render(GenerationJob job, Filer filer) throws IOException {
+		if(classFiles && generateClassFiles(job, filer)) {
+			return;
+		}
+		
+		DSLSpecification spec = job.getSpecification();
+		DuzztAutomaton automaton = job.getAutomaton();
+		PhaseTimer timer = job.getTimer();
+		
+		boolean splitStates = isSplitStates(automaton);
+		String generationDate = isoDateFormat(new Date());
+		Map<String,Object> flags = buildGeneratorFlags(spec, automaton, job.getSortedActions(), splitStates);
+		
+		long start = timer.start();
 		ST tpl = sourceGenGroup.getInstanceOf(ST_MAIN_TEMPLATE_NAME);
 		tpl.add("spec", spec);
 		tpl.add("automaton", automaton);
 		tpl.add("generatorClass", getClass());
-		tpl.add("generationDate", isoDateFormat(new Date()));
-		tpl.add("flags", buildGeneratorFlags(spec));
+		tpl.add("generationDate", generationDate);
+		tpl.add("flags", flags);
+		String source = renderTemplate(tpl, job);
+		timer.stop(PHASE_RENDERING, start);
+		
+		start = timer.start();
+		writeSource(spec.getQualifiedClassName(), source, spec, filer);
+		timer.stop(PHASE_WRITING, start);
+		int totalChars = source.length();
+		
+		if(splitStates) {
+			Map<String,Object> stateFlags = new HashMap<>(flags);
+			stateFlags.put("externalState", true);
+			SharedStateBases sharedBases = (SharedStateBases) flags.get("sharedBases");
+			if(sharedBases != null) {
+				if(!sharedBases.getCommonTransitions().isEmpty()) {
+					totalChars += renderSplitSource(job, ST_COMMON_TEMPLATE_NAME, null, null,
+							"__State", stateFlags, generationDate, filer);
+				}
+				for(SharedStateBases.Base base : sharedBases.getBases()) {
+					totalChars += renderSplitSource(job, ST_BASE_TEMPLATE_NAME, "base", base,
+							"__Base" + base.getId(), stateFlags, generationDate, filer);
+				}
+			}
+			// The state IDs are stable (see DuzztAutomaton#reassignStateIds), and so are the class names
+			for(DuzztState state : automaton.getNonInitialStates()) {
+				totalChars += renderSplitSource(job, ST_STATE_TEMPLATE_NAME, "state", state,
+						"__" + state.getId(), stateFlags, generationDate, filer);
+			}
+		}
+		
+		if(timer.isEnabled()) {
+			reportStatistics(job, false, totalChars);
+		}
+	}
+	
+	/**
+	 * Renders and writes a compilation unit of a split DSL, containing a single state class,
+	 * shared base class, or the common base class. The template attribute {@code attrName} is
+	 * only set if it is not {@code null}.
+	 * 
+	 * @return the length of the rendered source code
+	 */
+	private int renderSplitSource(GenerationJob job, String templateName, String attrName, Object attrValue,
+			String classNameSuffix, Map<String,Object> flags, String generationDate, Filer filer)
+			throws IOException {
+		DSLSpecification spec = job.getSpecification();
+		PhaseTimer timer = job.getTimer();
+		
+		long start = timer.start();
+		ST tpl = sourceGenGroup.getInstanceOf(templateName);
+		tpl.add("spec", spec);
+		if(attrName != null) {
+			tpl.add(attrName, attrValue);
+		}
+		tpl.add("generatorClass", getClass());
+		tpl.add("generationDate", generationDate);
+		tpl.add("flags", flags);
+		String source = renderTemplate(tpl, job);
+		timer.stop(PHASE_RENDERING, start);
+		
+		start = timer.start();
+		writeSource(spec.getQualifiedClassName() + classNameSuffix, source, spec, filer);
+		timer.stop(PHASE_WRITING, start);
+		return source.length();
+	}
+	
+	private static String renderTemplate(ST tpl, GenerationJob job) {
+		StringWriter sw = new StringWriter();
+		STWriter stWriter = new AutoIndentWriter(sw);
+		tpl.write(stWriter, new ReporterDiagnosticListener(job.getReporter()));
+		return sw.toString();
+	}
+	
+	private static void writeSource(String qualifiedName, String source, DSLSpecification spec, Filer filer)
+			throws IOException {
+		// The annotated type is the only originating element, as required for isolating incremental
+		// processing. Types the actions are inherited from need not be listed: as the annotated type
+		// depends on them, changing them causes it to be reprocessed anyway.
+		JavaFileObject jfo = filer.createSourceFile(qualifiedName, spec.getImplementation().getType());
+		try(Writer w = jfo.openWriter()) {
+			w.write(source);
+		}
+	}
+	
+	/**
+	 * Generates and writes the class files of a compiled generation job.
+	 * 
+	 * @return {@code true} if the class files were written, {@code false} if the EDSL is not
+	 * supported by the {@link ClassFileGenerator}, or a class exceeds the limits of the class
+	 * file format (in which case a note has been reported)
+	 */
+	private boolean generateClassFiles(GenerationJob job, Filer filer) throws IOException {
+		DSLSpecification spec = job.getSpecification();
+		PhaseTimer timer = job.getTimer();
+		
+		if(!ClassFileGenerator.supports(spec)) {
+			job.getReporter().note("Generating source code for EDSL ", spec.getClassName(),
+					" instead of class files: ", ClassFileGenerator.getUnsupportedFeature(spec));
+			return false;
+		}
+		
+		long start = timer.start();
+		Map<String,byte[]> classes;
+		try {
+			classes = new ClassFileGenerator(spec, job.getAutomaton(), isSplitStates(job.getAutomaton()),
+					sharedStateBases).generate();
+		}
+		catch(ClassFileLimitExceededException ex) {
+			job.getReporter().note("Generating source code for EDSL ", spec.getClassName(),
+					" instead of class files: ", ex.getMessage());
+			return false;
+		}
+		timer.stop(PHASE_RENDERING, start);
+		
+		start = timer.start();
+		int totalBytes = 0;
+		for(Map.Entry<String,byte[]> e : classes.entrySet()) {
+			JavaFileObject jfo = filer.createClassFile(e.getKey(), spec.getImplementation().getType());
+			try(OutputStream out = jfo.openOutputStream()) {
+				out.write(e.getValue());
+			}
+			totalBytes += e.getValue().length;
+		}
+		timer.stop(PHASE_WRITING, start);
+		
+		if(timer.isEnabled()) {
+			reportStatistics(job, true, totalBytes);
+		}
+		return true;
+	}
+	
+	private void reportStatistics(GenerationJob job, boolean classFiles, int outputSize) {
+		DuzztAutomaton automaton = job.getAutomaton();
+		int numTransitions = 0;
+		for(DuzztState state : automaton.getStates()) {
+			numTransitions += state.getTransitions().size();
+		}
+		int numStates = automaton.getStates().size();
+		Map<String,Long> phaseNanos = job.getTimer().getPhaseNanos();
+		
+		StringBuilder sb = new StringBuilder();
+		long totalNanos = 0L;
+		for(Map.Entry<String,Long> e : phaseNanos.entrySet()) {
+			sb.append(String.format(Locale.ROOT, "%s %.2fms, ", e.getKey(), e.getValue() / 1e6));
+			totalNanos += e.getValue();
+		}
+		job.getReporter().note("Duzzt statistics (", job.getEngine(), job.isCached() ? ", cached" : "",
+				"): ", sb, String.format(Locale.ROOT, "total %.2fms; ", totalNanos / 1e6),
+				numStates, " states, ", numTransitions, " transitions, ", outputSize,
+				classFiles ? " bytes of class files" : " characters of source");
 		
-		JavaFileObject jfo = filer.createSourceFile(spec.getQualifiedClassName(), spec.getImplementation().getType());
-		try(BufferedWriter w = new BufferedWriter(jfo.openWriter())) {
-			STWriter stWriter = new AutoIndentWriter(w);
-			tpl.write(stWriter, diagnosticListener);
+		if(statsReport != null) {
+			statsReport.add(job.getSpecification().getQualifiedClassName(), job.getEngine(), job.isCached(),
+					phaseNanos, numStates, numTransitions, classFiles, outputSize);
 		}
 	}
 }
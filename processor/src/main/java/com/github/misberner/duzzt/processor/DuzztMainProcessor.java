@@ -18,16 +18,29 @@ package com.github.misberner.duzzt.processor;
 
 import com.github.misberner.apcommons.processing.MultiModuleProcessor;
 
+import javax.annotation.processing.SupportedOptions;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
 
 @SupportedSourceVersion(SourceVersion.RELEASE_7)
+@SupportedOptions({
+	Duzzt.OPTION_COMPILER,
+	Duzzt.OPTION_CACHE_DIR,
+	Duzzt.OPTION_THREADS,
+	Duzzt.OPTION_MAX_STATES,
+	Duzzt.OPTION_STATS,
+	Duzzt.OPTION_STATS_FILE,
+	Duzzt.OPTION_CLASS_FILES,
+	Duzzt.OPTION_SPLIT_THRESHOLD,
+	Duzzt.OPTION_SHARED_STATE_BASES
+})
 public class DuzztMainProcessor extends MultiModuleProcessor {
 	
 	public DuzztMainProcessor() {
 		super(
 				new CheckDSLActionUsage(),
 				new CheckDSLConstructorUsage(),
+				new CheckDSLResetUsage(),
 				new GenerateEDSLProcessor());
 	}
 }
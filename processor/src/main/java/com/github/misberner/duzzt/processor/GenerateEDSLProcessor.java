@@ -15,6 +15,15 @@
  */
 package com.github.misberner.duzzt.processor;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 
@@ -26,6 +35,11 @@ import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
 
 /**
  * The processor that processes {@link GenerateEmbeddedDSL} annotations.
+ * <p>
+ * If more than one thread is configured (see {@link Duzzt#OPTION_THREADS}), the annotated
+ * types of a round are only prepared during {@link #process}. Their automata are then compiled
+ * concurrently on a {@link ForkJoinPool} in {@link #post}, after which the sources are rendered
+ * and written sequentially, in the order in which the types were encountered.
  * 
  * @author Malte Isberner <malte.isberner@gmail.com>
  *
@@ -33,6 +47,7 @@ import com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL;
 final class GenerateEDSLProcessor extends AbstractSingleAnnotationProcessor<GenerateEmbeddedDSL> {
 	
 	private final Duzzt duzzt = new Duzzt();
+	private final List<GenerationJob> pendingJobs = new ArrayList<>();
 
 	/**
 	 * Constructor.
@@ -63,10 +78,85 @@ final class GenerateEDSLProcessor extends AbstractSingleAnnotationProcessor<Gene
 		
 		Reporter reporter = utils.getReporter(elem, annotationMirror);
 		
-		duzzt.process(elem, annotation, utils.getElementUtils(), utils.getTypeUtils(), utils.getFiler(), reporter);
+		if(duzzt.getNumThreads() <= 1) {
+			duzzt.process(elem, annotation, utils.getElementUtils(), utils.getTypeUtils(), utils.getFiler(), reporter);
+		}
+		else {
+			pendingJobs.add(duzzt.prepare(elem, annotation, utils.getElementUtils(), utils.getTypeUtils(), reporter));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.github.misberner.apcommons.processing.AbstractSingleAnnotationProcessor#post(com.github.misberner.apcommons.util.APUtils)
+	 */
+	@Override
+	public void post(APUtils utils) throws Exception, ProcessingException {
+		processPendingJobs(utils);
+		duzzt.writeStatisticsReport(utils.getReporter());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.github.misberner.apcommons.processing.AbstractSingleAnnotationProcessor#postFailure(com.github.misberner.apcommons.util.APUtils)
+	 */
+	@Override
+	public void postFailure(APUtils utils) throws Exception, ProcessingException {
+		processPendingJobs(utils);
+		duzzt.writeStatisticsReport(utils.getReporter());
 	}
 	
-	
-	
+	private void processPendingJobs(APUtils utils) throws InterruptedException {
+		if(pendingJobs.isEmpty()) {
+			return;
+		}
+		
+		List<Callable<Boolean>> tasks = new ArrayList<>(pendingJobs.size());
+		final List<DeferredReporter> deferredReporters = new ArrayList<>(pendingJobs.size());
+		for(final GenerationJob job : pendingJobs) {
+			final DeferredReporter deferred = new DeferredReporter();
+			deferredReporters.add(deferred);
+			tasks.add(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					return duzzt.compile(job, deferred);
+				}
+			});
+		}
+		
+		ForkJoinPool pool = new ForkJoinPool(Math.min(duzzt.getNumThreads(), tasks.size()));
+		try {
+			List<Future<Boolean>> results = pool.invokeAll(tasks);
+			
+			for(int i = 0; i < pendingJobs.size(); i++) {
+				GenerationJob job = pendingJobs.get(i);
+				Reporter reporter = job.getReporter();
+				deferredReporters.get(i).replay(reporter);
+				try {
+					if(results.get(i).get()) {
+						duzzt.render(job, utils.getFiler());
+					}
+				}
+				catch(ExecutionException ex) {
+					// Unlike invalid specifications, unexpected exceptions are bugs, which are
+					// hard to track down without their type and stack trace
+					Throwable cause = ex.getCause();
+					reporter.error("Exception during annotation processing: ", cause.toString());
+					if(!(cause instanceof IllegalArgumentException)) {
+						StringWriter sw = new StringWriter();
+						cause.printStackTrace(new PrintWriter(sw));
+						reporter.error("Stack trace: ", sw.toString());
+					}
+				}
+				catch(Exception ex) {
+					reporter.error("Exception during annotation processing: ", ex.getMessage());
+				}
+			}
+		}
+		finally {
+			pool.shutdown();
+			pendingJobs.clear();
+		}
+	}
 	
 }
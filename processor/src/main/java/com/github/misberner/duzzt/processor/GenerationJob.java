@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.processor;
+
+import java.util.List;
+
+import com.github.misberner.apcommons.reporting.Reporter;
+import com.github.misberner.duzzt.CompilerEngine;
+import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.PhaseTimer;
+import com.github.misberner.duzzt.automaton.DuzztAutomaton;
+import com.github.misberner.duzzt.model.DSLSpecification;
+
+/**
+ * The state of generating the embedded DSL for a single annotated type. Generation is split
+ * into three phases (see {@link Duzzt#prepare}, {@link Duzzt#compile} and {@link Duzzt#render}),
+ * of which only the second one may be carried out on a thread other than the compiler thread.
+ */
+final class GenerationJob {
+	
+	private final DSLSpecification spec;
+	private final CompilerEngine engine;
+	private final List<DuzztAction> sortedActions;
+	private final String cacheKey;
+	private final Reporter reporter;
+	private final PhaseTimer timer;
+	
+	private DuzztAutomaton automaton;
+	private boolean cached;
+	
+	/**
+	 * Constructor.
+	 * 
+	 * @param spec the DSL specification
+	 * @param engine the engine to compile the DSL with
+	 * @param sortedActions all actions of the DSL, sorted by {@link DuzztAction.ActionComparator}
+	 * @param cacheKey the key of the compiled automaton in the cache, or {@code null} if
+	 * caching is disabled
+	 * @param reporter the reporter for messages concerning the annotated type
+	 * @param timer the timer for recording the processing phases
+	 */
+	public GenerationJob(DSLSpecification spec, CompilerEngine engine,
+			List<DuzztAction> sortedActions, String cacheKey, Reporter reporter, PhaseTimer timer) {
+		this.spec = spec;
+		this.engine = engine;
+		this.sortedActions = sortedActions;
+		this.cacheKey = cacheKey;
+		this.reporter = reporter;
+		this.timer = timer;
+	}
+	
+	public DSLSpecification getSpecification() {
+		return spec;
+	}
+	
+	public CompilerEngine getEngine() {
+		return engine;
+	}
+	
+	public List<DuzztAction> getSortedActions() {
+		return sortedActions;
+	}
+	
+	public String getCacheKey() {
+		return cacheKey;
+	}
+	
+	public Reporter getReporter() {
+		return reporter;
+	}
+	
+	public PhaseTimer getTimer() {
+		return timer;
+	}
+	
+	public DuzztAutomaton getAutomaton() {
+		return automaton;
+	}
+	
+	/**
+	 * Checks whether the automaton was loaded from the cache instead of being compiled.
+	 * 
+	 * @return {@code true} if the automaton was loaded from the cache, {@code false} otherwise
+	 */
+	public boolean isCached() {
+		return cached;
+	}
+	
+	void setAutomaton(DuzztAutomaton automaton, boolean cached) {
+		this.automaton = automaton;
+		this.cached = cached;
+	}
+	
+}
@@ -81,6 +81,18 @@ public class ReporterDiagnosticListener implements DuzztDiagnosticListener, STEr
 		reporter.warning("Subexpression <", subExprName, "> is never referenced");
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see com.github.misberner.duzzt.DuzztDiagnosticListener#stateLimitExceeded(int, java.lang.String)
+	 */
+	@Override
+	public void stateLimitExceeded(int maxStates, String exprName) {
+		reporter.error(prefix(exprName), "Automaton exceeds the maximum number of ", maxStates,
+				" states, compilation aborted. Check the expression for unintended nesting of",
+				" alternatives and modifiers, or raise the limit via the maxStates attribute or the ",
+				Duzzt.OPTION_MAX_STATES, " processor option");
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see com.github.misberner.duzzt.DuzztDiagnosticListener#info(java.lang.Object[])
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.processor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.github.misberner.duzzt.CompilerEngine;
+
+/**
+ * Machine-readable report of the per-DSL statistics collected if {@link Duzzt#OPTION_STATS_FILE}
+ * is set. The report is a JSON document of the form
+ * <pre>
+ * {"dsls": [
+ *   {"class": "com.example.MyDSL", "engine": "BRICS", "cached": false,
+ *    "phases": {"settings": 0.151, "model": 2.503, ...},
+ *    "states": 12, "transitions": 57, "sourceChars": 23411},
+ *   ...
+ * ]}
+ * </pre>
+ * where phase times are given in milliseconds. If class files are generated instead of source
+ * code (see {@link Duzzt#OPTION_CLASS_FILES}), {@code "sourceChars"} is replaced by
+ * {@code "classFileBytes"}. Since there is no notification when annotation
+ * processing is over, the report is rewritten in its entirety after every round.
+ */
+final class StatisticsReport {
+	
+	private final Path file;
+	private final List<String> entries = new ArrayList<>();
+	
+	/**
+	 * Constructor.
+	 * @param file the file to write the report to
+	 */
+	public StatisticsReport(Path file) {
+		this.file = file;
+	}
+	
+	/**
+	 * Adds the statistics for a single DSL.
+	 * 
+	 * @param className the qualified name of the generated class
+	 * @param engine the compiler engine
+	 * @param cached whether the automaton was loaded from the cache
+	 * @param phaseNanos the times of the individual phases, in nanoseconds
+	 * @param numStates the number of states of the automaton
+	 * @param numTransitions the number of transitions of the automaton
+	 * @param classFiles whether class files were generated instead of source code
+	 * @param outputSize the size of the generated source code in characters, or of the
+	 * generated class files in bytes
+	 */
+	public void add(String className, CompilerEngine engine, boolean cached, Map<String,Long> phaseNanos,
+			int numStates, int numTransitions, boolean classFiles, int outputSize) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"class\": ");
+		appendString(className, sb);
+		sb.append(", \"engine\": ");
+		appendString(engine.name(), sb);
+		sb.append(", \"cached\": ").append(cached);
+		sb.append(", \"phases\": {");
+		boolean first = true;
+		for(Map.Entry<String,Long> e : phaseNanos.entrySet()) {
+			if(!first) {
+				sb.append(", ");
+			}
+			first = false;
+			appendString(e.getKey(), sb);
+			sb.append(": ").append(String.format(Locale.ROOT, "%.3f", e.getValue() / 1e6));
+		}
+		sb.append("}, \"states\": ").append(numStates);
+		sb.append(", \"transitions\": ").append(numTransitions);
+		sb.append(classFiles ? ", \"classFileBytes\": " : ", \"sourceChars\": ").append(outputSize);
+		sb.append('}');
+		entries.add(sb.toString());
+	}
+	
+	/**
+	 * Writes the report, replacing any previous contents of the file.
+	 * 
+	 * @throws IOException if writing the report fails
+	 */
+	public void write() throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		if(parent != null) {
+			Files.createDirectories(parent);
+		}
+		try(BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			w.write("{\"dsls\": [");
+			for(int i = 0; i < entries.size(); i++) {
+				w.write((i > 0) ? ",\n  " : "\n  ");
+				w.write(entries.get(i));
+			}
+			w.write("\n]}\n");
+		}
+	}
+	
+	private static void appendString(String str, StringBuilder sb) {
+		sb.append('"');
+		for(int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if(c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			}
+			else if(c < 0x20) {
+				sb.append(String.format("\\u%04x", (int)c));
+			}
+			else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+
+}
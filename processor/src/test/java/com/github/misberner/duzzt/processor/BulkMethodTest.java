@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.processor;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import javax.tools.Diagnostic;
+
+import org.junit.Test;
+
+/**
+ * Tests the binding of actions to bulk methods via
+ * {@link com.github.misberner.duzzt.annotations.DSLAction#bulk()}.
+ */
+public class BulkMethodTest {
+	
+	private static String tagsSource(String bulkParams) {
+		return "package test;\n"
+				+ "import com.github.misberner.duzzt.annotations.*;\n"
+				+ "@GenerateEmbeddedDSL(name = \"Tagger\", syntax = \"tag* done\")\n"
+				+ "public class TaggerImpl {\n"
+				+ "	@DSLAction(bulk = \"tags\") public void tag(String tag) {}\n"
+				+ "	public void tags(" + bulkParams + ") {}\n"
+				+ "	public void done() {}\n"
+				+ "}\n";
+	}
+	
+	@Test
+	public void testMatchingElementTypes() throws Exception {
+		String[] bulkParams = {
+				"String[] tags",
+				"String... tags",
+				"Iterable<String> tags",
+				"java.util.List<? extends String> tags",
+				"java.util.Set<String> tags"
+		};
+		for(String params : bulkParams) {
+			TestCompilation compilation = new TestCompilation()
+					.addSource("test.TaggerImpl", tagsSource(params));
+			boolean success = compilation.compile(new DuzztMainProcessor());
+			assertTrue(params + ": " + compilation.getMessages(Diagnostic.Kind.ERROR), success);
+		}
+	}
+	
+	@Test
+	public void testMismatchingArrayElementType() throws Exception {
+		TestCompilation compilation = new TestCompilation()
+				.addSource("test.TaggerImpl", tagsSource("int[] tags"));
+		assertFalse(compilation.compile(new DuzztMainProcessor()));
+		assertElementTypeError(compilation.getMessages(Diagnostic.Kind.ERROR), "int");
+	}
+	
+	@Test
+	public void testMismatchingIterableElementType() throws Exception {
+		TestCompilation compilation = new TestCompilation()
+				.addSource("test.TaggerImpl", tagsSource("java.util.List<Integer> tags"));
+		assertFalse(compilation.compile(new DuzztMainProcessor()));
+		assertElementTypeError(compilation.getMessages(Diagnostic.Kind.ERROR), "java.lang.Integer");
+	}
+	
+	private static void assertElementTypeError(List<String> errors, String elementType) {
+		for(String error : errors) {
+			if(error.contains("Element type " + elementType + " of bulk method")) {
+				return;
+			}
+		}
+		throw new AssertionError("No element type error reported: " + errors);
+	}
+}
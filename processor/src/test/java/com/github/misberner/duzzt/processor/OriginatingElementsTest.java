@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+
+import org.junit.Test;
+
+/**
+ * Checks that every file generated by the processor has the annotated implementation class
+ * as its only originating element, as required for an isolating annotation processor in
+ * Gradle's incremental compilation (see {@code META-INF/gradle/incremental.annotation.processors}).
+ */
+public class OriginatingElementsTest {
+	
+	private static final String SOURCE = "package test;\n"
+			+ "import com.github.misberner.duzzt.annotations.*;\n"
+			+ "@GenerateEmbeddedDSL(name = \"DateAdder\", stateStyle = StateClassStyle.%s,\n"
+			+ "	syntax = \"(<add> days)? (<add> hours)? (<add> minutes)? (<add> seconds)? to\",\n"
+			+ "	where = { @SubExpr(name = \"add\", definedAs = \"^add|/and\") })\n"
+			+ "public class DateAdderImpl {\n"
+			+ "	private long millis;\n"
+			+ "	public void add(int amount) { millis = amount; }\n"
+			+ "	public void and(int amount) { millis += amount; }\n"
+			+ "	public void days() {}\n"
+			+ "	public void hours() {}\n"
+			+ "	public void minutes() {}\n"
+			+ "	public void seconds() {}\n"
+			+ "	public long to(long base) { return base + millis; }\n"
+			+ "}\n";
+	
+	@Test
+	public void testSourceGeneration() throws Exception {
+		checkOriginatingElements("INNER_CLASSES");
+		checkOriginatingElements("STATIC_NESTED");
+		checkOriginatingElements("INTERFACES");
+	}
+	
+	@Test
+	public void testSplitSourceGeneration() throws Exception {
+		checkOriginatingElements("INNER_CLASSES", Duzzt.OPTION_SPLIT_THRESHOLD, "1");
+		checkOriginatingElements("STATIC_NESTED", Duzzt.OPTION_SPLIT_THRESHOLD, "1");
+	}
+	
+	@Test
+	public void testClassFileGeneration() throws Exception {
+		checkOriginatingElements("INNER_CLASSES", Duzzt.OPTION_CLASS_FILES, "true");
+		checkOriginatingElements("STATIC_NESTED", Duzzt.OPTION_CLASS_FILES, "true");
+	}
+	
+	private static void checkOriginatingElements(String stateStyle, String... options) throws IOException {
+		TestCompilation compilation = new TestCompilation()
+				.addSource("test.DateAdderImpl", String.format(SOURCE, stateStyle));
+		for(int i = 0; i < options.length; i += 2) {
+			compilation.addOption(options[i], options[i + 1]);
+		}
+		RecordingProcessor processor = new RecordingProcessor(new DuzztMainProcessor());
+		boolean success = compilation.compile(processor);
+		assertTrue(compilation.getMessages(Diagnostic.Kind.ERROR).toString(), success);
+		
+		assertFalse(processor.getRecorded().isEmpty());
+		for(Map.Entry<String,List<Element>> e : processor.getRecorded().entrySet()) {
+			List<Element> elements = e.getValue();
+			assertEquals(e.getKey(), 1, elements.size());
+			assertEquals(e.getKey(), "test.DateAdderImpl",
+					((TypeElement) elements.get(0)).getQualifiedName().toString());
+		}
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.processor;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager.Location;
+import javax.tools.JavaFileObject;
+
+/**
+ * Processor delegating to another processor, providing it with a {@link Filer} that
+ * records the originating elements of all created files.
+ */
+final class RecordingProcessor implements Processor {
+	private final Processor delegate;
+	private final Map<String,List<Element>> recorded = new LinkedHashMap<>();
+	
+	public RecordingProcessor(Processor delegate) {
+		this.delegate = delegate;
+	}
+	
+	/**
+	 * Retrieves the names of the created files, mapped to their originating elements.
+	 */
+	public Map<String,List<Element>> getRecorded() {
+		return recorded;
+	}
+	
+	@Override
+	public Set<String> getSupportedOptions() {
+		return delegate.getSupportedOptions();
+	}
+	
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return delegate.getSupportedAnnotationTypes();
+	}
+	
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return delegate.getSupportedSourceVersion();
+	}
+	
+	@Override
+	public void init(final ProcessingEnvironment processingEnv) {
+		final Filer filer = new RecordingFiler(processingEnv.getFiler());
+		delegate.init(new ProcessingEnvironment() {
+			@Override
+			public Map<String,String> getOptions() {
+				return processingEnv.getOptions();
+			}
+			@Override
+			public Messager getMessager() {
+				return processingEnv.getMessager();
+			}
+			@Override
+			public Filer getFiler() {
+				return filer;
+			}
+			@Override
+			public Elements getElementUtils() {
+				return processingEnv.getElementUtils();
+			}
+			@Override
+			public Types getTypeUtils() {
+				return processingEnv.getTypeUtils();
+			}
+			@Override
+			public SourceVersion getSourceVersion() {
+				return processingEnv.getSourceVersion();
+			}
+			@Override
+			public Locale getLocale() {
+				return processingEnv.getLocale();
+			}
+		});
+	}
+	
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		return delegate.process(annotations, roundEnv);
+	}
+	
+	@Override
+	public Iterable<? extends Completion> getCompletions(Element element,
+			AnnotationMirror annotation, ExecutableElement member, String userText) {
+		return delegate.getCompletions(element, annotation, member, userText);
+	}
+	
+	private final class RecordingFiler implements Filer {
+		private final Filer filer;
+		
+		public RecordingFiler(Filer filer) {
+			this.filer = filer;
+		}
+		
+		@Override
+		public JavaFileObject createSourceFile(CharSequence name, Element... originatingElements)
+				throws IOException {
+			recorded.put(name + ".java", Arrays.asList(originatingElements));
+			return filer.createSourceFile(name, originatingElements);
+		}
+		
+		@Override
+		public JavaFileObject createClassFile(CharSequence name, Element... originatingElements)
+				throws IOException {
+			recorded.put(name + ".class", Arrays.asList(originatingElements));
+			return filer.createClassFile(name, originatingElements);
+		}
+		
+		@Override
+		public FileObject createResource(Location location, CharSequence pkg,
+				CharSequence relativeName, Element... originatingElements) throws IOException {
+			recorded.put(pkg + "/" + relativeName, Arrays.asList(originatingElements));
+			return filer.createResource(location, pkg, relativeName, originatingElements);
+		}
+		
+		@Override
+		public FileObject getResource(Location location, CharSequence pkg,
+				CharSequence relativeName) throws IOException {
+			return filer.getResource(location, pkg, relativeName);
+		}
+	}
+}
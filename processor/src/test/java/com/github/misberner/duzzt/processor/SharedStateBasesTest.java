@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+
+import org.junit.Test;
+
+/**
+ * Checks that the common and shared base classes of the states are only generated if enabled
+ * via the {@value Duzzt#OPTION_SHARED_STATE_BASES} option. The DSL is split into one file
+ * per class, such that the base classes show up as generated files.
+ */
+public class SharedStateBasesTest {
+
+	private static final String SOURCE = "package test;\n"
+			+ "import com.github.misberner.duzzt.annotations.*;\n"
+			+ "@GenerateEmbeddedDSL(name = \"Lists\", syntax = \"(item (sep item)*)? done\")\n"
+			+ "public class ListsImpl {\n"
+			+ "	private final StringBuilder sb = new StringBuilder();\n"
+			+ "	public void item(String s) { sb.append(s); }\n"
+			+ "	public void sep() { sb.append(','); }\n"
+			+ "	@DSLAction(global = true)\n"
+			+ "	public void reset() { sb.setLength(0); }\n"
+			+ "	public String done() { return sb.toString(); }\n"
+			+ "}\n";
+
+	@Test
+	public void testDisabledByDefault() throws Exception {
+		assertEquals(new ArrayList<String>(), getBaseFiles(Duzzt.OPTION_SPLIT_THRESHOLD, "1"));
+		assertEquals(new ArrayList<String>(),
+				getBaseFiles(Duzzt.OPTION_SPLIT_THRESHOLD, "1", Duzzt.OPTION_SHARED_STATE_BASES, "false"));
+		assertEquals(new ArrayList<String>(), getBaseFiles(Duzzt.OPTION_CLASS_FILES, "true"));
+	}
+
+	@Test
+	public void testEnabled() throws Exception {
+		List<String> baseFiles = getBaseFiles(Duzzt.OPTION_SPLIT_THRESHOLD, "1",
+				Duzzt.OPTION_SHARED_STATE_BASES, "true");
+		assertTrue(baseFiles.toString(), baseFiles.contains("test.Lists__State.java"));
+
+		baseFiles = getBaseFiles(Duzzt.OPTION_CLASS_FILES, "true",
+				Duzzt.OPTION_SHARED_STATE_BASES, "true");
+		assertTrue(baseFiles.toString(), baseFiles.contains("test.Lists$Lists__State.class"));
+	}
+
+	private static List<String> getBaseFiles(String... options) throws IOException {
+		TestCompilation compilation = new TestCompilation()
+				.addSource("test.ListsImpl", SOURCE);
+		for(int i = 0; i < options.length; i += 2) {
+			compilation.addOption(options[i], options[i + 1]);
+		}
+		RecordingProcessor processor = new RecordingProcessor(new DuzztMainProcessor());
+		boolean success = compilation.compile(processor);
+		assertTrue(compilation.getMessages(Diagnostic.Kind.ERROR).toString(), success);
+
+		List<String> result = new ArrayList<>();
+		for(String name : processor.getRecorded().keySet()) {
+			if(name.contains("__State") || name.contains("__Base")) {
+				result.add(name);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import javax.tools.Diagnostic;
+
+import org.junit.Test;
+
+/**
+ * Checks that the compilation of a DSL whose automaton blows up is aborted during the subset
+ * construction, both for the default and for explicitly configured state limits.
+ */
+public class StateLimitTest {
+
+	/*
+	 * The deterministic automaton for the "tail" subexpression has 2^25 states, as it has
+	 * to remember the last 25 actions.
+	 */
+	private static final String SOURCE = "package test;\n"
+			+ "import com.github.misberner.duzzt.annotations.*;\n"
+			+ "@GenerateEmbeddedDSL(name = \"Bits\", %s\n"
+			+ "	syntax = \"<tail> done\",\n"
+			+ "	where = { @SubExpr(name = \"tail\", definedAs = \"(zero|one)* one"
+			+ " (zero|one) (zero|one) (zero|one) (zero|one) (zero|one) (zero|one) (zero|one) (zero|one)"
+			+ " (zero|one) (zero|one) (zero|one) (zero|one) (zero|one) (zero|one) (zero|one) (zero|one)"
+			+ " (zero|one) (zero|one) (zero|one) (zero|one) (zero|one) (zero|one) (zero|one) (zero|one)\") })\n"
+			+ "public class BitsImpl {\n"
+			+ "	public void zero() {}\n"
+			+ "	public void one() {}\n"
+			+ "	public void done() {}\n"
+			+ "}\n";
+
+	@Test(timeout = 60000)
+	public void testDefaultLimit() throws Exception {
+		assertLimitExceeded(compile("", "brics"), Duzzt.DEFAULT_MAX_STATES);
+		assertLimitExceeded(compile("", "direct"), Duzzt.DEFAULT_MAX_STATES);
+	}
+
+	@Test(timeout = 60000)
+	public void testAnnotationLimit() throws Exception {
+		assertLimitExceeded(compile("maxStates = 100,", "brics"), 100);
+		assertLimitExceeded(compile("maxStates = 100,", "direct"), 100);
+	}
+
+	private static TestCompilation compile(String attributes, String engine) throws Exception {
+		TestCompilation compilation = new TestCompilation()
+				.addSource("test.BitsImpl", String.format(SOURCE, attributes))
+				.addOption(Duzzt.OPTION_COMPILER, engine);
+		assertFalse(compilation.compile(new DuzztMainProcessor()));
+		return compilation;
+	}
+
+	private static void assertLimitExceeded(TestCompilation compilation, int maxStates) {
+		List<String> errors = compilation.getMessages(Diagnostic.Kind.ERROR);
+		assertEquals(errors.toString(), 1, errors.size());
+		String error = errors.get(0);
+		assertTrue(error, error.contains("tail"));
+		assertTrue(error, error.contains("maximum number of " + maxStates + " states"));
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.processor;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Runs the annotation processor on in-memory sources, using the system Java compiler.
+ */
+final class TestCompilation {
+	
+	private static final class StringSource extends SimpleJavaFileObject {
+		private final String code;
+		
+		public StringSource(String className, String code) {
+			super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension),
+					Kind.SOURCE);
+			this.code = code;
+		}
+		
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return code;
+		}
+	}
+	
+	private final List<JavaFileObject> sources = new ArrayList<>();
+	private final List<String> options = new ArrayList<>();
+	private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+	
+	/**
+	 * Adds a source file.
+	 * 
+	 * @param className the qualified name of the (top-level) class declared in the source
+	 * @param code the source code
+	 * @return this object
+	 */
+	public TestCompilation addSource(String className, String code) {
+		sources.add(new StringSource(className, code));
+		return this;
+	}
+	
+	/**
+	 * Adds a processor option, specified as {@code -Akey=value}.
+	 */
+	public TestCompilation addOption(String key, String value) {
+		options.add("-A" + key + "=" + value);
+		return this;
+	}
+	
+	/**
+	 * Compiles the sources, running the given processor.
+	 * 
+	 * @param processor the processor
+	 * @return {@code true} if compilation succeeded, {@code false} otherwise
+	 * @throws IOException if the temporary output directory cannot be created or deleted
+	 */
+	public boolean compile(Processor processor) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		Path outDir = Files.createTempDirectory("duzzt-test");
+		try(StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+			List<String> allOptions = new ArrayList<>(options);
+			allOptions.addAll(Arrays.asList("-d", outDir.toString(), "-s", outDir.toString(),
+					"-classpath", System.getProperty("java.class.path")));
+			JavaCompiler.CompilationTask task
+					= compiler.getTask(null, fileManager, diagnostics, allOptions, null, sources);
+			task.setProcessors(Collections.singletonList(processor));
+			return task.call();
+		}
+		finally {
+			delete(outDir);
+		}
+	}
+	
+	/**
+	 * Retrieves the messages of all diagnostics of the given kind reported during compilation.
+	 */
+	public List<String> getMessages(Diagnostic.Kind kind) {
+		List<String> result = new ArrayList<>();
+		for(Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+			if(d.getKind() == kind) {
+				result.add(d.getMessage(null));
+			}
+		}
+		return result;
+	}
+	
+	private static void delete(Path dir) throws IOException {
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+			@Override
+			public FileVisitResult postVisitDirectory(Path d, IOException ex) throws IOException {
+				Files.delete(d);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
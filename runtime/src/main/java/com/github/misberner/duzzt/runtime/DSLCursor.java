@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.runtime;
+
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * A cursor performing a call chain on a DSL implementation object, validating every call
+ * against the syntax of the DSL.
+ * <p>
+ * Each call consists of a lookup in the transition table of the {@link DSLRuntime}, and an
+ * exact invocation of the cached method handle of the action. The fixed-arity variants
+ * {@link #call0(int)} through {@link #call3(int, Object, Object, Object)} invoke the handle
+ * directly and do not allocate anything besides the boxes of primitive arguments and return
+ * values, whereas {@link #call(int, Object...)} allocates the argument array and spreads it
+ * over the parameters of the action method.
+ * Cursors are not thread-safe.
+ * @param <I> the implementation class
+ */
+public final class DSLCursor<I> {
+	
+	private final DSLRuntime<I> runtime;
+	private final I implementation;
+	private int state;
+	
+	DSLCursor(DSLRuntime<I> runtime, I implementation) {
+		this.runtime = runtime;
+		this.implementation = implementation;
+	}
+	
+	/**
+	 * Invokes an action on the implementation object, and advances the cursor.
+	 * 
+	 * @param actionId the ID of the action
+	 * @param args the arguments of the action
+	 * @return the return value of the action method, or {@code null} if it is void
+	 * @throws IllegalStateException if the action is not legal in the current state
+	 * @throws IllegalArgumentException if the action ID is invalid, or the number of
+	 * arguments does not match
+	 * @throws ClassCastException if an argument does not match the respective parameter type
+	 * @throws UndeclaredThrowableException if the action method throws a checked exception
+	 */
+	public Object call(int actionId, Object... args) {
+		int succ = successor(actionId, args.length);
+		Object result;
+		try {
+			result = (Object) runtime.spreader(actionId).invokeExact((Object) implementation, args);
+		}
+		catch(Throwable ex) {
+			throw propagate(ex);
+		}
+		state = succ;
+		return result;
+	}
+	
+	/**
+	 * Invokes an action without parameters on the implementation object, and advances
+	 * the cursor.
+	 * 
+	 * @param actionId the ID of the action
+	 * @return the return value of the action method, or {@code null} if it is void
+	 * @throws IllegalStateException if the action is not legal in the current state
+	 * @throws IllegalArgumentException if the action ID is invalid, or the action has
+	 * parameters
+	 * @throws UndeclaredThrowableException if the action method throws a checked exception
+	 * @see #call(int, Object...)
+	 */
+	public Object call0(int actionId) {
+		int succ = successor(actionId, 0);
+		Object result;
+		try {
+			result = (Object) runtime.handle(actionId).invokeExact((Object) implementation);
+		}
+		catch(Throwable ex) {
+			throw propagate(ex);
+		}
+		state = succ;
+		return result;
+	}
+	
+	/**
+	 * Invokes an action with one parameter on the implementation object, and advances
+	 * the cursor.
+	 * 
+	 * @param actionId the ID of the action
+	 * @param arg the argument of the action
+	 * @return the return value of the action method, or {@code null} if it is void
+	 * @throws IllegalStateException if the action is not legal in the current state
+	 * @throws IllegalArgumentException if the action ID is invalid, or the action does not
+	 * have exactly one parameter
+	 * @throws ClassCastException if the argument does not match the parameter type
+	 * @throws UndeclaredThrowableException if the action method throws a checked exception
+	 * @see #call(int, Object...)
+	 */
+	public Object call1(int actionId, Object arg) {
+		int succ = successor(actionId, 1);
+		Object result;
+		try {
+			result = (Object) runtime.handle(actionId).invokeExact((Object) implementation, arg);
+		}
+		catch(Throwable ex) {
+			throw propagate(ex);
+		}
+		state = succ;
+		return result;
+	}
+	
+	/**
+	 * Invokes an action with two parameters on the implementation object, and advances
+	 * the cursor.
+	 * 
+	 * @param actionId the ID of the action
+	 * @param arg1 the first argument of the action
+	 * @param arg2 the second argument of the action
+	 * @return the return value of the action method, or {@code null} if it is void
+	 * @throws IllegalStateException if the action is not legal in the current state
+	 * @throws IllegalArgumentException if the action ID is invalid, or the action does not
+	 * have exactly two parameters
+	 * @throws ClassCastException if an argument does not match the respective parameter type
+	 * @throws UndeclaredThrowableException if the action method throws a checked exception
+	 * @see #call(int, Object...)
+	 */
+	public Object call2(int actionId, Object arg1, Object arg2) {
+		int succ = successor(actionId, 2);
+		Object result;
+		try {
+			result = (Object) runtime.handle(actionId).invokeExact((Object) implementation, arg1, arg2);
+		}
+		catch(Throwable ex) {
+			throw propagate(ex);
+		}
+		state = succ;
+		return result;
+	}
+	
+	/**
+	 * Invokes an action with three parameters on the implementation object, and advances
+	 * the cursor.
+	 * 
+	 * @param actionId the ID of the action
+	 * @param arg1 the first argument of the action
+	 * @param arg2 the second argument of the action
+	 * @param arg3 the third argument of the action
+	 * @return the return value of the action method, or {@code null} if it is void
+	 * @throws IllegalStateException if the action is not legal in the current state
+	 * @throws IllegalArgumentException if the action ID is invalid, or the action does not
+	 * have exactly three parameters
+	 * @throws ClassCastException if an argument does not match the respective parameter type
+	 * @throws UndeclaredThrowableException if the action method throws a checked exception
+	 * @see #call(int, Object...)
+	 */
+	public Object call3(int actionId, Object arg1, Object arg2, Object arg3) {
+		int succ = successor(actionId, 3);
+		Object result;
+		try {
+			result = (Object) runtime.handle(actionId).invokeExact((Object) implementation, arg1, arg2, arg3);
+		}
+		catch(Throwable ex) {
+			throw propagate(ex);
+		}
+		state = succ;
+		return result;
+	}
+	
+	/**
+	 * Checks whether an action is legal in the current state.
+	 * 
+	 * @param actionId the ID of the action
+	 * @return {@code true} if the action may be invoked, {@code false} otherwise
+	 */
+	public boolean isLegal(int actionId) {
+		return runtime.successor(state, actionId) != DSLRuntime.INVALID;
+	}
+	
+	/**
+	 * Checks whether the call chain has been terminated, i.e., a terminating action
+	 * has been invoked.
+	 * 
+	 * @return {@code true} if the call chain has been terminated, {@code false} otherwise
+	 */
+	public boolean isTerminated() {
+		return state == runtime.terminatedState();
+	}
+	
+	/**
+	 * Retrieves the current state. The initial state is {@code 0}, and the terminated
+	 * state is {@link DSLRuntime#getNumStates()}.
+	 * 
+	 * @return the current state
+	 */
+	public int getState() {
+		return state;
+	}
+	
+	/**
+	 * Retrieves the implementation object.
+	 * 
+	 * @return the implementation object
+	 */
+	public I getImplementation() {
+		return implementation;
+	}
+	
+	/**
+	 * Resets this cursor to the initial state, such that a new call chain can be started.
+	 * The implementation object is not affected.
+	 */
+	public void reset() {
+		state = 0;
+	}
+	
+	/**
+	 * Determines the successor state for invoking the given action with the given number
+	 * of arguments in the current state.
+	 */
+	private int successor(int actionId, int numArgs) {
+		int succ = runtime.successor(state, actionId);
+		if(succ == DSLRuntime.INVALID) {
+			throw new IllegalStateException("Action " + runtime.getActionSignature(actionId)
+					+ " is not legal in the current state");
+		}
+		int arity = runtime.arity(actionId);
+		if(numArgs != arity) {
+			throw new IllegalArgumentException("Action " + runtime.getActionSignature(actionId)
+					+ " expects " + arity + " arguments, but " + numArgs + " were given");
+		}
+		return succ;
+	}
+	
+	private static RuntimeException propagate(Throwable ex) {
+		if(ex instanceof RuntimeException) {
+			throw (RuntimeException) ex;
+		}
+		if(ex instanceof Error) {
+			throw (Error) ex;
+		}
+		return new UndeclaredThrowableException(ex);
+	}
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.misberner.duzzt.CompilerEngine;
+import com.github.misberner.duzzt.DuzztAction;
+import com.github.misberner.duzzt.DuzztCompiler;
+import com.github.misberner.duzzt.PhaseTimer;
+import com.github.misberner.duzzt.automaton.DuzztAutomaton;
+import com.github.misberner.duzzt.automaton.DuzztState;
+import com.github.misberner.duzzt.automaton.DuzztTransition;
+import com.github.misberner.duzzt.model.SubExpression;
+import com.github.misberner.duzzt.model.TransitionTable;
+import com.github.misberner.duzzt.re.DuzztRESimplifier;
+import com.github.misberner.duzzt.re.DuzztRegExp;
+import com.github.misberner.duzzt.re.parser.DuzztRegExpParser;
+
+/**
+ * Drives a DSL implementation class annotated with {@link RuntimeDSL} without any
+ * generated code.
+ * <p>
+ * The syntax of the DSL is compiled into the same automaton that the annotation processor
+ * would construct for an equivalent
+ * {@link com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL GenerateEmbeddedDSL}
+ * annotation. The automaton is then flattened into a transition table indexed by state and
+ * action ID, and a method handle is looked up for every action. Both happen only once per
+ * implementation class, as the runtime objects are cached (see {@link #forClass(Class)}).
+ * Call chains are then performed via {@link DSLCursor cursors}, each of which validates
+ * every call by a single table lookup before invoking the respective method handle.
+ * <p>
+ * Actions are identified by their {@link #getActionId(String) IDs}, which are the indices
+ * of the actions ordered by their signatures.
+ * @param <I> the implementation class
+ */
+public final class DSLRuntime<I> {
+	
+	/**
+	 * Successor value in the transition table denoting that an action is illegal.
+	 */
+	static final int INVALID = -1;
+	
+	private static final ClassValue<DSLRuntime<?>> RUNTIMES = new ClassValue<DSLRuntime<?>>() {
+		@Override
+		protected DSLRuntime<?> computeValue(Class<?> type) {
+			return create(type);
+		}
+	};
+	
+	/**
+	 * Retrieves the runtime for the given implementation class. The runtime is created on
+	 * the first invocation for any given class, and cached afterwards.
+	 * 
+	 * @param implClass the implementation class
+	 * @return the runtime for the implementation class
+	 * @throws IllegalArgumentException if the implementation class is not annotated with
+	 * {@link RuntimeDSL}, or its syntax specification is erroneous
+	 */
+	@SuppressWarnings("unchecked")
+	public static <I> DSLRuntime<I> forClass(Class<I> implClass) {
+		return (DSLRuntime<I>) RUNTIMES.get(implClass);
+	}
+	
+	private static <I> DSLRuntime<I> create(Class<I> implClass) {
+		return new DSLRuntime<>(implClass);
+	}
+	
+	private final Class<I> implClass;
+	private final List<String> actionSignatures;
+	private final Map<String,Integer> actionIds;
+	private final int numActions;
+	private final int numStates;
+	// successor state indexed by state * numActions + action ID, or INVALID. The
+	// terminated state has the index numStates, and all its entries are INVALID
+	private final int[] transitions;
+	// handles of type (Object,Object...)Object with one Object parameter per action parameter
+	private final MethodHandle[] handles;
+	// handles of type (Object,Object[])Object spreading the array over the action parameters
+	private final MethodHandle[] spreaders;
+	
+	private DSLRuntime(Class<I> implClass) {
+		RuntimeDSL annotation = implClass.getAnnotation(RuntimeDSL.class);
+		if(annotation == null) {
+			throw new IllegalArgumentException("Class " + implClass.getName()
+					+ " is not annotated with @" + RuntimeDSL.class.getSimpleName());
+		}
+		this.implClass = implClass;
+		
+		RuntimeActionModel actionModel = new RuntimeActionModel(implClass, annotation);
+		List<DuzztAction> actions = actionModel.getAllActions();
+		this.actionSignatures = actionModel.getSignatures();
+		this.numActions = actions.size();
+		this.actionIds = new HashMap<>();
+		for(int i = 0; i < numActions; i++) {
+			actionIds.put(actionSignatures.get(i), i);
+		}
+		
+		DuzztAutomaton automaton = compile(actionModel, annotation);
+		
+		Map<DuzztAction,Integer> actionIndices = new HashMap<>();
+		for(DuzztAction action : actions) {
+			actionIndices.put(action, actionIndices.size());
+		}
+		Map<DuzztState,Integer> stateIndices = TransitionTable.indexStates(automaton);
+		this.numStates = stateIndices.size();
+		this.transitions = new int[(numStates + 1) * numActions];
+		Arrays.fill(transitions, INVALID);
+		for(Map.Entry<DuzztState,Integer> e : stateIndices.entrySet()) {
+			int base = e.getValue() * numActions;
+			for(DuzztTransition t : e.getKey().getTransitions()) {
+				DuzztState succ = t.getSuccessor();
+				int succIdx = (succ == null) ? numStates : stateIndices.get(succ);
+				transitions[base + actionIndices.get(t.getAction())] = succIdx;
+			}
+		}
+		
+		List<Method> methods = actionModel.getMethods();
+		this.handles = new MethodHandle[numActions];
+		this.spreaders = new MethodHandle[numActions];
+		for(int i = 0; i < numActions; i++) {
+			MethodHandle handle = createHandle(methods.get(i));
+			handles[i] = handle;
+			spreaders[i] = handle.asSpreader(Object[].class, handle.type().parameterCount() - 1);
+		}
+	}
+	
+	private static DuzztAutomaton compile(RuntimeActionModel actionModel, RuntimeDSL annotation) {
+		DuzztRESimplifier simplifier = new DuzztRESimplifier();
+		DuzztRegExp syntax = simplifier.simplify(DuzztRegExpParser.parse(annotation.syntax()));
+		Map<String,SubExpression> subExpressions = new HashMap<>();
+		for(RuntimeSubExpr se : annotation.where()) {
+			SubExpression parsed = new SubExpression(se.name(), se.definedAs(), se.ownScope(), simplifier);
+			subExpressions.put(parsed.getName(), parsed);
+		}
+		
+		CompilerEngine engine = CompilerEngine.BRICS;
+		if(!engine.supports(actionModel)) {
+			engine = CompilerEngine.DIRECT;
+		}
+		int maxStates = (annotation.maxStates() >= 0) ? annotation.maxStates() : DuzztCompiler.DEFAULT_MAX_STATES;
+		DuzztCompiler compiler = engine.createCompiler(actionModel, maxStates, PhaseTimer.DISABLED);
+		return compiler.compile(syntax, subExpressions);
+	}
+	
+	/**
+	 * Creates a method handle invoking the given method, with the receiver as the first and
+	 * the arguments as the remaining parameters. All parameter types and the return type are
+	 * {@link Object}, such that the handle can be invoked exactly for any action of the same
+	 * arity. If the method is void, the handle returns {@code null}.
+	 */
+	private static MethodHandle createHandle(Method method) {
+		MethodHandle handle;
+		try {
+			handle = MethodHandles.publicLookup().unreflect(method);
+		}
+		catch(IllegalAccessException ex) {
+			// The method is public, but its declaring class is not
+			method.setAccessible(true);
+			try {
+				handle = MethodHandles.publicLookup().unreflect(method);
+			}
+			catch(IllegalAccessException ex2) {
+				throw new IllegalArgumentException("Cannot access method " + method, ex2);
+			}
+		}
+		handle = handle.asFixedArity();
+		return handle.asType(handle.type().generic());
+	}
+	
+	/**
+	 * Retrieves the implementation class.
+	 * 
+	 * @return the implementation class
+	 */
+	public Class<I> getImplementationClass() {
+		return implClass;
+	}
+	
+	/**
+	 * Retrieves the number of actions.
+	 * 
+	 * @return the number of actions
+	 */
+	public int getNumActions() {
+		return numActions;
+	}
+	
+	/**
+	 * Retrieves the number of states of the automaton, not counting the terminated state.
+	 * 
+	 * @return the number of states
+	 */
+	public int getNumStates() {
+		return numStates;
+	}
+	
+	/**
+	 * Retrieves the ID of an action.
+	 * 
+	 * @param signature the signature of the action, consisting of its name and the
+	 * comma-separated list of the canonical names of its parameter types in parentheses,
+	 * without any whitespace, e.g., <tt>add(int,java.lang.String)</tt>
+	 * @return the action ID
+	 * @throws IllegalArgumentException if there is no action with the given signature
+	 */
+	public int getActionId(String signature) {
+		Integer id = actionIds.get(signature);
+		if(id == null) {
+			throw new IllegalArgumentException("No action with signature " + signature
+					+ " in DSL implementation " + implClass.getName());
+		}
+		return id;
+	}
+	
+	/**
+	 * Retrieves the ID of the action implemented by the given method.
+	 * 
+	 * @param method the method
+	 * @return the action ID
+	 * @throws IllegalArgumentException if the method does not implement an action
+	 */
+	public int getActionId(Method method) {
+		return getActionId(RuntimeActionModel.getSignature(method));
+	}
+	
+	/**
+	 * Retrieves the signature of an action.
+	 * 
+	 * @param actionId the action ID
+	 * @return the signature of the action
+	 */
+	public String getActionSignature(int actionId) {
+		return actionSignatures.get(actionId);
+	}
+	
+	/**
+	 * Creates a cursor for a new call chain on the given implementation object.
+	 * 
+	 * @param implementation the implementation object
+	 * @return the cursor, positioned in the initial state
+	 */
+	public DSLCursor<I> cursor(I implementation) {
+		return new DSLCursor<>(this, implClass.cast(implementation));
+	}
+	
+	int successor(int state, int actionId) {
+		if(actionId < 0 || actionId >= numActions) {
+			throw new IllegalArgumentException("Invalid action ID " + actionId);
+		}
+		return transitions[state * numActions + actionId];
+	}
+	
+	MethodHandle handle(int actionId) {
+		return handles[actionId];
+	}
+	
+	MethodHandle spreader(int actionId) {
+		return spreaders[actionId];
+	}
+	
+	int arity(int actionId) {
+		return handles[actionId].type().parameterCount() - 1;
+	}
+	
+	int terminatedState() {
+		return numStates;
+	}
+	
+}
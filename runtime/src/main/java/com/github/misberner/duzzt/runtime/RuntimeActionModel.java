@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.runtime;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.github.misberner.duzzt.ActionModel;
+import com.github.misberner.duzzt.DuzztAction;
+
+/**
+ * The actions of a {@link RuntimeDSL} implementation class, determined via reflection.
+ * <p>
+ * Actions are ordered by their signature (see {@link #getSignature(Method)}), such that
+ * the action IDs do not depend on the order in which the methods are reported by the
+ * reflection API.
+ */
+final class RuntimeActionModel implements ActionModel {
+	
+	/**
+	 * Retrieves the signature of a method, consisting of its name and the comma-separated
+	 * list of its parameter types in parentheses, e.g., <tt>add(int,java.lang.String)</tt>.
+	 * 
+	 * @param method the method
+	 * @return the signature of the method
+	 */
+	public static String getSignature(Method method) {
+		StringBuilder sb = new StringBuilder(method.getName());
+		sb.append('(');
+		Class<?>[] paramTypes = method.getParameterTypes();
+		for(int i = 0; i < paramTypes.length; i++) {
+			if(i > 0) {
+				sb.append(',');
+			}
+			String typeName = paramTypes[i].getCanonicalName();
+			sb.append((typeName != null) ? typeName : paramTypes[i].getName());
+		}
+		sb.append(')');
+		return sb.toString();
+	}
+	
+	private final Map<String,List<DuzztAction>> actionLists = new LinkedHashMap<>();
+	private final List<DuzztAction> allActions = new ArrayList<>();
+	private final List<Method> methods = new ArrayList<>();
+	private final List<String> signatures = new ArrayList<>();
+	
+	public RuntimeActionModel(Class<?> implClass, RuntimeDSL annotation) {
+		Method[] candidates = annotation.includeInherited()
+				? implClass.getMethods() : implClass.getDeclaredMethods();
+		
+		Map<String,Method> bySignature = new TreeMap<>();
+		for(Method m : candidates) {
+			if(isCandidate(m) && !bySignature.containsKey(getSignature(m))) {
+				bySignature.put(getSignature(m), m);
+			}
+		}
+		
+		for(Map.Entry<String,Method> e : bySignature.entrySet()) {
+			Method m = e.getValue();
+			RuntimeDSLAction actionAnn = m.getAnnotation(RuntimeDSLAction.class);
+			boolean enabled = (actionAnn != null) ? actionAnn.enable() : annotation.enableAllMethods();
+			if(!enabled) {
+				continue;
+			}
+			boolean global = (actionAnn != null) && actionAnn.global();
+			boolean terminator = (actionAnn != null) && actionAnn.terminator();
+			
+			DuzztAction action = new DuzztAction(m.getName(), global, terminator);
+			List<DuzztAction> list = actionLists.get(action.getName());
+			if(list == null) {
+				list = new ArrayList<>();
+				actionLists.put(action.getName(), list);
+			}
+			list.add(action);
+			allActions.add(action);
+			methods.add(m);
+			signatures.add(e.getKey());
+		}
+	}
+	
+	private static boolean isCandidate(Method m) {
+		if(m.getDeclaringClass() == Object.class) {
+			return false;
+		}
+		if(m.isBridge() || m.isSynthetic()) {
+			return false;
+		}
+		int mods = m.getModifiers();
+		return Modifier.isPublic(mods) && !Modifier.isStatic(mods);
+	}
+	
+	@Override
+	public Set<? extends Map.Entry<String,List<DuzztAction>>> getActionLists() {
+		return Collections.unmodifiableSet(actionLists.entrySet());
+	}
+	
+	/**
+	 * Retrieves all actions, ordered by the signatures of their methods. The index of
+	 * an action in this list is its action ID.
+	 */
+	@Override
+	public List<DuzztAction> getAllActions() {
+		return Collections.unmodifiableList(allActions);
+	}
+	
+	/**
+	 * Retrieves the methods implementing the actions, in the same order as
+	 * {@link #getAllActions()}.
+	 * 
+	 * @return the action methods
+	 */
+	public List<Method> getMethods() {
+		return Collections.unmodifiableList(methods);
+	}
+	
+	/**
+	 * Retrieves the signatures of the actions, in the same order as
+	 * {@link #getAllActions()}.
+	 * 
+	 * @return the action signatures
+	 */
+	public List<String> getSignatures() {
+		return Collections.unmodifiableList(signatures);
+	}
+
+}
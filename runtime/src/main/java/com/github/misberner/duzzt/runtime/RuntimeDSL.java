@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.runtime;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the target class as the implementation of a DSL that is driven at runtime by
+ * a {@link DSLRuntime}, instead of an embedded DSL generated by the annotation processor.
+ * <p>
+ * The attributes correspond to those of the same name in
+ * {@link com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL GenerateEmbeddedDSL},
+ * and the syntax is compiled into the same automaton. In contrast to the latter annotation,
+ * this annotation is retained at runtime, and only the public methods of the annotated class
+ * are considered as actions.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RuntimeDSL {
+	
+	/**
+	 * The syntax of the DSL.
+	 * 
+	 * @see com.github.misberner.duzzt.annotations.GenerateEmbeddedDSL#syntax()
+	 */
+	public String syntax();
+	
+	/**
+	 * The named subexpressions that may be referenced in the syntax.
+	 * The default value is <tt>{}</tt>, meaning that no subexpressions are declared.
+	 */
+	public RuntimeSubExpr[] where() default {};
+	
+	/**
+	 * Specifies whether all public methods are considered as actions, unless explicitly
+	 * disabled via {@link RuntimeDSLAction#enable()}. If set to {@code false}, only methods
+	 * annotated with {@link RuntimeDSLAction} are considered.
+	 * The default setting is {@code true}.
+	 */
+	public boolean enableAllMethods() default true;
+	
+	/**
+	 * Specifies whether inherited public methods are considered as actions as well.
+	 * Methods declared by {@link Object} are never considered.
+	 * The default setting is {@code true}.
+	 */
+	public boolean includeInherited() default true;
+	
+	/**
+	 * The maximum number of states of the automata constructed during compilation. The
+	 * default setting is {@code -1}, meaning that the default limit of the annotation
+	 * processor applies. A value of {@code 0} means no limit.
+	 */
+	public int maxStates() default -1;
+}
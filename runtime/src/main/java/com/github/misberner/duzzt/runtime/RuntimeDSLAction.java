@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.runtime;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Configures the role of a method of a {@link RuntimeDSL} implementation class, analogously
+ * to {@link com.github.misberner.duzzt.annotations.DSLAction DSLAction}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RuntimeDSLAction {
+	
+	/**
+	 * Enables this method as a DSL action. Defaults to {@code true}.
+	 */
+	public boolean enable() default true;
+	
+	/**
+	 * Specifies whether this action may be invoked in any non-terminated state, without
+	 * affecting the state. Defaults to {@code false}.
+	 */
+	public boolean global() default false;
+	
+	/**
+	 * Specifies whether this action terminates the call chain. Defaults to {@code false}.
+	 */
+	public boolean terminator() default false;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2014 by Malte Isberner (https://github.com/misberner).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.misberner.duzzt.runtime;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A named subexpression, to be used in the value of {@link RuntimeDSL#where()}.
+ * @see com.github.misberner.duzzt.annotations.SubExpr
+ */
+@Target({})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RuntimeSubExpr {
+	/**
+	 * The name of this subexpression.
+	 */
+	public String name();
+	
+	/**
+	 * The definition of this subexpression. The syntax follows that of
+	 * {@link RuntimeDSL#syntax()}.
+	 */
+	public String definedAs();
+	
+	/**
+	 * Specifies whether this subexpression defines its own scope.
+	 * 
+	 * @see com.github.misberner.duzzt.annotations.SubExpr#ownScope()
+	 */
+	public boolean ownScope() default false;
+}